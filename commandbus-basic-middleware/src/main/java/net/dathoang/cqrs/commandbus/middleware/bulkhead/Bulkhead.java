@@ -0,0 +1,109 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The permits shared by the messages of a bulkhead group, and its live counters.
+ */
+public final class Bulkhead {
+  private final Object group;
+  private final BulkheadPolicy policy;
+  private final Semaphore permits;
+  private final AtomicInteger waitingCalls = new AtomicInteger();
+  private final LongAdder completedCalls = new LongAdder();
+  private final LongAdder rejectedCalls = new LongAdder();
+
+  Bulkhead(Object group, BulkheadPolicy policy) {
+    this.group = group;
+    this.policy = policy;
+    this.permits = new Semaphore(policy.getMaxConcurrentCalls(),
+        policy.getMode() == BulkheadMode.QUEUE);
+  }
+
+  void acquire() throws InterruptedException {
+    // Unlike tryAcquire(), a timed try honours the fairness of the queue mode semaphore, so that
+    // new calls don't overtake the queued ones
+    boolean isAcquired = policy.getMode() == BulkheadMode.QUEUE
+        ? permits.tryAcquire(0, TimeUnit.NANOSECONDS)
+        : permits.tryAcquire();
+    if (isAcquired) {
+      return;
+    }
+
+    switch (policy.getMode()) {
+      case QUEUE:
+        if (waitingCalls.incrementAndGet() > policy.getMaxQueuedCalls()) {
+          waitingCalls.decrementAndGet();
+          throw reject();
+        }
+        try {
+          permits.acquire();
+        } finally {
+          waitingCalls.decrementAndGet();
+        }
+        return;
+      case WAIT:
+        waitingCalls.incrementAndGet();
+        try {
+          isAcquired = permits.tryAcquire(policy.getMaxWaitNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+          waitingCalls.decrementAndGet();
+        }
+        if (!isAcquired) {
+          throw reject();
+        }
+        return;
+      default:
+        throw reject();
+    }
+  }
+
+  void release() {
+    completedCalls.increment();
+    permits.release();
+  }
+
+  private BulkheadFullException reject() {
+    rejectedCalls.increment();
+    return new BulkheadFullException(group, policy.getMaxConcurrentCalls());
+  }
+
+  public Object getGroup() {
+    return group;
+  }
+
+  public BulkheadPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * The number of calls currently holding a permit.
+   */
+  public int getActiveCalls() {
+    return policy.getMaxConcurrentCalls() - permits.availablePermits();
+  }
+
+  /**
+   * The number of calls currently waiting for a permit.
+   */
+  public int getWaitingCalls() {
+    return waitingCalls.get();
+  }
+
+  /**
+   * The number of calls which got a permit and completed, successfully or not.
+   */
+  public long getCompletedCalls() {
+    return completedCalls.sum();
+  }
+
+  /**
+   * The number of calls rejected because no permit was available.
+   */
+  public long getRejectedCalls() {
+    return rejectedCalls.sum();
+  }
+}
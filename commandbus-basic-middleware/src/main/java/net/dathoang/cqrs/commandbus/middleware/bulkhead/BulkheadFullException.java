@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown when a message is rejected because its bulkhead has no free permit.
+ */
+public class BulkheadFullException extends CommandBusException {
+  public BulkheadFullException(Object group, int maxConcurrentCalls) {
+    super(String.format("The bulkhead of %s is full (%d concurrent calls)",
+        group instanceof Class ? ((Class<?>) group).getName() : group, maxConcurrentCalls));
+  }
+}
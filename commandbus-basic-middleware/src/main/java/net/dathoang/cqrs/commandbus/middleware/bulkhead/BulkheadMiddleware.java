@@ -0,0 +1,91 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Limits the number of messages handled concurrently per group, so that a slow message type
+ * can't take every dispatching thread. Each group has a {@link Bulkhead} of permits, configured
+ * by a {@link BulkheadPolicy}. By default, every message class is a group of its own.
+ */
+public class BulkheadMiddleware implements Middleware {
+  private final BulkheadPolicy defaultPolicy;
+  private final Function<Class<?>, Object> groupResolver;
+  private final Map<Object, BulkheadPolicy> policyByGroupMap;
+  private final ConcurrentMap<Object, Bulkhead> bulkheadByGroupMap = new ConcurrentHashMap<>();
+  private final ClassValue<Object> groupByMessageClass = new ClassValue<Object>() {
+    @Override
+    protected Object computeValue(Class<?> messageClass) {
+      return groupResolver.apply(messageClass);
+    }
+  };
+
+  /**
+   * Create a middleware giving a bulkhead to each message class, all with the same policy.
+   */
+  public BulkheadMiddleware(BulkheadPolicy defaultPolicy) {
+    this(defaultPolicy, messageClass -> messageClass, Collections.emptyMap());
+  }
+
+  /**
+   * Create a middleware giving a bulkhead to each group of message classes.
+   *
+   * @param defaultPolicy the policy of the groups without a policy of their own, or null to not
+   *     limit these groups
+   * @param groupResolver returns the group of a message class, or null to not limit the class
+   * @param policyByGroupMap the policies of specific groups
+   */
+  public BulkheadMiddleware(BulkheadPolicy defaultPolicy,
+      Function<Class<?>, Object> groupResolver, Map<Object, BulkheadPolicy> policyByGroupMap) {
+    this.defaultPolicy = defaultPolicy;
+    this.groupResolver = groupResolver;
+    this.policyByGroupMap = new HashMap<>(policyByGroupMap);
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    Bulkhead bulkhead = getBulkhead(message.getClass());
+    if (bulkhead == null) {
+      return next.call(message);
+    }
+
+    bulkhead.acquire();
+    try {
+      return next.call(message);
+    } finally {
+      bulkhead.release();
+    }
+  }
+
+  /**
+   * Get the bulkheads created so far, by group.
+   */
+  public Map<Object, Bulkhead> getBulkheads() {
+    return Collections.unmodifiableMap(bulkheadByGroupMap);
+  }
+
+  private Bulkhead getBulkhead(Class<?> messageClass) {
+    Object group = groupByMessageClass.get(messageClass);
+    if (group == null) {
+      return null;
+    }
+    Bulkhead bulkhead = bulkheadByGroupMap.get(group);
+    if (bulkhead != null) {
+      return bulkhead;
+    }
+
+    BulkheadPolicy policy = policyByGroupMap.getOrDefault(group, defaultPolicy);
+    if (policy == null) {
+      return null;
+    }
+    return bulkheadByGroupMap.computeIfAbsent(group, g -> new Bulkhead(g, policy));
+  }
+}
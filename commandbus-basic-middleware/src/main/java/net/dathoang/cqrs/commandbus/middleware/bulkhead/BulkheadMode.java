@@ -0,0 +1,22 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+/**
+ * What a bulkhead does with a call when all its permits are in use.
+ */
+public enum BulkheadMode {
+  /**
+   * Reject the call right away.
+   */
+  REJECT,
+
+  /**
+   * Let the call wait for a permit, in arrival order, as long as fewer than the queue capacity
+   * are already waiting. Reject it otherwise.
+   */
+  QUEUE,
+
+  /**
+   * Let the call wait for a permit up to a timeout, and reject it if none was freed in time.
+   */
+  WAIT
+}
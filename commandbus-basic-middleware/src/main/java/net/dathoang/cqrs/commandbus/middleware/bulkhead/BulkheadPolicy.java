@@ -0,0 +1,62 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The concurrency limit of a bulkhead, and what it does with the calls beyond this limit.
+ */
+public final class BulkheadPolicy {
+  private final int maxConcurrentCalls;
+  private final BulkheadMode mode;
+  private final int maxQueuedCalls;
+  private final long maxWaitNanos;
+
+  private BulkheadPolicy(int maxConcurrentCalls, BulkheadMode mode, int maxQueuedCalls,
+      long maxWaitNanos) {
+    if (maxConcurrentCalls <= 0) {
+      throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+    }
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    this.mode = mode;
+    this.maxQueuedCalls = maxQueuedCalls;
+    this.maxWaitNanos = maxWaitNanos;
+  }
+
+  /**
+   * Reject the calls beyond {@code maxConcurrentCalls} right away.
+   */
+  public static BulkheadPolicy reject(int maxConcurrentCalls) {
+    return new BulkheadPolicy(maxConcurrentCalls, BulkheadMode.REJECT, 0, 0);
+  }
+
+  /**
+   * Queue up to {@code maxQueuedCalls} calls beyond {@code maxConcurrentCalls}, and reject the
+   * others.
+   */
+  public static BulkheadPolicy queue(int maxConcurrentCalls, int maxQueuedCalls) {
+    return new BulkheadPolicy(maxConcurrentCalls, BulkheadMode.QUEUE, maxQueuedCalls, 0);
+  }
+
+  /**
+   * Let the calls beyond {@code maxConcurrentCalls} wait for a permit up to the timeout.
+   */
+  public static BulkheadPolicy waitFor(int maxConcurrentCalls, long timeout, TimeUnit unit) {
+    return new BulkheadPolicy(maxConcurrentCalls, BulkheadMode.WAIT, 0, unit.toNanos(timeout));
+  }
+
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls;
+  }
+
+  public BulkheadMode getMode() {
+    return mode;
+  }
+
+  public int getMaxQueuedCalls() {
+    return maxQueuedCalls;
+  }
+
+  public long getMaxWaitNanos() {
+    return maxWaitNanos;
+  }
+}
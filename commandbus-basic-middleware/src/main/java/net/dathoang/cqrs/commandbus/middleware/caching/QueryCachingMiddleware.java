@@ -0,0 +1,203 @@
+package net.dathoang.cqrs.commandbus.middleware.caching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.InvalidatesQueries;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.CachedQuery;
+import net.dathoang.cqrs.commandbus.query.Query;
+
+/**
+ * Caches the results of the query classes annotated with {@link CachedQuery}, keyed on query
+ * equality, and evicts them after the successful handling of the commands annotated with
+ * {@link InvalidatesQueries}. To get both behaviors, register the same instance in the middleware
+ * pipelines of the query bus and of the command bus.
+ *
+ * <p>Each query class has its own cache region bounded by the size, TTL and weight limits of its
+ * annotation. A result computed while its region was being invalidated is returned to the caller
+ * but not cached, so that a stale result can't outlive the invalidation.
+ */
+public class QueryCachingMiddleware implements Middleware {
+  private static final ClassValue<CachedQuery> CACHED_QUERY_ANNOTATIONS =
+      new ClassValue<CachedQuery>() {
+        @Override
+        protected CachedQuery computeValue(Class<?> queryClass) {
+          return queryClass.getAnnotation(CachedQuery.class);
+        }
+      };
+
+  private static final ClassValue<List<Class<?>>> INVALIDATED_QUERY_CLASSES =
+      new ClassValue<List<Class<?>>>() {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> commandClass) {
+          InvalidatesQueries annotation = commandClass.getAnnotation(InvalidatesQueries.class);
+          if (annotation == null) {
+            return Collections.emptyList();
+          }
+          List<Class<?>> queryClasses = new ArrayList<>();
+          Collections.addAll(queryClasses, annotation.value());
+          return Collections.unmodifiableList(queryClasses);
+        }
+      };
+
+  private final ConcurrentMap<Class<?>, CacheRegion> regionByQueryClassMap =
+      new ConcurrentHashMap<>();
+  private final ResultWeigher weigher;
+  private final LongSupplier nanoClock;
+
+  /**
+   * Create a middleware which weighs every result as 1.
+   */
+  public QueryCachingMiddleware() {
+    this((query, result) -> 1);
+  }
+
+  public QueryCachingMiddleware(ResultWeigher weigher) {
+    this(weigher, System::nanoTime);
+  }
+
+  QueryCachingMiddleware(ResultWeigher weigher, LongSupplier nanoClock) {
+    this.weigher = weigher;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    if (message instanceof Query<?>) {
+      CachedQuery annotation = CACHED_QUERY_ANNOTATIONS.get(message.getClass());
+      if (annotation != null) {
+        return handleCachedQuery((Query<R>) message, next, annotation);
+      }
+    } else if (message instanceof Command<?>) {
+      R result = next.call(message);
+      invalidateRegions(INVALIDATED_QUERY_CLASSES.get(message.getClass()));
+      return result;
+    }
+    return next.call(message);
+  }
+
+  /**
+   * Evict all the cached results of a query class.
+   */
+  public void invalidate(Class<? extends Query> queryClass) {
+    CacheRegion region = regionByQueryClassMap.get(queryClass);
+    if (region != null) {
+      region.invalidateAll();
+    }
+  }
+
+  /**
+   * Evict the cached results of every query class.
+   */
+  public void invalidateAll() {
+    for (CacheRegion region : regionByQueryClassMap.values()) {
+      region.invalidateAll();
+    }
+  }
+
+  private void invalidateRegions(List<Class<?>> queryClasses) {
+    for (Class<?> queryClass : queryClasses) {
+      CacheRegion region = regionByQueryClassMap.get(queryClass);
+      if (region != null) {
+        region.invalidateAll();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <R> R handleCachedQuery(Query<R> query, NextMiddlewareFunction<Message<R>, R> next,
+      CachedQuery annotation) throws Exception {
+    CacheRegion region = regionByQueryClassMap.computeIfAbsent(query.getClass(),
+        queryClass -> new CacheRegion(annotation));
+    CacheEntry cachedEntry = region.get(query, nanoClock.getAsLong());
+    if (cachedEntry != null) {
+      return (R) cachedEntry.result;
+    }
+
+    long generation = region.getGeneration();
+    R result = next.call(query);
+    region.put(query, result, weigher.weigh(query, result), nanoClock.getAsLong(), generation);
+    return result;
+  }
+
+  private static final class CacheEntry {
+    private final Object result;
+    private final long weight;
+    private final long expiresAtNanos;
+
+    CacheEntry(Object result, long weight, long expiresAtNanos) {
+      this.result = result;
+      this.weight = weight;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  private static final class CacheRegion {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long maxWeight;
+    private final LinkedHashMap<Message<?>, CacheEntry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private long generation;
+
+    CacheRegion(CachedQuery annotation) {
+      this.maxEntries = annotation.maxEntries();
+      this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(annotation.ttlMillis());
+      this.maxWeight = annotation.maxWeight();
+    }
+
+    synchronized CacheEntry get(Message<?> query, long nowNanos) {
+      CacheEntry entry = entries.get(query);
+      if (entry != null && ttlNanos > 0 && nowNanos - entry.expiresAtNanos >= 0) {
+        entries.remove(query);
+        totalWeight -= entry.weight;
+        return null;
+      }
+      return entry;
+    }
+
+    synchronized long getGeneration() {
+      return generation;
+    }
+
+    synchronized void put(Message<?> query, Object result, long weight, long nowNanos,
+        long loadGeneration) {
+      if (loadGeneration != generation || maxEntries <= 0
+          || (maxWeight > 0 && weight > maxWeight)) {
+        return;
+      }
+
+      CacheEntry previousEntry = entries.put(query,
+          new CacheEntry(result, weight, nowNanos + ttlNanos));
+      if (previousEntry != null) {
+        totalWeight -= previousEntry.weight;
+      }
+      totalWeight += weight;
+
+      Iterator<Map.Entry<Message<?>, CacheEntry>> iterator = entries.entrySet().iterator();
+      while (entries.size() > maxEntries || (maxWeight > 0 && totalWeight > maxWeight)) {
+        totalWeight -= iterator.next().getValue().weight;
+        iterator.remove();
+      }
+    }
+
+    synchronized void invalidateAll() {
+      entries.clear();
+      totalWeight = 0;
+      generation++;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package net.dathoang.cqrs.commandbus.middleware.caching;
+
+import net.dathoang.cqrs.commandbus.query.Query;
+
+/**
+ * Measures the weight of a cached query result, used to enforce
+ * {@link net.dathoang.cqrs.commandbus.query.CachedQuery#maxWeight()}.
+ */
+@FunctionalInterface
+public interface ResultWeigher {
+  long weigh(Query<?> query, Object result);
+}
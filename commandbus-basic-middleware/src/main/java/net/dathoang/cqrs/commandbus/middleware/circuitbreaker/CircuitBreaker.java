@@ -0,0 +1,166 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The circuit breaker of a message class. Its whole state is an immutable {@link Phase} swapped
+ * with compare-and-set, each phase owning its own sliding window of call outcomes, so that the
+ * outcomes of the calls started in a previous phase are ignored.
+ */
+public final class CircuitBreaker {
+  private static final int SUCCESS = 1;
+  private static final int FAILURE = 2;
+  private static final int SLOW = 4;
+
+  private final Class<?> messageClass;
+  private final CircuitBreakerPolicy policy;
+  private final AtomicReference<Phase> phase;
+
+  CircuitBreaker(Class<?> messageClass, CircuitBreakerPolicy policy) {
+    this.messageClass = messageClass;
+    this.policy = policy;
+    this.phase = new AtomicReference<>(closedPhase());
+  }
+
+  public CircuitBreakerState getState() {
+    return phase.get().state;
+  }
+
+  /**
+   * The percentage of failed calls in the sliding window of the current state, or -1 when fewer
+   * calls than needed to evaluate it have been recorded.
+   */
+  public float getFailureRate() {
+    return phase.get().window.getRate(FAILURE, policy.getMinimumCalls());
+  }
+
+  /**
+   * The percentage of slow calls in the sliding window of the current state, or -1 when fewer
+   * calls than needed to evaluate it have been recorded.
+   */
+  public float getSlowCallRate() {
+    return phase.get().window.getRate(SLOW, policy.getMinimumCalls());
+  }
+
+  /**
+   * Get the permission to make a call.
+   *
+   * @return the phase the outcome of the call must be recorded in
+   * @throws CircuitBreakerOpenException when the call isn't permitted
+   */
+  Object acquirePermission(long nowNanos) {
+    while (true) {
+      Phase currentPhase = phase.get();
+      switch (currentPhase.state) {
+        case CLOSED:
+          return currentPhase;
+        case OPEN:
+          if (nowNanos - currentPhase.openedAtNanos < policy.getOpenStateDurationNanos()) {
+            throw new CircuitBreakerOpenException(messageClass, CircuitBreakerState.OPEN);
+          }
+          phase.compareAndSet(currentPhase, halfOpenPhase());
+          break;
+        default:
+          if (currentPhase.halfOpenPermits.getAndDecrement() > 0) {
+            return currentPhase;
+          }
+          throw new CircuitBreakerOpenException(messageClass, CircuitBreakerState.HALF_OPEN);
+      }
+    }
+  }
+
+  void onResult(Object permission, long durationNanos, boolean isFailure, long nowNanos) {
+    Phase callPhase = (Phase) permission;
+    if (phase.get() != callPhase) {
+      return;
+    }
+
+    int outcome = (isFailure ? FAILURE : SUCCESS)
+        | (durationNanos > policy.getSlowCallDurationNanos() ? SLOW : 0);
+    callPhase.window.record(outcome);
+
+    int minimumCalls = callPhase.state == CircuitBreakerState.CLOSED
+        ? policy.getMinimumCalls() : policy.getPermittedCallsInHalfOpenState();
+    float failureRate = callPhase.window.getRate(FAILURE, minimumCalls);
+    float slowCallRate = callPhase.window.getRate(SLOW, minimumCalls);
+    if (failureRate < 0) {
+      return;
+    }
+
+    if (failureRate >= policy.getFailureRateThreshold()
+        || slowCallRate >= policy.getSlowCallRateThreshold()) {
+      phase.compareAndSet(callPhase, openPhase(nowNanos));
+    } else if (callPhase.state == CircuitBreakerState.HALF_OPEN) {
+      phase.compareAndSet(callPhase, closedPhase());
+    }
+  }
+
+  private Phase closedPhase() {
+    return new Phase(CircuitBreakerState.CLOSED, 0, policy.getSlidingWindowSize(), 0);
+  }
+
+  private Phase openPhase(long nowNanos) {
+    return new Phase(CircuitBreakerState.OPEN, nowNanos, 1, 0);
+  }
+
+  private Phase halfOpenPhase() {
+    int permittedCalls = policy.getPermittedCallsInHalfOpenState();
+    return new Phase(CircuitBreakerState.HALF_OPEN, 0, permittedCalls, permittedCalls);
+  }
+
+  private static final class Phase {
+    private final CircuitBreakerState state;
+    private final long openedAtNanos;
+    private final SlidingWindow window;
+    private final AtomicInteger halfOpenPermits;
+
+    Phase(CircuitBreakerState state, long openedAtNanos, int windowSize, int halfOpenPermits) {
+      this.state = state;
+      this.openedAtNanos = openedAtNanos;
+      this.window = new SlidingWindow(windowSize);
+      this.halfOpenPermits = new AtomicInteger(halfOpenPermits);
+    }
+  }
+
+  /**
+   * A ring of the outcomes of the last calls, with counters kept in sync by applying the
+   * difference between the outcome written to a slot and the outcome it replaced.
+   */
+  private static final class SlidingWindow {
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong nextIndex = new AtomicLong();
+    private final AtomicInteger recordedCalls = new AtomicInteger();
+    private final AtomicInteger failedCalls = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    SlidingWindow(int size) {
+      this.outcomes = new AtomicIntegerArray(size);
+    }
+
+    void record(int outcome) {
+      int slot = (int) (nextIndex.getAndIncrement() % outcomes.length());
+      int replacedOutcome = outcomes.getAndSet(slot, outcome);
+      if (replacedOutcome == 0) {
+        recordedCalls.incrementAndGet();
+      }
+      failedCalls.addAndGet(count(outcome, FAILURE) - count(replacedOutcome, FAILURE));
+      slowCalls.addAndGet(count(outcome, SLOW) - count(replacedOutcome, SLOW));
+    }
+
+    float getRate(int outcomeFlag, int minimumCalls) {
+      int recorded = recordedCalls.get();
+      if (recorded < minimumCalls) {
+        return -1;
+      }
+      int matching = outcomeFlag == FAILURE ? failedCalls.get() : slowCalls.get();
+      return matching * 100f / recorded;
+    }
+
+    private static int count(int outcome, int outcomeFlag) {
+      return (outcome & outcomeFlag) != 0 ? 1 : 0;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Gives each message class a {@link CircuitBreaker}, which opens when too many of the recent
+ * calls failed or were slow, so that the next messages of the class fail fast with a
+ * {@link CircuitBreakerOpenException} instead of waiting for a degraded dependency. After the
+ * open state duration, a few probe calls decide whether it closes again.
+ */
+public class CircuitBreakerMiddleware implements Middleware {
+  private final CircuitBreakerPolicy policy;
+  private final Predicate<Exception> failurePredicate;
+  private final LongSupplier nanoClock;
+  private final ConcurrentMap<Class<?>, CircuitBreaker> circuitBreakerByMessageClassMap =
+      new ConcurrentHashMap<>();
+  private final ClassValue<CircuitBreaker> circuitBreakers = new ClassValue<CircuitBreaker>() {
+    @Override
+    protected CircuitBreaker computeValue(Class<?> messageClass) {
+      return circuitBreakerByMessageClassMap.computeIfAbsent(messageClass,
+          cls -> new CircuitBreaker(cls, policy));
+    }
+  };
+
+  /**
+   * Create a middleware counting every exception as a failure.
+   */
+  public CircuitBreakerMiddleware(CircuitBreakerPolicy policy) {
+    this(policy, ex -> true);
+  }
+
+  /**
+   * Create a middleware counting the exceptions matching the predicate as failures. The other
+   * exceptions count as successful calls.
+   */
+  public CircuitBreakerMiddleware(CircuitBreakerPolicy policy,
+      Predicate<Exception> failurePredicate) {
+    this(policy, failurePredicate, System::nanoTime);
+  }
+
+  CircuitBreakerMiddleware(CircuitBreakerPolicy policy, Predicate<Exception> failurePredicate,
+      LongSupplier nanoClock) {
+    this.policy = policy;
+    this.failurePredicate = failurePredicate;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(message.getClass());
+    long startNanos = nanoClock.getAsLong();
+    Object permission = circuitBreaker.acquirePermission(startNanos);
+    boolean isFailure = true;
+    try {
+      R result = next.call(message);
+      isFailure = false;
+      return result;
+    } catch (Exception ex) {
+      isFailure = failurePredicate.test(ex);
+      throw ex;
+    } finally {
+      long endNanos = nanoClock.getAsLong();
+      circuitBreaker.onResult(permission, endNanos - startNanos, isFailure, endNanos);
+    }
+  }
+
+  /**
+   * Get the circuit breakers created so far, by message class.
+   */
+  public Map<Class<?>, CircuitBreaker> getCircuitBreakers() {
+    return Collections.unmodifiableMap(circuitBreakerByMessageClassMap);
+  }
+}
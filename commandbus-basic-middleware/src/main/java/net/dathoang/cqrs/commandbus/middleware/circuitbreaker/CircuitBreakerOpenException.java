@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown without calling the handler when the circuit breaker of a message class is open.
+ */
+public class CircuitBreakerOpenException extends CommandBusException {
+  public CircuitBreakerOpenException(Class<?> messageClass, CircuitBreakerState state) {
+    super(String.format("The circuit breaker of %s is %s", messageClass.getName(),
+        state.name().toLowerCase().replace('_', '-')));
+  }
+}
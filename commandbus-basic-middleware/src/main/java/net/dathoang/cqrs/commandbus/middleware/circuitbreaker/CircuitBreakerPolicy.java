@@ -0,0 +1,80 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When a circuit breaker opens, and how it recovers.
+ */
+public final class CircuitBreakerPolicy {
+  private final int slidingWindowSize;
+  private final int minimumCalls;
+  private final float failureRateThreshold;
+  private final long slowCallDurationNanos;
+  private final float slowCallRateThreshold;
+  private final long openStateDurationNanos;
+  private final int permittedCallsInHalfOpenState;
+
+  /**
+   * Create a policy.
+   *
+   * @param slidingWindowSize the number of most recent calls the rates are computed on
+   * @param minimumCalls the number of calls to record before the rates are evaluated
+   * @param failureRateThreshold the percentage of failed calls opening the circuit breaker
+   * @param slowCallDuration the duration above which a call is slow
+   * @param slowCallRateThreshold the percentage of slow calls opening the circuit breaker
+   * @param openStateDuration how long the circuit breaker stays open before probing
+   * @param permittedCallsInHalfOpenState the number of probe calls
+   * @param unit the unit of the durations
+   */
+  public CircuitBreakerPolicy(int slidingWindowSize, int minimumCalls, float failureRateThreshold,
+      long slowCallDuration, float slowCallRateThreshold, long openStateDuration,
+      int permittedCallsInHalfOpenState, TimeUnit unit) {
+    if (slidingWindowSize <= 0 || permittedCallsInHalfOpenState <= 0) {
+      throw new IllegalArgumentException(
+          "slidingWindowSize and permittedCallsInHalfOpenState must be positive");
+    }
+    this.slidingWindowSize = slidingWindowSize;
+    this.minimumCalls = Math.min(Math.max(1, minimumCalls), slidingWindowSize);
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallDurationNanos = unit.toNanos(slowCallDuration);
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.openStateDurationNanos = unit.toNanos(openStateDuration);
+    this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+  }
+
+  /**
+   * A policy opening the circuit breaker for 30 seconds when half of the last 100 calls failed or
+   * took more than 5 seconds, once at least 20 calls have been recorded, and probing with 5 calls.
+   */
+  public static CircuitBreakerPolicy defaultPolicy() {
+    return new CircuitBreakerPolicy(100, 20, 50, 5000, 50, 30000, 5, TimeUnit.MILLISECONDS);
+  }
+
+  int getSlidingWindowSize() {
+    return slidingWindowSize;
+  }
+
+  int getMinimumCalls() {
+    return minimumCalls;
+  }
+
+  float getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  long getSlowCallDurationNanos() {
+    return slowCallDurationNanos;
+  }
+
+  float getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  long getOpenStateDurationNanos() {
+    return openStateDurationNanos;
+  }
+
+  int getPermittedCallsInHalfOpenState() {
+    return permittedCallsInHalfOpenState;
+  }
+}
@@ -0,0 +1,19 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+public enum CircuitBreakerState {
+  /**
+   * Calls go through, and their outcomes are recorded in the sliding window.
+   */
+  CLOSED,
+
+  /**
+   * Calls are rejected until the open state duration has elapsed.
+   */
+  OPEN,
+
+  /**
+   * A limited number of probe calls go through, and their outcomes decide whether the circuit
+   * breaker closes or opens again. The other calls are rejected.
+   */
+  HALF_OPEN
+}
@@ -0,0 +1,64 @@
+package net.dathoang.cqrs.commandbus.middleware.coalescing;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.Query;
+
+/**
+ * Coalesces concurrent dispatches of equal queries into a single execution: the first caller
+ * runs the rest of the pipeline, and every caller dispatching an equal query (according to
+ * {@link Object#equals(Object)} and {@link Object#hashCode()}) while it is running waits for it
+ * and gets the same result, or the same exception.
+ *
+ * <p>Only {@link Query}s are coalesced, other messages are passed to the next middleware as is.
+ * Queries which don't override {@code equals} are never coalesced. Results aren't kept once the
+ * execution completes, so a query dispatched afterwards runs again.
+ */
+public class QueryCoalescingMiddleware implements Middleware {
+  private final ConcurrentMap<Message<?>, CompletableFuture<Object>> inFlightExecutions =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    if (!(message instanceof Query<?>)) {
+      return next.call(message);
+    }
+
+    CompletableFuture<Object> execution = new CompletableFuture<>();
+    CompletableFuture<Object> inFlightExecution =
+        inFlightExecutions.putIfAbsent(message, execution);
+    if (inFlightExecution != null) {
+      return awaitResult(inFlightExecution);
+    }
+
+    try {
+      R result = next.call(message);
+      inFlightExecutions.remove(message, execution);
+      execution.complete(result);
+      return result;
+    } catch (Exception | Error ex) {
+      inFlightExecutions.remove(message, execution);
+      execution.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> R awaitResult(CompletableFuture<Object> execution) throws Exception {
+    try {
+      return (R) execution.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (Exception) cause;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package net.dathoang.cqrs.commandbus.middleware.deadline;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dathoang.cqrs.commandbus.exceptions.DeadlineExceededException;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Enforces the deadline of the {@link DispatchContext}: messages whose deadline has already
+ * passed are abandoned with a {@link DeadlineExceededException} before reaching the rest of the
+ * pipeline. A default timeout can be given to the messages dispatched without a deadline.
+ *
+ * <p>When created with a scheduler, the middleware also interrupts the thread handling a message
+ * once its deadline passes. If the interrupted handler fails, a {@link DeadlineExceededException}
+ * is thrown instead of its exception. If it completes anyway, its result is returned. Only use it
+ * with handlers which react sanely to interrupts.
+ */
+public class DeadlineMiddleware implements Middleware {
+  private static final int RUNNING = 0;
+  private static final int COMPLETED = 1;
+  private static final int INTERRUPTING = 2;
+  private static final int INTERRUPTED = 3;
+
+  private final long defaultTimeoutNanos;
+  private final ScheduledExecutorService interruptScheduler;
+
+  /**
+   * Create a middleware abandoning the expired messages, without default timeout.
+   */
+  public DeadlineMiddleware() {
+    this(0, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Create a middleware abandoning the expired messages, with a default timeout for the messages
+   * dispatched without deadline, or zero for none.
+   */
+  public DeadlineMiddleware(long defaultTimeout, TimeUnit unit) {
+    this(defaultTimeout, unit, null);
+  }
+
+  /**
+   * Create a middleware abandoning the expired messages, and interrupting the handling of the
+   * messages whose deadline passes with the scheduler.
+   */
+  public DeadlineMiddleware(long defaultTimeout, TimeUnit unit,
+      ScheduledExecutorService interruptScheduler) {
+    this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+    this.interruptScheduler = interruptScheduler;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    DispatchContext context = DispatchContext.current();
+    if (!context.hasDeadline()) {
+      if (defaultTimeoutNanos <= 0) {
+        return next.call(message);
+      }
+      try (DispatchContext.Scope scope =
+          context.withTimeout(defaultTimeoutNanos, TimeUnit.NANOSECONDS).attach()) {
+        return handleBeforeDeadline(message, next, DispatchContext.current());
+      }
+    }
+    return handleBeforeDeadline(message, next, context);
+  }
+
+  private <R> R handleBeforeDeadline(Message<R> message,
+      NextMiddlewareFunction<Message<R>, R> next, DispatchContext context) throws Exception {
+    long remainingNanos = context.remainingNanos();
+    if (remainingNanos <= 0) {
+      throw new DeadlineExceededException(message.getClass());
+    }
+    if (interruptScheduler == null) {
+      return next.call(message);
+    }
+
+    Thread handlingThread = Thread.currentThread();
+    AtomicInteger state = new AtomicInteger(RUNNING);
+    ScheduledFuture<?> interruption = interruptScheduler.schedule(() -> {
+      if (state.compareAndSet(RUNNING, INTERRUPTING)) {
+        handlingThread.interrupt();
+        state.set(INTERRUPTED);
+      }
+    }, remainingNanos, TimeUnit.NANOSECONDS);
+
+    R result;
+    try {
+      result = next.call(message);
+    } catch (Exception ex) {
+      if (!state.compareAndSet(RUNNING, COMPLETED)) {
+        throw deadlineExceeded(message, ex);
+      }
+      throw ex;
+    } finally {
+      interruption.cancel(false);
+      // Whatever the outcome, errors included, the interrupt raised by this middleware must not
+      // leak to the caller. A handler which completed despite it still returns a valid result.
+      if (state.get() != COMPLETED && !state.compareAndSet(RUNNING, COMPLETED)) {
+        clearInterrupt(state);
+      }
+    }
+    return result;
+  }
+
+  private static DeadlineExceededException deadlineExceeded(Message<?> message,
+      Exception cause) {
+    DeadlineExceededException exception = new DeadlineExceededException(message.getClass());
+    exception.addSuppressed(cause);
+    return exception;
+  }
+
+  /**
+   * Clear the interrupt raised by this middleware so that it doesn't leak to the caller, once
+   * the scheduler thread has raised it: clearing it before would leave the interrupt to land on
+   * the thread after the dispatch returned.
+   */
+  private static void clearInterrupt(AtomicInteger state) {
+    while (state.get() == INTERRUPTING) {
+      Thread.yield();
+    }
+    Thread.interrupted();
+  }
+}
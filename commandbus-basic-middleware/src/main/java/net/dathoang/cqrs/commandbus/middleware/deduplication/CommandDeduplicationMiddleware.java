@@ -0,0 +1,99 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.IdempotencyKey;
+import net.dathoang.cqrs.commandbus.message.AnnotatedKeyExtractor;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Lets only the first of the commands sharing the same {@link IdempotencyKey} reach the rest of
+ * the pipeline. Its result is kept in a {@link DeduplicationStore}, and the duplicates get it back
+ * without being handled again. Duplicates dispatched while the first command is still being
+ * handled wait for it.
+ *
+ * <p>Failed commands aren't remembered, so that they can be retried. Commands without an
+ * idempotency key, and messages which aren't commands, are passed to the next middleware as is.
+ */
+public class CommandDeduplicationMiddleware implements Middleware {
+  private static final int DEFAULT_MAX_ENTRIES = 10_000;
+  private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  private static final AnnotatedKeyExtractor IDEMPOTENCY_KEY_EXTRACTOR =
+      new AnnotatedKeyExtractor(IdempotencyKey.class);
+
+  private final DeduplicationStore store;
+  private final ConcurrentMap<DeduplicationKey, CompletableFuture<Object>> inFlightExecutions =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Create a middleware which remembers up to 10,000 results for 10 minutes, in memory.
+   */
+  public CommandDeduplicationMiddleware() {
+    this(new InMemoryDeduplicationStore(DEFAULT_MAX_ENTRIES, DEFAULT_WINDOW_MILLIS));
+  }
+
+  public CommandDeduplicationMiddleware(DeduplicationStore store) {
+    this.store = store;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    if (!(message instanceof Command<?>)) {
+      return next.call(message);
+    }
+    Object idempotencyKey = IDEMPOTENCY_KEY_EXTRACTOR.extract(message);
+    if (idempotencyKey == null) {
+      return next.call(message);
+    }
+
+    DeduplicationKey key = new DeduplicationKey(message.getClass().getName(), idempotencyKey);
+    StoredResult storedResult = store.find(key);
+    if (storedResult != null) {
+      return (R) storedResult.getResult();
+    }
+
+    CompletableFuture<Object> execution = new CompletableFuture<>();
+    CompletableFuture<Object> inFlightExecution = inFlightExecutions.putIfAbsent(key, execution);
+    if (inFlightExecution != null) {
+      return awaitResult(inFlightExecution);
+    }
+
+    try {
+      // The first command may have completed between the lookup and the registration above
+      storedResult = store.find(key);
+      R result = storedResult != null ? (R) storedResult.getResult() : next.call(message);
+      if (storedResult == null) {
+        store.save(key, result);
+      }
+      inFlightExecutions.remove(key, execution);
+      execution.complete(result);
+      return result;
+    } catch (Exception | Error ex) {
+      inFlightExecutions.remove(key, execution);
+      execution.completeExceptionally(ex);
+      throw ex;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> R awaitResult(CompletableFuture<Object> execution) throws Exception {
+    try {
+      return (R) execution.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (Exception) cause;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Scopes an idempotency id to its command class, so that commands of different classes never
+ * share results.
+ */
+final class DeduplicationKey implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String commandClassName;
+  private final Object idempotencyKey;
+
+  DeduplicationKey(String commandClassName, Object idempotencyKey) {
+    this.commandClassName = commandClassName;
+    this.idempotencyKey = idempotencyKey;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof DeduplicationKey)) {
+      return false;
+    }
+    DeduplicationKey that = (DeduplicationKey) o;
+    return commandClassName.equals(that.commandClassName)
+        && idempotencyKey.equals(that.idempotencyKey);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(commandClassName, idempotencyKey);
+  }
+
+  @Override
+  public String toString() {
+    return commandClassName + "#" + idempotencyKey;
+  }
+}
@@ -0,0 +1,20 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+/**
+ * Keeps the results of the handled commands, keyed by their idempotency id, for as long as
+ * duplicates of these commands are expected.
+ */
+public interface DeduplicationStore {
+  /**
+   * Find the result of the command handled with the given key.
+   *
+   * @return the stored result, or null when no command was handled with this key, or when its
+   *     result isn't kept anymore
+   */
+  StoredResult find(Object key);
+
+  /**
+   * Keep the result of a command handled successfully.
+   */
+  void save(Object key, Object result);
+}
@@ -0,0 +1,204 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An {@link InMemoryDeduplicationStore} which also appends every saved result to a log file, so
+ * that the deduplication window survives restarts. When the store is opened, the results of the
+ * log still within the window are loaded back, and the log is compacted to only contain them. The
+ * log is compacted again each time it holds twice as many records as {@code maxEntries}.
+ *
+ * <p>Keys and results must be {@link java.io.Serializable}. The results which aren't are only
+ * kept in memory. Records are flushed to the operating system on every save but aren't forced to
+ * the disk, so a crash of the machine (not of the process) may lose the last ones.
+ *
+ * <p>Each record holds a CRC32 of its content. Loading stops at the first record which is partly
+ * written or corrupted, and the compaction which follows drops it and the records after it.
+ */
+public class FileDeduplicationStore implements DeduplicationStore, Closeable {
+  private static final Log log = LogFactory.getLog(FileDeduplicationStore.class);
+
+  // The time the result was saved at, the length of the payload and the CRC32
+  private static final int RECORD_HEADER_SIZE = 8 + 4 + 4;
+
+  private final Path file;
+  private final int maxEntries;
+  private final InMemoryDeduplicationStore memoryStore;
+  private final LongSupplier clock;
+  private DataOutputStream output;
+  private int recordCount;
+
+  public FileDeduplicationStore(Path file, int maxEntries, long windowMillis) throws IOException {
+    this(file, maxEntries, windowMillis, System::currentTimeMillis);
+  }
+
+  FileDeduplicationStore(Path file, int maxEntries, long windowMillis, LongSupplier clock)
+      throws IOException {
+    this.file = file;
+    this.maxEntries = maxEntries;
+    this.memoryStore = new InMemoryDeduplicationStore(maxEntries, windowMillis, clock);
+    this.clock = clock;
+    load();
+    compact();
+  }
+
+  @Override
+  public StoredResult find(Object key) {
+    return memoryStore.find(key);
+  }
+
+  @Override
+  public void save(Object key, Object result) {
+    long savedAtMillis = clock.getAsLong();
+    memoryStore.save(key, result, savedAtMillis);
+
+    byte[] payload;
+    try {
+      payload = serialize(key, result);
+    } catch (IOException ex) {
+      log.warn(String.format("Can't serialize the result of %s, it will only be kept in memory",
+          key), ex);
+      return;
+    }
+
+    try {
+      append(savedAtMillis, payload);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    output.close();
+  }
+
+  private synchronized void append(long savedAtMillis, byte[] payload) throws IOException {
+    writeRecord(output, savedAtMillis, payload);
+    output.flush();
+    if (++recordCount >= maxEntries * 2) {
+      compact();
+    }
+  }
+
+  private void load() throws IOException {
+    if (!Files.exists(file)) {
+      return;
+    }
+
+    long remainingBytes = Files.size(file);
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      while (remainingBytes > 0) {
+        long savedAtMillis = 0;
+        byte[] payload = null;
+        if (remainingBytes >= RECORD_HEADER_SIZE) {
+          savedAtMillis = input.readLong();
+          int payloadLength = input.readInt();
+          int checksum = input.readInt();
+          // The length is checked before allocating, as it may be corrupted too
+          if (payloadLength >= 0 && payloadLength <= remainingBytes - RECORD_HEADER_SIZE) {
+            payload = new byte[payloadLength];
+            input.readFully(payload);
+            if (checksum(savedAtMillis, payload) != checksum) {
+              payload = null;
+            }
+          }
+        }
+        if (payload == null) {
+          log.warn(String.format("Ignoring the last %d bytes of %s, which hold a record partly "
+              + "written before a crash, or corrupted", remainingBytes, file));
+          return;
+        }
+        remainingBytes -= RECORD_HEADER_SIZE + payload.length;
+
+        Object[] keyAndResult;
+        try {
+          keyAndResult = deserialize(payload);
+        } catch (IOException | ClassNotFoundException ex) {
+          log.warn(String.format("Skipping an unreadable record of %s", file), ex);
+          continue;
+        }
+        memoryStore.save(keyAndResult[0], keyAndResult[1], savedAtMillis);
+      }
+    }
+  }
+
+  private synchronized void compact() throws IOException {
+    if (output != null) {
+      output.close();
+    }
+
+    Path compactedFile = file.resolveSibling(file.getFileName() + ".compacting");
+    int[] compactedRecordCount = new int[1];
+    try (DataOutputStream compactedOutput = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(compactedFile)))) {
+      memoryStore.forEachEntry((key, result, savedAtMillis) -> {
+        byte[] payload;
+        try {
+          payload = serialize(key, result);
+        } catch (IOException ex) {
+          return;
+        }
+        writeRecord(compactedOutput, savedAtMillis, payload);
+        compactedRecordCount[0]++;
+      });
+    }
+    Files.move(compactedFile, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+
+    output = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(file, StandardOpenOption.APPEND)));
+    recordCount = compactedRecordCount[0];
+  }
+
+  private static void writeRecord(DataOutputStream output, long savedAtMillis, byte[] payload)
+      throws IOException {
+    output.writeLong(savedAtMillis);
+    output.writeInt(payload.length);
+    output.writeInt(checksum(savedAtMillis, payload));
+    output.write(payload);
+  }
+
+  private static int checksum(long savedAtMillis, byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(ByteBuffer.allocate(8).putLong(0, savedAtMillis).array());
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private static byte[] serialize(Object key, Object result) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+      objectOutput.writeObject(new Object[] {key, result});
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Object[] deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+    try (InputStream bytes = new ByteArrayInputStream(payload);
+        ObjectInputStream objectInput = new ObjectInputStream(bytes)) {
+      return (Object[]) objectInput.readObject();
+    }
+  }
+}
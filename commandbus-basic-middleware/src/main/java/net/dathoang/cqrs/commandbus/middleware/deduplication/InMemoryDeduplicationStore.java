@@ -0,0 +1,132 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the results of the commands handled during the last {@code windowMillis} milliseconds, up
+ * to {@code maxEntries} results. The keys are spread over independently locked stripes, each
+ * holding an equal share of the entries, so concurrent commands rarely contend. When a stripe is
+ * full its oldest result is evicted, even if it is still within the window.
+ */
+public class InMemoryDeduplicationStore implements DeduplicationStore {
+  private final Stripe[] stripes;
+  private final long windowMillis;
+  private final LongSupplier clock;
+
+  public InMemoryDeduplicationStore(int maxEntries, long windowMillis) {
+    this(maxEntries, windowMillis, System::currentTimeMillis);
+  }
+
+  InMemoryDeduplicationStore(int maxEntries, long windowMillis, LongSupplier clock) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+    int stripeCount = Integer.highestOneBit(
+        Math.min(maxEntries, Runtime.getRuntime().availableProcessors() * 4));
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe(maxEntries / stripeCount);
+    }
+    this.windowMillis = windowMillis;
+    this.clock = clock;
+  }
+
+  @Override
+  public StoredResult find(Object key) {
+    return stripeFor(key).find(key, clock.getAsLong());
+  }
+
+  @Override
+  public void save(Object key, Object result) {
+    save(key, result, clock.getAsLong());
+  }
+
+  void save(Object key, Object result, long savedAtMillis) {
+    stripeFor(key).save(key, new Entry(result, savedAtMillis), clock.getAsLong());
+  }
+
+  /**
+   * Pass every result still within the window to the consumer, oldest first within each stripe.
+   */
+  void forEachEntry(EntryConsumer consumer) throws IOException {
+    long nowMillis = clock.getAsLong();
+    for (Stripe stripe : stripes) {
+      for (Map.Entry<Object, Entry> entry : stripe.snapshot(nowMillis).entrySet()) {
+        consumer.accept(entry.getKey(), entry.getValue().result, entry.getValue().savedAtMillis);
+      }
+    }
+  }
+
+  boolean isWithinWindow(long savedAtMillis, long nowMillis) {
+    return nowMillis - savedAtMillis < windowMillis;
+  }
+
+  private Stripe stripeFor(Object key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return stripes[hash & (stripes.length - 1)];
+  }
+
+  @FunctionalInterface
+  interface EntryConsumer {
+    void accept(Object key, Object result, long savedAtMillis) throws IOException;
+  }
+
+  private static final class Entry {
+    private final Object result;
+    private final long savedAtMillis;
+
+    Entry(Object result, long savedAtMillis) {
+      this.result = result;
+      this.savedAtMillis = savedAtMillis;
+    }
+  }
+
+  private final class Stripe {
+    private final int capacity;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>();
+
+    Stripe(int capacity) {
+      this.capacity = capacity;
+    }
+
+    synchronized StoredResult find(Object key, long nowMillis) {
+      evictExpiredEntries(nowMillis);
+      Entry entry = entries.get(key);
+      if (entry == null || !isWithinWindow(entry.savedAtMillis, nowMillis)) {
+        return null;
+      }
+      return new StoredResult(entry.result);
+    }
+
+    synchronized void save(Object key, Entry entry, long nowMillis) {
+      evictExpiredEntries(nowMillis);
+      if (!isWithinWindow(entry.savedAtMillis, nowMillis)) {
+        return;
+      }
+      entries.remove(key);
+      entries.put(key, entry);
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (entries.size() > capacity) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+
+    synchronized Map<Object, Entry> snapshot(long nowMillis) {
+      evictExpiredEntries(nowMillis);
+      return new LinkedHashMap<>(entries);
+    }
+
+    private void evictExpiredEntries(long nowMillis) {
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (iterator.hasNext() && !isWithinWindow(iterator.next().savedAtMillis, nowMillis)) {
+        iterator.remove();
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+/**
+ * The result of an already handled command, as kept by a {@link DeduplicationStore}.
+ */
+public final class StoredResult {
+  private final Object result;
+
+  public StoredResult(Object result) {
+    this.result = result;
+  }
+
+  public Object getResult() {
+    return result;
+  }
+}
@@ -1,14 +1,16 @@
 package net.dathoang.cqrs.commandbus.middleware.logging;
 
+import java.util.List;
 import net.dathoang.cqrs.commandbus.command.Command;
 import net.dathoang.cqrs.commandbus.message.Message;
-import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.BatchMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.NextBatchMiddlewareFunction;
 import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
 import net.dathoang.cqrs.commandbus.query.Query;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-public class LoggingMiddleware implements Middleware {
+public class LoggingMiddleware implements BatchMiddleware {
   private static final Log log = LogFactory.getLog(LoggingMiddleware.class);
 
   @Override
@@ -30,6 +32,25 @@ public class LoggingMiddleware implements Middleware {
     }
   }
 
+  @Override
+  public <R> List<R> handleBatch(List<Message<R>> messages,
+      NextBatchMiddlewareFunction<Message<R>, R> next) throws Exception {
+    log.info(String.format("Received a batch of %d messages (%s), the batch has been dispatched",
+        messages.size(), messages.toString()));
+    try {
+      List<R> results = next.call(messages);
+
+      log.info(String.format("The batch of %d messages (%s) has been handled successfully with "
+          + "results: %s", messages.size(), messages.toString(), results.toString()));
+
+      return results;
+    } catch (Exception ex) {
+      log.error(String.format("Failed to handle the batch of %d messages (%s)",
+          messages.size(), messages.toString()), ex);
+      throw ex;
+    }
+  }
+
   private String getMessageType(Message<?> message) {
     if (message instanceof Command<?>) {
       return "command";
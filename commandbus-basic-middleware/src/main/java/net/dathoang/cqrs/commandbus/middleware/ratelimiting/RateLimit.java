@@ -0,0 +1,35 @@
+package net.dathoang.cqrs.commandbus.middleware.ratelimiting;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sustained rate of {@code permits} per {@code period}, with bursts of up to {@code burst}
+ * messages when the bucket is full.
+ */
+public final class RateLimit {
+  private final long emissionIntervalNanos;
+  private final long burstToleranceNanos;
+
+  /**
+   * Create a rate limit whose burst is the number of permits per period.
+   */
+  public RateLimit(int permits, long period, TimeUnit unit) {
+    this(permits, period, unit, permits);
+  }
+
+  public RateLimit(int permits, long period, TimeUnit unit, int burst) {
+    if (permits <= 0 || period <= 0 || burst <= 0) {
+      throw new IllegalArgumentException("permits, period and burst must be positive");
+    }
+    this.emissionIntervalNanos = Math.max(1, unit.toNanos(period) / permits);
+    this.burstToleranceNanos = emissionIntervalNanos * burst;
+  }
+
+  long getEmissionIntervalNanos() {
+    return emissionIntervalNanos;
+  }
+
+  long getBurstToleranceNanos() {
+    return burstToleranceNanos;
+  }
+}
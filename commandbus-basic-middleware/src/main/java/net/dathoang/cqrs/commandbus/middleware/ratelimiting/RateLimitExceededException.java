@@ -0,0 +1,15 @@
+package net.dathoang.cqrs.commandbus.middleware.ratelimiting;
+
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown when a message is rejected because its rate limit has been exceeded.
+ */
+public class RateLimitExceededException extends CommandBusException {
+  public RateLimitExceededException(Class<?> messageClass, Object tenantKey) {
+    super(tenantKey == null
+        ? String.format("The rate limit of %s has been exceeded", messageClass.getName())
+        : String.format("The rate limit of %s has been exceeded for %s",
+            messageClass.getName(), tenantKey));
+  }
+}
@@ -0,0 +1,179 @@
+package net.dathoang.cqrs.commandbus.middleware.ratelimiting;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Rejects the messages dispatched faster than their {@link RateLimit} with a
+ * {@link RateLimitExceededException}. Each message class has its own lock-free token bucket, or
+ * one token bucket per tenant when a tenant key resolver is given.
+ *
+ * <p>Without tenants, a message costs a class-keyed lookup and a compare-and-set. Once more than
+ * {@value #TENANT_SWEEP_THRESHOLD} tenants of a message class have a bucket, each new bucket
+ * also checks the next {@value #TENANT_SWEEP_SLICE} buckets of the message class in turn, and
+ * drops the ones which are full again, so the cleanup cost is bounded per message.
+ */
+public class RateLimitingMiddleware implements Middleware {
+  private static final int TENANT_SWEEP_THRESHOLD = 10_000;
+  private static final int TENANT_SWEEP_SLICE = 64;
+  private static final Object NO_TENANT = new Object();
+
+  private final RateLimit defaultRateLimit;
+  private final Map<Class<?>, RateLimit> rateLimitByMessageClassMap;
+  private final Function<Message<?>, Object> tenantKeyResolver;
+  private final LongSupplier nanoClock;
+  private final ClassValue<Limiter> limiterByMessageClass = new ClassValue<Limiter>() {
+    @Override
+    protected Limiter computeValue(Class<?> messageClass) {
+      return createLimiter(messageClass);
+    }
+  };
+
+  /**
+   * Create a middleware limiting every message class to the same rate.
+   */
+  public RateLimitingMiddleware(RateLimit defaultRateLimit) {
+    this(defaultRateLimit, Collections.emptyMap(), null);
+  }
+
+  /**
+   * Create a middleware limiting the message classes to their own rates.
+   *
+   * @param defaultRateLimit the rate of the message classes without a rate of their own, or null
+   *     to not limit these classes
+   * @param rateLimitByMessageClassMap the rates of specific message classes
+   * @param tenantKeyResolver returns the tenant of a message, each tenant being limited on its
+   *     own, or null to share the rate of a message class between all its messages. The messages
+   *     without tenant share the same rate
+   */
+  public RateLimitingMiddleware(RateLimit defaultRateLimit,
+      Map<Class<?>, RateLimit> rateLimitByMessageClassMap,
+      Function<Message<?>, Object> tenantKeyResolver) {
+    this(defaultRateLimit, rateLimitByMessageClassMap, tenantKeyResolver, System::nanoTime);
+  }
+
+  RateLimitingMiddleware(RateLimit defaultRateLimit,
+      Map<Class<?>, RateLimit> rateLimitByMessageClassMap,
+      Function<Message<?>, Object> tenantKeyResolver, LongSupplier nanoClock) {
+    this.defaultRateLimit = defaultRateLimit;
+    this.rateLimitByMessageClassMap = new HashMap<>(rateLimitByMessageClassMap);
+    this.tenantKeyResolver = tenantKeyResolver;
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    Limiter limiter = limiterByMessageClass.get(message.getClass());
+    if (limiter != null) {
+      limiter.acquire(message, nanoClock.getAsLong());
+    }
+    return next.call(message);
+  }
+
+  private Limiter createLimiter(Class<?> messageClass) {
+    RateLimit rateLimit = rateLimitByMessageClassMap.getOrDefault(messageClass, defaultRateLimit);
+    if (rateLimit == null) {
+      return null;
+    }
+    return tenantKeyResolver == null
+        ? new SharedLimiter(messageClass, new TokenBucket(rateLimit, nanoClock.getAsLong()))
+        : new TenantLimiter(messageClass, rateLimit, tenantKeyResolver);
+  }
+
+  private interface Limiter {
+    void acquire(Message<?> message, long nowNanos);
+  }
+
+  private static final class SharedLimiter implements Limiter {
+    private final Class<?> messageClass;
+    private final TokenBucket tokenBucket;
+
+    SharedLimiter(Class<?> messageClass, TokenBucket tokenBucket) {
+      this.messageClass = messageClass;
+      this.tokenBucket = tokenBucket;
+    }
+
+    @Override
+    public void acquire(Message<?> message, long nowNanos) {
+      if (!tokenBucket.tryAcquire(nowNanos)) {
+        throw new RateLimitExceededException(messageClass, null);
+      }
+    }
+  }
+
+  private static final class TenantLimiter implements Limiter {
+    private final Class<?> messageClass;
+    private final RateLimit rateLimit;
+    private final Function<Message<?>, Object> tenantKeyResolver;
+    private final ConcurrentMap<Object, TokenBucket> tokenBucketByTenantMap =
+        new ConcurrentHashMap<>();
+    private final AtomicBoolean isSweeping = new AtomicBoolean();
+    // Only used by the thread which set isSweeping
+    private Iterator<Map.Entry<Object, TokenBucket>> sweepCursor;
+
+    TenantLimiter(Class<?> messageClass, RateLimit rateLimit,
+        Function<Message<?>, Object> tenantKeyResolver) {
+      this.messageClass = messageClass;
+      this.rateLimit = rateLimit;
+      this.tenantKeyResolver = tenantKeyResolver;
+    }
+
+    @Override
+    public void acquire(Message<?> message, long nowNanos) {
+      Object tenantKey = tenantKeyResolver.apply(message);
+      Object bucketKey = tenantKey != null ? tenantKey : NO_TENANT;
+      TokenBucket tokenBucket = tokenBucketByTenantMap.get(bucketKey);
+      if (tokenBucket == null) {
+        if (tokenBucketByTenantMap.size() >= TENANT_SWEEP_THRESHOLD) {
+          sweepIdleBuckets(nowNanos);
+        }
+        tokenBucket = tokenBucketByTenantMap.computeIfAbsent(bucketKey,
+            key -> new TokenBucket(rateLimit, nowNanos));
+      }
+
+      while (!tokenBucket.tryAcquire(nowNanos)) {
+        if (!tokenBucket.isRetired()) {
+          throw new RateLimitExceededException(messageClass, tenantKey);
+        }
+        // Dropped meanwhile, as the tenant was idle
+        tokenBucket = tokenBucketByTenantMap.compute(bucketKey, (key, bucket) ->
+            bucket == null || bucket.isRetired() ? new TokenBucket(rateLimit, nowNanos) : bucket);
+      }
+    }
+
+    private void sweepIdleBuckets(long nowNanos) {
+      if (!isSweeping.compareAndSet(false, true)) {
+        // Another thread is sweeping
+        return;
+      }
+      try {
+        for (int i = 0; i < TENANT_SWEEP_SLICE; i++) {
+          if (sweepCursor == null || !sweepCursor.hasNext()) {
+            sweepCursor = tokenBucketByTenantMap.entrySet().iterator();
+            if (!sweepCursor.hasNext()) {
+              return;
+            }
+          }
+          Map.Entry<Object, TokenBucket> entry = sweepCursor.next();
+          TokenBucket bucket = entry.getValue();
+          if (bucket.tryRetire(nowNanos)) {
+            tokenBucketByTenantMap.remove(entry.getKey(), bucket);
+          }
+        }
+      } finally {
+        isSweeping.set(false);
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package net.dathoang.cqrs.commandbus.middleware.ratelimiting;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket implemented with the generic cell rate algorithm: the whole state is
+ * the theoretical arrival time of the next message, updated with a single compare-and-set.
+ */
+final class TokenBucket {
+  // Never a theoretical arrival time in practice, as System.nanoTime() would need to wrap around
+  private static final long RETIRED = Long.MIN_VALUE;
+
+  private final long emissionIntervalNanos;
+  private final long burstToleranceNanos;
+  private final AtomicLong theoreticalArrivalNanos;
+
+  TokenBucket(RateLimit rateLimit, long nowNanos) {
+    this.emissionIntervalNanos = rateLimit.getEmissionIntervalNanos();
+    this.burstToleranceNanos = rateLimit.getBurstToleranceNanos();
+    this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * Take a token.
+   *
+   * @return false when there is no token left, or when the bucket is retired
+   */
+  boolean tryAcquire(long nowNanos) {
+    while (true) {
+      long arrivalNanos = theoreticalArrivalNanos.get();
+      if (arrivalNanos == RETIRED) {
+        return false;
+      }
+      long nextArrivalNanos =
+          (arrivalNanos - nowNanos < 0 ? nowNanos : arrivalNanos) + emissionIntervalNanos;
+      if (nextArrivalNanos - nowNanos > burstToleranceNanos) {
+        return false;
+      }
+      if (theoreticalArrivalNanos.compareAndSet(arrivalNanos, nextArrivalNanos)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Retire the bucket if it is full again, so that dropping it loses nothing. A retired bucket
+   * gives no token anymore, so a thread still holding it takes a new bucket rather than tokens
+   * nobody accounts for.
+   *
+   * @return true when the bucket is retired
+   */
+  boolean tryRetire(long nowNanos) {
+    while (true) {
+      long arrivalNanos = theoreticalArrivalNanos.get();
+      if (arrivalNanos == RETIRED) {
+        return true;
+      }
+      if (arrivalNanos - nowNanos > 0) {
+        return false;
+      }
+      if (theoreticalArrivalNanos.compareAndSet(arrivalNanos, RETIRED)) {
+        return true;
+      }
+    }
+  }
+
+  boolean isRetired() {
+    return theoreticalArrivalNanos.get() == RETIRED;
+  }
+}
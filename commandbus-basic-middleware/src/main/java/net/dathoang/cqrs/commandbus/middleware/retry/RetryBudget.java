@@ -0,0 +1,74 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the retries at a ratio of the calls, so that retries can't multiply the load of a system
+ * which is already failing. Every call deposits {@code retryRatio} token, every retry withdraws a
+ * whole token, and the balance never exceeds {@code maxTokens}. The budget starts full, so that
+ * the first failures can be retried right away.
+ *
+ * <p>A budget can be shared by several middlewares to cap their retries together.
+ */
+public final class RetryBudget {
+  private static final long MILLI_TOKENS_PER_TOKEN = 1000;
+
+  private final long depositMilliTokens;
+  private final long maxMilliTokens;
+  private final AtomicLong balanceMilliTokens;
+
+  public RetryBudget(double retryRatio, int maxTokens) {
+    if (retryRatio < 0 || maxTokens < 0) {
+      throw new IllegalArgumentException("retryRatio and maxTokens must not be negative");
+    }
+    this.depositMilliTokens = Math.round(retryRatio * MILLI_TOKENS_PER_TOKEN);
+    this.maxMilliTokens = maxTokens * MILLI_TOKENS_PER_TOKEN;
+    this.balanceMilliTokens = new AtomicLong(maxMilliTokens);
+  }
+
+  /**
+   * A budget letting 10% of the calls be retried, with a reserve of 100 retries.
+   */
+  public static RetryBudget defaultBudget() {
+    return new RetryBudget(0.1, 100);
+  }
+
+  /**
+   * A budget which, in practice, never runs out.
+   */
+  public static RetryBudget unlimited() {
+    return new RetryBudget(1, Integer.MAX_VALUE);
+  }
+
+  void deposit() {
+    if (depositMilliTokens == 0) {
+      return;
+    }
+    long balance;
+    do {
+      balance = balanceMilliTokens.get();
+      if (balance >= maxMilliTokens) {
+        return;
+      }
+    } while (!balanceMilliTokens.compareAndSet(balance,
+        Math.min(maxMilliTokens, balance + depositMilliTokens)));
+  }
+
+  boolean tryWithdraw() {
+    long balance;
+    do {
+      balance = balanceMilliTokens.get();
+      if (balance < MILLI_TOKENS_PER_TOKEN) {
+        return false;
+      }
+    } while (!balanceMilliTokens.compareAndSet(balance, balance - MILLI_TOKENS_PER_TOKEN));
+    return true;
+  }
+
+  /**
+   * The number of retries the budget allows right now.
+   */
+  public long getAvailableRetries() {
+    return balanceMilliTokens.get() / MILLI_TOKENS_PER_TOKEN;
+  }
+}
@@ -0,0 +1,90 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live counters of the retries of a message class.
+ */
+public final class RetryMetrics {
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder attempts = new LongAdder();
+  private final LongAdder succeededAfterRetries = new LongAdder();
+  private final LongAdder exhaustedAttempts = new LongAdder();
+  private final LongAdder exhaustedBudget = new LongAdder();
+  private final LongAdder exhaustedDeadline = new LongAdder();
+
+  RetryMetrics() {}
+
+  void recordCall() {
+    calls.increment();
+  }
+
+  void recordAttempt() {
+    attempts.increment();
+  }
+
+  void recordSuccessAfterRetries() {
+    succeededAfterRetries.increment();
+  }
+
+  void recordExhaustedAttempts() {
+    exhaustedAttempts.increment();
+  }
+
+  void recordExhaustedBudget() {
+    exhaustedBudget.increment();
+  }
+
+  void recordExhaustedDeadline() {
+    exhaustedDeadline.increment();
+  }
+
+  /**
+   * The number of messages handled.
+   */
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  /**
+   * The number of attempts, first attempts included.
+   */
+  public long getAttempts() {
+    return attempts.sum();
+  }
+
+  /**
+   * The number of retries, which is the number of attempts beyond the first ones.
+   */
+  public long getRetries() {
+    return attempts.sum() - calls.sum();
+  }
+
+  /**
+   * The number of messages which succeeded after at least one retry.
+   */
+  public long getSucceededAfterRetries() {
+    return succeededAfterRetries.sum();
+  }
+
+  /**
+   * The number of messages which failed with a retryable exception on their last attempt.
+   */
+  public long getExhaustedAttempts() {
+    return exhaustedAttempts.sum();
+  }
+
+  /**
+   * The number of messages which weren't retried because the retry budget was empty.
+   */
+  public long getExhaustedBudget() {
+    return exhaustedBudget.sum();
+  }
+
+  /**
+   * The number of messages which weren't retried because their deadline would have passed first.
+   */
+  public long getExhaustedDeadline() {
+    return exhaustedDeadline.sum();
+  }
+}
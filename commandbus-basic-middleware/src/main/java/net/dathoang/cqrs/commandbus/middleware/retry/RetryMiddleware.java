@@ -0,0 +1,116 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Calls the rest of the pipeline again when it fails with a retryable exception, by default a
+ * database deadlock. Place it before the middleware managing the transactions, so that every
+ * attempt runs in a new transaction.
+ *
+ * <p>The attempts are bounded by a {@link RetryPolicy}, spaced by an exponential backoff with
+ * jitter, and capped by a {@link RetryBudget} so that retries can't amplify the load during an
+ * incident. The last exception is thrown once no attempt is left, or once the deadline of the
+ * {@link DispatchContext} would pass before the next attempt.
+ */
+public class RetryMiddleware implements Middleware {
+  private final RetryPolicy policy;
+  private final Predicate<Exception> retryablePredicate;
+  private final RetryBudget budget;
+  private final Sleeper sleeper;
+  private final ConcurrentMap<Class<?>, RetryMetrics> metricsByMessageClassMap =
+      new ConcurrentHashMap<>();
+  private final ClassValue<RetryMetrics> metrics = new ClassValue<RetryMetrics>() {
+    @Override
+    protected RetryMetrics computeValue(Class<?> messageClass) {
+      return metricsByMessageClassMap.computeIfAbsent(messageClass, cls -> new RetryMetrics());
+    }
+  };
+
+  /**
+   * Create a middleware retrying the deadlocks with the default policy and budget.
+   */
+  public RetryMiddleware() {
+    this(RetryPolicy.defaultPolicy(), RetryableExceptions::isDeadlock,
+        RetryBudget.defaultBudget());
+  }
+
+  public RetryMiddleware(RetryPolicy policy, Predicate<Exception> retryablePredicate,
+      RetryBudget budget) {
+    this(policy, retryablePredicate, budget, TimeUnit.NANOSECONDS::sleep);
+  }
+
+  RetryMiddleware(RetryPolicy policy, Predicate<Exception> retryablePredicate,
+      RetryBudget budget, Sleeper sleeper) {
+    this.policy = policy;
+    this.retryablePredicate = retryablePredicate;
+    this.budget = budget;
+    this.sleeper = sleeper;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    RetryMetrics messageMetrics = metrics.get(message.getClass());
+    messageMetrics.recordCall();
+    budget.deposit();
+
+    for (int attempt = 1; ; attempt++) {
+      messageMetrics.recordAttempt();
+      try {
+        R result = next.call(message);
+        if (attempt > 1) {
+          messageMetrics.recordSuccessAfterRetries();
+        }
+        return result;
+      } catch (Exception ex) {
+        if (!retryablePredicate.test(ex)) {
+          throw ex;
+        }
+        if (attempt >= policy.getMaxAttempts()) {
+          messageMetrics.recordExhaustedAttempts();
+          throw ex;
+        }
+        long backoffNanos = policy.nextBackoffNanos(attempt);
+        if (DispatchContext.current().remainingNanos() <= backoffNanos) {
+          messageMetrics.recordExhaustedDeadline();
+          throw ex;
+        }
+        if (!budget.tryWithdraw()) {
+          messageMetrics.recordExhaustedBudget();
+          throw ex;
+        }
+        backOff(backoffNanos, ex);
+      }
+    }
+  }
+
+  /**
+   * Get the retry metrics of the message classes handled so far.
+   */
+  public Map<Class<?>, RetryMetrics> getMetrics() {
+    return Collections.unmodifiableMap(metricsByMessageClassMap);
+  }
+
+  private void backOff(long backoffNanos, Exception lastException) throws Exception {
+    try {
+      sleeper.sleep(backoffNanos);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw lastException;
+    }
+  }
+
+  @FunctionalInterface
+  interface Sleeper {
+    void sleep(long nanos) throws InterruptedException;
+  }
+}
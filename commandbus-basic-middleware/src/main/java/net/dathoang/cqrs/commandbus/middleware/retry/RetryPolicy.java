@@ -0,0 +1,55 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many times a message is attempted, and how long to wait between the attempts. The waits
+ * follow an exponential backoff with full jitter: before the attempt {@code n + 1}, the middleware
+ * waits a random duration between zero and {@code min(maxBackoff, initialBackoff * 2^(n - 1))}.
+ */
+public final class RetryPolicy {
+  private final int maxAttempts;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+
+  /**
+   * Create a policy.
+   *
+   * @param maxAttempts the maximum number of attempts, including the first one
+   * @param initialBackoff the upper bound of the wait before the first retry
+   * @param maxBackoff the upper bound of every wait
+   * @param unit the unit of the backoffs
+   */
+  public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit) {
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("maxAttempts must be positive");
+    }
+    this.maxAttempts = maxAttempts;
+    this.initialBackoffNanos = unit.toNanos(initialBackoff);
+    this.maxBackoffNanos = unit.toNanos(maxBackoff);
+  }
+
+  /**
+   * A policy making up to 3 attempts, waiting up to 50 then 100 milliseconds between them.
+   */
+  public static RetryPolicy defaultPolicy() {
+    return new RetryPolicy(3, 50, 1000, TimeUnit.MILLISECONDS);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Pick the wait before the next attempt.
+   *
+   * @param failedAttempts the number of attempts which failed so far
+   */
+  long nextBackoffNanos(int failedAttempts) {
+    int shift = Math.min(failedAttempts - 1, 62);
+    long ceilingNanos = initialBackoffNanos > (maxBackoffNanos >> shift)
+        ? maxBackoffNanos : initialBackoffNanos << shift;
+    return ceilingNanos <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceilingNanos + 1);
+  }
+}
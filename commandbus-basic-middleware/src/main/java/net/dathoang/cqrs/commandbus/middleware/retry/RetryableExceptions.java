@@ -0,0 +1,37 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import java.sql.SQLException;
+
+/**
+ * Classifiers of the exceptions worth retrying.
+ */
+public final class RetryableExceptions {
+  private static final String SERIALIZATION_FAILURE_SQL_STATE = "40001";
+  private static final String POSTGRESQL_DEADLOCK_SQL_STATE = "40P01";
+  private static final int MYSQL_DEADLOCK_ERROR_CODE = 1213;
+
+  private RetryableExceptions() {}
+
+  /**
+   * Check whether the exception, or one of its causes, reports a transaction which was rolled
+   * back because of a deadlock or a serialization failure. These are detected through the SQL
+   * states 40001 and 40P01, the MySQL error 1213, and exception classes with "Deadlock" in their
+   * name, like the ones of Spring and Hibernate which wrap the JDBC exceptions.
+   */
+  public static boolean isDeadlock(Throwable exception) {
+    for (Throwable current = exception; current != null; current = current.getCause()) {
+      if (current instanceof SQLException) {
+        SQLException sqlException = (SQLException) current;
+        if (SERIALIZATION_FAILURE_SQL_STATE.equals(sqlException.getSQLState())
+            || POSTGRESQL_DEADLOCK_SQL_STATE.equals(sqlException.getSQLState())
+            || sqlException.getErrorCode() == MYSQL_DEADLOCK_ERROR_CODE) {
+          return true;
+        }
+      }
+      if (current.getClass().getSimpleName().contains("Deadlock")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
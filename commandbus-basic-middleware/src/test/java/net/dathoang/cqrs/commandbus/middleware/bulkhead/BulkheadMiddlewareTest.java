@@ -0,0 +1,149 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class BulkheadMiddlewareTest {
+  private ExecutorService executorService;
+  private CountDownLatch started;
+  private CountDownLatch release;
+  private NextMiddlewareFunction<Message<Object>, Object> blockingNext;
+
+  @BeforeEach
+  void setUp() {
+    executorService = Executors.newFixedThreadPool(4);
+    started = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    blockingNext = message -> {
+      started.countDown();
+      release.await();
+      return "result";
+    };
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    executorService.shutdownNow();
+  }
+
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should reject the calls beyond the limit in REJECT mode")
+    void shouldRejectCallsBeyondLimitInRejectMode() throws Exception {
+      // Arrange
+      BulkheadMiddleware middleware = new BulkheadMiddleware(BulkheadPolicy.reject(1));
+      Future<Object> firstCall = submit(() -> middleware.handle(new SlowQuery(), blockingNext));
+      started.await();
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new SlowQuery(), message -> "result"));
+      Object fastQueryResult = middleware.handle(new FastQuery(), message -> "fast result");
+
+      // Assert
+      assertThat(exception).isInstanceOf(BulkheadFullException.class);
+      assertThat(fastQueryResult).isEqualTo("fast result");
+      Bulkhead bulkhead = middleware.getBulkheads().get(SlowQuery.class);
+      assertThat(bulkhead.getActiveCalls()).isEqualTo(1);
+      assertThat(bulkhead.getRejectedCalls()).isEqualTo(1);
+      release.countDown();
+      assertThat(firstCall.get()).isEqualTo("result");
+      assertThat(bulkhead.getActiveCalls()).isZero();
+      assertThat(bulkhead.getCompletedCalls()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should let queued calls proceed once a permit is freed in QUEUE mode")
+    void shouldLetQueuedCallsProceedInQueueMode() throws Exception {
+      // Arrange
+      BulkheadMiddleware middleware = new BulkheadMiddleware(BulkheadPolicy.queue(1, 1));
+      Future<Object> firstCall = submit(() -> middleware.handle(new SlowQuery(), blockingNext));
+      started.await();
+      Future<Object> queuedCall = submit(() ->
+          middleware.handle(new SlowQuery(), message -> "queued result"));
+      Bulkhead bulkhead = middleware.getBulkheads().get(SlowQuery.class);
+      while (bulkhead.getWaitingCalls() == 0) {
+        Thread.sleep(1);
+      }
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new SlowQuery(), message -> "result"));
+      release.countDown();
+
+      // Assert
+      assertThat(exception).isInstanceOf(BulkheadFullException.class);
+      assertThat(firstCall.get()).isEqualTo("result");
+      assertThat(queuedCall.get()).isEqualTo("queued result");
+    }
+
+    @Test
+    @DisplayName("should reject the call once the timeout elapsed in WAIT mode")
+    void shouldRejectCallOnceTimeoutElapsedInWaitMode() throws Exception {
+      // Arrange
+      BulkheadMiddleware middleware = new BulkheadMiddleware(
+          BulkheadPolicy.waitFor(1, 10, TimeUnit.MILLISECONDS));
+      submit(() -> middleware.handle(new SlowQuery(), blockingNext));
+      started.await();
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new SlowQuery(), message -> "result"));
+
+      // Assert
+      assertThat(exception).isInstanceOf(BulkheadFullException.class);
+    }
+
+    @Test
+    @DisplayName("should share the permits of the message classes of the same group")
+    void shouldSharePermitsOfSameGroup() throws Exception {
+      // Arrange
+      BulkheadMiddleware middleware = new BulkheadMiddleware(null,
+          messageClass -> messageClass == FastQuery.class ? null : "queries",
+          Collections.singletonMap("queries", BulkheadPolicy.reject(1)));
+      submit(() -> middleware.handle(new SlowQuery(), blockingNext));
+      started.await();
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new OtherSlowQuery(), message -> "result"));
+      Object fastQueryResult = middleware.handle(new FastQuery(), message -> "fast result");
+
+      // Assert
+      assertThat(exception).isInstanceOf(BulkheadFullException.class);
+      assertThat(fastQueryResult).isEqualTo("fast result");
+      assertThat(middleware.getBulkheads()).containsOnlyKeys("queries");
+    }
+  }
+
+  private Future<Object> submit(Callable<Object> call) {
+    return executorService.submit(call);
+  }
+
+  // region Dummy classes
+  static class SlowQuery implements Query<Object> {}
+
+  static class OtherSlowQuery implements Query<Object> {}
+
+  static class FastQuery implements Query<Object> {}
+  // endregion
+}
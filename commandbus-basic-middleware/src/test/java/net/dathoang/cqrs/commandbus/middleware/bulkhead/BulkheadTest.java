@@ -0,0 +1,48 @@
+package net.dathoang.cqrs.commandbus.middleware.bulkhead;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class BulkheadTest {
+  @Nested
+  @DisplayName("acquire()")
+  class Acquire {
+    @Test
+    @DisplayName("should not let a new call overtake the queued ones in QUEUE mode")
+    void shouldNotLetNewCallOvertakeQueuedOnesInQueueMode() throws Exception {
+      // Arrange
+      Bulkhead bulkhead = new Bulkhead("group", BulkheadPolicy.queue(1, 2));
+      List<String> acquisitionOrder = Collections.synchronizedList(new ArrayList<>());
+      bulkhead.acquire();
+      Thread queuedCall = new Thread(() -> {
+        try {
+          bulkhead.acquire();
+          acquisitionOrder.add("queued call");
+          bulkhead.release();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      queuedCall.start();
+      while (queuedCall.getState() != Thread.State.WAITING) {
+        Thread.yield();
+      }
+
+      // Act
+      bulkhead.release();
+      bulkhead.acquire();
+      acquisitionOrder.add("new call");
+      bulkhead.release();
+      queuedCall.join();
+
+      // Assert
+      assertThat(acquisitionOrder).containsExactly("queued call", "new call");
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package net.dathoang.cqrs.commandbus.middleware.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.InvalidatesQueries;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.CachedQuery;
+import net.dathoang.cqrs.commandbus.query.Query;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class QueryCachingMiddlewareTest {
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final NextMiddlewareFunction<Message<Object>, Object> next =
+        message -> "result " + callCount.incrementAndGet();
+
+    @Test
+    @DisplayName("should return the cached result for an equal query")
+    void shouldReturnCachedResultForEqualQuery() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+
+      // Act
+      Object firstResult = middleware.handle(new CachedDummyQuery("key"), next);
+      Object secondResult = middleware.handle(new CachedDummyQuery("key"), next);
+
+      // Assert
+      assertThat(secondResult).isEqualTo(firstResult);
+      assertThat(callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not cache queries without the CachedQuery annotation")
+    void shouldNotCacheQueriesWithoutAnnotation() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+
+      // Act
+      middleware.handle(new UncachedDummyQuery(), next);
+      middleware.handle(new UncachedDummyQuery(), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should not cache the exception raised by the next middleware")
+    void shouldNotCacheException() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+      Exception exception = new Exception("Raised by the handler");
+
+      // Act
+      Throwable thrown = catchThrowable(() -> middleware.handle(new CachedDummyQuery("key"),
+          message -> {
+            throw exception;
+          }));
+      middleware.handle(new CachedDummyQuery("key"), next);
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should compute the result again once it expired")
+    void shouldComputeResultAgainOnceExpired() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+
+      // Act
+      middleware.handle(new ExpiringDummyQuery(), next);
+      nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+      middleware.handle(new ExpiringDummyQuery(), next);
+      nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+      middleware.handle(new ExpiringDummyQuery(), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should evict the least recently used result when the region is full")
+    void shouldEvictLeastRecentlyUsedResultWhenRegionIsFull() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+      middleware.handle(new CachedDummyQuery("first"), next);
+      middleware.handle(new CachedDummyQuery("second"), next);
+      middleware.handle(new CachedDummyQuery("first"), next);
+
+      // Act
+      middleware.handle(new CachedDummyQuery("third"), next);
+      middleware.handle(new CachedDummyQuery("first"), next);
+      middleware.handle(new CachedDummyQuery("second"), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should evict results until the total weight is within the limit")
+    void shouldEvictResultsUntilTotalWeightIsWithinLimit() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = new QueryCachingMiddleware(
+          (query, result) -> ((WeightedDummyQuery) query).weight, nanoClock::get);
+      middleware.handle(new WeightedDummyQuery(4), next);
+      middleware.handle(new WeightedDummyQuery(5), next);
+
+      // Act
+      middleware.handle(new WeightedDummyQuery(2), next);
+      middleware.handle(new WeightedDummyQuery(5), next);
+      middleware.handle(new WeightedDummyQuery(2), next);
+      middleware.handle(new WeightedDummyQuery(4), next);
+      middleware.handle(new WeightedDummyQuery(11), next);
+      middleware.handle(new WeightedDummyQuery(11), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("should evict the results of the invalidated queries after a command succeeded")
+    void shouldEvictInvalidatedQueriesAfterCommandSucceeded() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+      middleware.handle(new CachedDummyQuery("key"), next);
+      middleware.handle(new ExpiringDummyQuery(), next);
+
+      // Act
+      middleware.handle(new InvalidatingDummyCommand(), message -> null);
+      middleware.handle(new CachedDummyQuery("key"), next);
+      middleware.handle(new ExpiringDummyQuery(), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("should keep the cached results when the command failed")
+    void shouldKeepCachedResultsWhenCommandFailed() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+      middleware.handle(new CachedDummyQuery("key"), next);
+
+      // Act
+      catchThrowable(() -> middleware.handle(new InvalidatingDummyCommand(), message -> {
+        throw new Exception("Raised by the handler");
+      }));
+      middleware.handle(new CachedDummyQuery("key"), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not cache a result computed while the region was invalidated")
+    void shouldNotCacheResultComputedWhileRegionWasInvalidated() throws Exception {
+      // Arrange
+      QueryCachingMiddleware middleware = createMiddleware();
+      middleware.handle(new CachedDummyQuery("warm-up"), next);
+
+      // Act
+      Object staleResult = middleware.handle(new CachedDummyQuery("key"), message -> {
+        middleware.handle(new InvalidatingDummyCommand(), command -> null);
+        return "stale";
+      });
+      Object result = middleware.handle(new CachedDummyQuery("key"), next);
+
+      // Assert
+      assertThat(staleResult).isEqualTo("stale");
+      assertThat(result).isEqualTo("result 2");
+    }
+
+    private QueryCachingMiddleware createMiddleware() {
+      return new QueryCachingMiddleware((query, result) -> 1, nanoClock::get);
+    }
+  }
+
+  // region Dummy classes
+  @CachedQuery(maxEntries = 2)
+  static class CachedDummyQuery implements Query<Object> {
+    private final String key;
+
+    CachedDummyQuery(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CachedDummyQuery && ((CachedDummyQuery) o).key.equals(key);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
+    }
+  }
+
+  @CachedQuery(ttlMillis = 1000)
+  static class ExpiringDummyQuery implements Query<Object> {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof ExpiringDummyQuery;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+
+  @CachedQuery(maxWeight = 10)
+  static class WeightedDummyQuery implements Query<Object> {
+    private final int weight;
+
+    WeightedDummyQuery(int weight) {
+      this.weight = weight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof WeightedDummyQuery && ((WeightedDummyQuery) o).weight == weight;
+    }
+
+    @Override
+    public int hashCode() {
+      return weight;
+    }
+  }
+
+  static class UncachedDummyQuery implements Query<Object> {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof UncachedDummyQuery;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+  }
+
+  @InvalidatesQueries({CachedDummyQuery.class, ExpiringDummyQuery.class})
+  static class InvalidatingDummyCommand implements Command<Object> {}
+  // endregion
+}
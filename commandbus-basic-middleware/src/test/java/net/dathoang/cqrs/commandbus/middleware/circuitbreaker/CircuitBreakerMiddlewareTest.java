@@ -0,0 +1,156 @@
+package net.dathoang.cqrs.commandbus.middleware.circuitbreaker;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.Query;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerMiddlewareTest {
+  // Opens when half of the last 4 calls failed or were slower than 100ms, stays open 1s, probes
+  // with 2 calls
+  private static final CircuitBreakerPolicy POLICY =
+      new CircuitBreakerPolicy(4, 4, 50, 100, 50, 1000, 2, TimeUnit.MILLISECONDS);
+
+  private final AtomicLong nanoClock = new AtomicLong();
+  private final AtomicInteger callCount = new AtomicInteger();
+  private final NextMiddlewareFunction<Message<Object>, Object> succeedingNext = message -> {
+    callCount.incrementAndGet();
+    return "result";
+  };
+  private final NextMiddlewareFunction<Message<Object>, Object> failingNext = message -> {
+    callCount.incrementAndGet();
+    throw new Exception("Raised by the handler");
+  };
+  private final NextMiddlewareFunction<Message<Object>, Object> slowNext = message -> {
+    callCount.incrementAndGet();
+    nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+    return "result";
+  };
+
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should open and fail fast once the failure rate reaches the threshold")
+    void shouldOpenOnceFailureRateReachesThreshold() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = createMiddleware();
+      handle(middleware, succeedingNext, 2);
+
+      // Act
+      handle(middleware, failingNext, 2);
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyQuery(), succeedingNext));
+
+      // Assert
+      assertThat(exception).isInstanceOf(CircuitBreakerOpenException.class);
+      assertThat(callCount.get()).isEqualTo(4);
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    @DisplayName("should stay closed while fewer calls than the minimum have been recorded")
+    void shouldStayClosedBeforeMinimumCalls() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = createMiddleware();
+
+      // Act
+      handle(middleware, failingNext, 3);
+
+      // Assert
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.CLOSED);
+      assertThat(getCircuitBreaker(middleware).getFailureRate()).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("should open once the slow call rate reaches the threshold")
+    void shouldOpenOnceSlowCallRateReachesThreshold() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = createMiddleware();
+      handle(middleware, succeedingNext, 2);
+
+      // Act
+      handle(middleware, slowNext, 2);
+
+      // Assert
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    @DisplayName("should close again when the probe calls succeed")
+    void shouldCloseAgainWhenProbeCallsSucceed() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = createMiddleware();
+      handle(middleware, failingNext, 4);
+      nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+      // Act
+      handle(middleware, succeedingNext, 1);
+      CircuitBreakerState stateDuringProbing = getCircuitBreaker(middleware).getState();
+      handle(middleware, succeedingNext, 1);
+
+      // Assert
+      assertThat(stateDuringProbing).isEqualTo(CircuitBreakerState.HALF_OPEN);
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.CLOSED);
+    }
+
+    @Test
+    @DisplayName("should open again when the probe calls fail")
+    void shouldOpenAgainWhenProbeCallsFail() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = createMiddleware();
+      handle(middleware, failingNext, 4);
+      nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+      // Act
+      handle(middleware, failingNext, 2);
+
+      // Assert
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.OPEN);
+    }
+
+    @Test
+    @DisplayName("should not count the exceptions rejected by the predicate as failures")
+    void shouldNotCountExceptionsRejectedByPredicate() throws Exception {
+      // Arrange
+      CircuitBreakerMiddleware middleware = new CircuitBreakerMiddleware(POLICY,
+          ex -> !(ex instanceof IllegalArgumentException), nanoClock::get);
+
+      // Act
+      handle(middleware, message -> {
+        throw new IllegalArgumentException("Invalid query");
+      }, 4);
+
+      // Assert
+      assertThat(getCircuitBreaker(middleware).getState()).isEqualTo(CircuitBreakerState.CLOSED);
+      assertThat(getCircuitBreaker(middleware).getFailureRate()).isZero();
+    }
+
+    private CircuitBreakerMiddleware createMiddleware() {
+      return new CircuitBreakerMiddleware(POLICY, ex -> true, nanoClock::get);
+    }
+
+    private CircuitBreaker getCircuitBreaker(CircuitBreakerMiddleware middleware) {
+      return middleware.getCircuitBreakers().get(DummyQuery.class);
+    }
+
+    private void handle(CircuitBreakerMiddleware middleware,
+        NextMiddlewareFunction<Message<Object>, Object> next, int times) {
+      for (int i = 0; i < times; i++) {
+        catchThrowable(() -> middleware.handle(new DummyQuery(), next));
+      }
+    }
+  }
+
+  // region Dummy classes
+  static class DummyQuery implements Query<Object> {}
+  // endregion
+}
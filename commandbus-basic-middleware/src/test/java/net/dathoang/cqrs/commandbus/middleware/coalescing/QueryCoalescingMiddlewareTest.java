@@ -0,0 +1,196 @@
+package net.dathoang.cqrs.commandbus.middleware.coalescing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.query.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class QueryCoalescingMiddlewareTest {
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+      executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+      executorService.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("should run the next middleware once for equal concurrent queries")
+    void shouldRunNextMiddlewareOnceForEqualConcurrentQueries() throws Exception {
+      // Arrange
+      QueryCoalescingMiddleware middleware = new QueryCoalescingMiddleware();
+      BlockingNextFunction next = new BlockingNextFunction(() -> "result");
+
+      // Act
+      Future<Object> leader = executorService.submit(() ->
+          middleware.handle(new DummyQuery("key"), next));
+      next.started.await();
+      Future<Object> follower = submitAndWaitUntilBlocked(() ->
+          middleware.handle(new DummyQuery("key"), next));
+      next.release.countDown();
+
+      // Assert
+      assertThat(leader.get()).isEqualTo("result");
+      assertThat(follower.get()).isEqualTo("result");
+      assertThat(next.callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should throw the same exception to every concurrent caller")
+    void shouldThrowSameExceptionToEveryConcurrentCaller() throws Exception {
+      // Arrange
+      QueryCoalescingMiddleware middleware = new QueryCoalescingMiddleware();
+      Exception exception = new Exception("Raised by the handler");
+      BlockingNextFunction next = new BlockingNextFunction(() -> {
+        throw exception;
+      });
+
+      // Act
+      Future<Object> leader = executorService.submit(() ->
+          middleware.handle(new DummyQuery("key"), next));
+      next.started.await();
+      Future<Object> follower = submitAndWaitUntilBlocked(() ->
+          middleware.handle(new DummyQuery("key"), next));
+      next.release.countDown();
+
+      // Assert
+      assertThat(catchThrowable(leader::get)).isInstanceOf(ExecutionException.class)
+          .hasCause(exception);
+      assertThat(catchThrowable(follower::get).getCause()).isSameAs(exception);
+      assertThat(next.callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should run the next middleware again once the previous execution completed")
+    void shouldRunNextMiddlewareAgainOnceExecutionCompleted() throws Exception {
+      // Arrange
+      QueryCoalescingMiddleware middleware = new QueryCoalescingMiddleware();
+      AtomicInteger callCount = new AtomicInteger();
+      NextMiddlewareFunction<Message<Object>, Object> next =
+          message -> callCount.incrementAndGet();
+
+      // Act
+      middleware.handle(new DummyQuery("key"), next);
+      middleware.handle(new DummyQuery("key"), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should not coalesce queries which aren't equal")
+    void shouldNotCoalesceQueriesWhichAreNotEqual() throws Exception {
+      // Arrange
+      QueryCoalescingMiddleware middleware = new QueryCoalescingMiddleware();
+      BlockingNextFunction next = new BlockingNextFunction(() -> "result");
+
+      // Act
+      Future<Object> first = executorService.submit(() ->
+          middleware.handle(new DummyQuery("first"), next));
+      next.started.await();
+      Object secondResult = middleware.handle(new DummyQuery("second"), message -> "second");
+      next.release.countDown();
+
+      // Assert
+      assertThat(first.get()).isEqualTo("result");
+      assertThat(secondResult).isEqualTo("second");
+    }
+
+    @Test
+    @DisplayName("should pass messages which aren't queries to the next middleware")
+    void shouldPassMessagesWhichAreNotQueriesToNextMiddleware() throws Exception {
+      // Arrange
+      QueryCoalescingMiddleware middleware = new QueryCoalescingMiddleware();
+      AtomicInteger callCount = new AtomicInteger();
+      DummyCommand command = new DummyCommand();
+
+      // Act
+      middleware.handle(command, message -> callCount.incrementAndGet());
+      middleware.handle(command, message -> callCount.incrementAndGet());
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    private Future<Object> submitAndWaitUntilBlocked(Callable<Object> task)
+        throws InterruptedException {
+      AtomicReference<Thread> worker = new AtomicReference<>();
+      Future<Object> future = executorService.submit(() -> {
+        worker.set(Thread.currentThread());
+        return task.call();
+      });
+      while (worker.get() == null || worker.get().getState() != Thread.State.WAITING) {
+        Thread.sleep(1);
+      }
+      return future;
+    }
+  }
+
+  // region Dummy classes
+  static class DummyQuery implements Query<Object> {
+    private final String key;
+
+    DummyQuery(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof DummyQuery && ((DummyQuery) o).key.equals(key);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
+    }
+  }
+
+  static class DummyCommand implements Command<Object> {}
+
+  interface ResultSupplier {
+    Object get() throws Exception;
+  }
+
+  static class BlockingNextFunction implements NextMiddlewareFunction<Message<Object>, Object> {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final ResultSupplier resultSupplier;
+
+    BlockingNextFunction(ResultSupplier resultSupplier) {
+      this.resultSupplier = resultSupplier;
+    }
+
+    @Override
+    public Object call(Message<Object> message) throws Exception {
+      callCount.incrementAndGet();
+      started.countDown();
+      release.await();
+      return resultSupplier.get();
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,170 @@
+package net.dathoang.cqrs.commandbus.middleware.deadline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.exceptions.DeadlineExceededException;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DeadlineMiddlewareTest {
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should abandon the message without calling the next middleware when its "
+        + "deadline has passed")
+    void shouldAbandonMessageWhenDeadlineHasPassed() {
+      // Arrange
+      DeadlineMiddleware middleware = new DeadlineMiddleware();
+      AtomicBoolean isNextCalled = new AtomicBoolean();
+
+      // Act
+      Throwable exception;
+      try (DispatchContext.Scope scope =
+          DispatchContext.current().withDeadline(System.nanoTime() - 1).attach()) {
+        exception = catchThrowable(() -> middleware.handle(new DummyCommand(), message -> {
+          isNextCalled.set(true);
+          return null;
+        }));
+      }
+
+      // Assert
+      assertThat(exception).isInstanceOf(DeadlineExceededException.class);
+      assertThat(isNextCalled.get()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should call the next middleware when the deadline hasn't passed")
+    void shouldCallNextMiddlewareWhenDeadlineHasNotPassed() throws Exception {
+      // Arrange
+      DeadlineMiddleware middleware = new DeadlineMiddleware();
+
+      // Act
+      Object result;
+      try (DispatchContext.Scope scope =
+          DispatchContext.current().withTimeout(1, TimeUnit.MINUTES).attach()) {
+        result = middleware.handle(new DummyCommand(), message -> "result");
+      }
+
+      // Assert
+      assertThat(result).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should give the default timeout to the messages dispatched without deadline")
+    void shouldGiveDefaultTimeoutToMessagesWithoutDeadline() throws Exception {
+      // Arrange
+      DeadlineMiddleware middleware = new DeadlineMiddleware(1, TimeUnit.MINUTES);
+      AtomicReference<DispatchContext> handlingContext = new AtomicReference<>();
+
+      // Act
+      middleware.handle(new DummyCommand(), message -> {
+        handlingContext.set(DispatchContext.current());
+        return null;
+      });
+
+      // Assert
+      assertThat(handlingContext.get().hasDeadline()).isTrue();
+      assertThat(DispatchContext.current().hasDeadline()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should interrupt the handling once the deadline passes when created with a "
+        + "scheduler")
+    void shouldInterruptHandlingOnceDeadlinePasses() {
+      // Arrange
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      DeadlineMiddleware middleware = new DeadlineMiddleware(10, TimeUnit.MILLISECONDS, scheduler);
+
+      try {
+        // Act
+        Throwable exception = catchThrowable(() -> middleware.handle(new DummyCommand(),
+            message -> {
+              Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+              return null;
+            }));
+
+        // Assert
+        assertThat(exception).isInstanceOf(DeadlineExceededException.class);
+        assertThat(exception.getSuppressed()[0]).isInstanceOf(InterruptedException.class);
+        assertThat(Thread.currentThread().isInterrupted()).isFalse();
+      } finally {
+        scheduler.shutdownNow();
+      }
+    }
+
+    @Test
+    @DisplayName("should not leave an interrupt on the thread when the interrupted handling "
+        + "throws an error")
+    void shouldNotLeaveInterruptWhenInterruptedHandlingThrowsError() {
+      // Arrange
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      DeadlineMiddleware middleware = new DeadlineMiddleware(10, TimeUnit.MILLISECONDS, scheduler);
+      Error error = new AssertionError("Raised by the interrupted handler");
+
+      try {
+        // Act
+        Throwable exception = catchThrowable(() -> middleware.handle(new DummyCommand(),
+            message -> {
+              while (!Thread.currentThread().isInterrupted()) {
+                // Wait for the interrupt without clearing it
+              }
+              throw error;
+            }));
+
+        // Assert
+        assertThat(exception).isSameAs(error);
+        assertThat(Thread.interrupted()).isFalse();
+      } finally {
+        scheduler.shutdownNow();
+      }
+    }
+
+    @Test
+    @DisplayName("should not leave an interrupt on the thread when the handling completes right "
+        + "at the deadline")
+    void shouldNotLeaveInterruptWhenHandlingCompletesAtDeadline() throws Exception {
+      // Arrange
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+      DeadlineMiddleware middleware = new DeadlineMiddleware(200, TimeUnit.MICROSECONDS,
+          scheduler);
+
+      try {
+        for (int i = 0; i < 2000; i++) {
+          // Act
+          try {
+            middleware.handle(new DummyCommand(), message -> {
+              DispatchContext context = DispatchContext.current();
+              while (context.remainingNanos() > 0 && !Thread.currentThread().isInterrupted()) {
+                // Run right up to the deadline, so that the interrupt races the completion
+              }
+              return null;
+            });
+          } catch (DeadlineExceededException ex) {
+            // The interrupt came first, only the flag matters here
+          }
+          // Leave the scheduler time to run an interrupt which would come late
+          scheduler.submit(() -> {}).get();
+
+          // Assert
+          assertThat(Thread.interrupted()).as("interrupted after the dispatch %d", i).isFalse();
+        }
+      } finally {
+        scheduler.shutdownNow();
+      }
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object> {}
+  // endregion
+}
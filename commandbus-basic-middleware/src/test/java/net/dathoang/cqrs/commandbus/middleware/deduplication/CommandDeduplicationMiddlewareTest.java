@@ -0,0 +1,150 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.IdempotencyKey;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class CommandDeduplicationMiddlewareTest {
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    private final AtomicInteger callCount = new AtomicInteger();
+    private final NextMiddlewareFunction<Message<Object>, Object> next =
+        message -> "result " + callCount.incrementAndGet();
+
+    @Test
+    @DisplayName("should return the stored result to a duplicate without handling it")
+    void shouldReturnStoredResultToDuplicate() throws Exception {
+      // Arrange
+      CommandDeduplicationMiddleware middleware = new CommandDeduplicationMiddleware();
+
+      // Act
+      Object firstResult = middleware.handle(new IdempotentCommand("id"), next);
+      Object secondResult = middleware.handle(new IdempotentCommand("id"), next);
+
+      // Assert
+      assertThat(firstResult).isEqualTo("result 1");
+      assertThat(secondResult).isEqualTo("result 1");
+      assertThat(callCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should handle commands with different idempotency keys or classes")
+    void shouldHandleCommandsWithDifferentKeysOrClasses() throws Exception {
+      // Arrange
+      CommandDeduplicationMiddleware middleware = new CommandDeduplicationMiddleware();
+
+      // Act
+      middleware.handle(new IdempotentCommand("first"), next);
+      middleware.handle(new IdempotentCommand("second"), next);
+      middleware.handle(new OtherIdempotentCommand("first"), next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should handle commands without idempotency key every time")
+    void shouldHandleCommandsWithoutIdempotencyKeyEveryTime() throws Exception {
+      // Arrange
+      CommandDeduplicationMiddleware middleware = new CommandDeduplicationMiddleware();
+      PlainCommand command = new PlainCommand();
+
+      // Act
+      middleware.handle(command, next);
+      middleware.handle(command, next);
+
+      // Assert
+      assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("should handle the command again after it failed")
+    void shouldHandleCommandAgainAfterItFailed() throws Exception {
+      // Arrange
+      CommandDeduplicationMiddleware middleware = new CommandDeduplicationMiddleware();
+      Exception exception = new Exception("Raised by the handler");
+
+      // Act
+      Throwable thrown = catchThrowable(() -> middleware.handle(new IdempotentCommand("id"),
+          message -> {
+            throw exception;
+          }));
+      Object result = middleware.handle(new IdempotentCommand("id"), next);
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(result).isEqualTo("result 1");
+    }
+
+    @Test
+    @DisplayName("should make a concurrent duplicate wait for the result of the first command")
+    void shouldMakeConcurrentDuplicateWaitForFirstCommand() throws Exception {
+      // Arrange
+      CommandDeduplicationMiddleware middleware = new CommandDeduplicationMiddleware();
+      CountDownLatch started = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      NextMiddlewareFunction<Message<Object>, Object> blockingNext = message -> {
+        started.countDown();
+        release.await();
+        return next.call(message);
+      };
+      ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+      try {
+        // Act
+        Future<Object> first = executorService.submit(() ->
+            middleware.handle(new IdempotentCommand("id"), blockingNext));
+        started.await();
+        Future<Object> duplicate = executorService.submit(() ->
+            middleware.handle(new IdempotentCommand("id"), blockingNext));
+        release.countDown();
+
+        // Assert
+        assertThat(first.get()).isEqualTo("result 1");
+        assertThat(duplicate.get()).isEqualTo("result 1");
+        assertThat(callCount.get()).isEqualTo(1);
+      } finally {
+        executorService.shutdownNow();
+      }
+    }
+  }
+
+  // region Dummy classes
+  static class IdempotentCommand implements Command<Object> {
+    @IdempotencyKey
+    private final String requestId;
+
+    IdempotentCommand(String requestId) {
+      this.requestId = requestId;
+    }
+  }
+
+  static class OtherIdempotentCommand implements Command<Object> {
+    private final String requestId;
+
+    OtherIdempotentCommand(String requestId) {
+      this.requestId = requestId;
+    }
+
+    @IdempotencyKey
+    String getRequestId() {
+      return requestId;
+    }
+  }
+
+  static class PlainCommand implements Command<Object> {}
+  // endregion
+}
@@ -0,0 +1,150 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileDeduplicationStoreTest {
+  private final AtomicLong clock = new AtomicLong();
+
+  @Nested
+  @DisplayName("find()")
+  class Find {
+    @Test
+    @DisplayName("should return the results saved before the store was reopened")
+    void shouldReturnResultsSavedBeforeReopening(@TempDir Path directory) throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save(new DeduplicationKey("Command", "id"), "result");
+      }
+
+      // Act
+      StoredResult storedResult;
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        storedResult = store.find(new DeduplicationKey("Command", "id"));
+      }
+
+      // Assert
+      assertThat(storedResult.getResult()).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should not load back the results older than the window")
+    void shouldNotLoadBackResultsOlderThanWindow(@TempDir Path directory) throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save("key", "result");
+      }
+      clock.set(1000);
+
+      // Act
+      StoredResult storedResult;
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        storedResult = store.find("key");
+      }
+
+      // Assert
+      assertThat(storedResult).isNull();
+      assertThat(Files.size(file)).isZero();
+    }
+
+    @Test
+    @DisplayName("should keep the log bounded by compacting it")
+    void shouldKeepLogBoundedByCompactingIt(@TempDir Path directory) throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 1, 1000, clock::get)) {
+        store.save("key", "result");
+        long sizeWithOneRecord = Files.size(file);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+          store.save("key", "result");
+        }
+
+        // Assert
+        assertThat(Files.size(file)).isLessThanOrEqualTo(sizeWithOneRecord * 2);
+      }
+    }
+
+    @Test
+    @DisplayName("should keep the results which can't be serialized in memory")
+    void shouldKeepNonSerializableResultsInMemory(@TempDir Path directory) throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      Object result = new Object();
+
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        // Act
+        store.save("key", result);
+
+        // Assert
+        assertThat(store.find("key").getResult()).isSameAs(result);
+        assertThat(Files.size(file)).isZero();
+      }
+    }
+
+    @Test
+    @DisplayName("should load the records before a record whose length is corrupted")
+    void shouldLoadRecordsBeforeRecordWhoseLengthIsCorrupted(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save("first key", "first result");
+      }
+      long firstRecordSize = Files.size(file);
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save("second key", "second result");
+      }
+      // Replace the length of the second record by a huge one
+      byte[] bytes = Files.readAllBytes(file);
+      Arrays.fill(bytes, (int) firstRecordSize + 8, (int) firstRecordSize + 12, (byte) 0x7f);
+      Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+      // Act
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        // Assert
+        assertThat(store.find("first key").getResult()).isEqualTo("first result");
+        assertThat(store.find("second key")).isNull();
+        assertThat(Files.size(file)).isEqualTo(firstRecordSize);
+      }
+    }
+
+    @Test
+    @DisplayName("should load the records before a record whose payload is corrupted")
+    void shouldLoadRecordsBeforeRecordWhosePayloadIsCorrupted(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      Path file = directory.resolve("deduplication.log");
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save("first key", "first result");
+      }
+      long firstRecordSize = Files.size(file);
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        store.save("second key", "second result");
+      }
+      byte[] bytes = Files.readAllBytes(file);
+      bytes[bytes.length - 1] = (byte) ~bytes[bytes.length - 1];
+      Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+      // Act
+      try (FileDeduplicationStore store = new FileDeduplicationStore(file, 10, 1000, clock::get)) {
+        // Assert
+        assertThat(store.find("first key").getResult()).isEqualTo("first result");
+        assertThat(store.find("second key")).isNull();
+        assertThat(Files.size(file)).isEqualTo(firstRecordSize);
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package net.dathoang.cqrs.commandbus.middleware.deduplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class InMemoryDeduplicationStoreTest {
+  private final AtomicLong clock = new AtomicLong();
+
+  @Nested
+  @DisplayName("find()")
+  class Find {
+    @Test
+    @DisplayName("should return the saved result, including null results")
+    void shouldReturnSavedResult() {
+      // Arrange
+      InMemoryDeduplicationStore store = new InMemoryDeduplicationStore(10, 1000, clock::get);
+      store.save("key", "result");
+      store.save("null key", null);
+
+      // Act
+      StoredResult storedResult = store.find("key");
+      StoredResult storedNullResult = store.find("null key");
+
+      // Assert
+      assertThat(storedResult.getResult()).isEqualTo("result");
+      assertThat(storedNullResult.getResult()).isNull();
+      assertThat(store.find("unknown key")).isNull();
+    }
+
+    @Test
+    @DisplayName("should forget the results older than the window")
+    void shouldForgetResultsOlderThanWindow() {
+      // Arrange
+      InMemoryDeduplicationStore store = new InMemoryDeduplicationStore(10, 1000, clock::get);
+      store.save("key", "result");
+
+      // Act
+      clock.set(999);
+      StoredResult storedResultWithinWindow = store.find("key");
+      clock.set(1000);
+      StoredResult storedResultAfterWindow = store.find("key");
+
+      // Assert
+      assertThat(storedResultWithinWindow).isNotNull();
+      assertThat(storedResultAfterWindow).isNull();
+    }
+
+    @Test
+    @DisplayName("should keep at most maxEntries results")
+    void shouldKeepAtMostMaxEntriesResults() {
+      // Arrange
+      InMemoryDeduplicationStore store = new InMemoryDeduplicationStore(4, 1000, clock::get);
+
+      // Act
+      for (int i = 0; i < 100; i++) {
+        store.save(i, i);
+      }
+
+      // Assert
+      int storedResultCount = 0;
+      for (int i = 0; i < 100; i++) {
+        if (store.find(i) != null) {
+          storedResultCount++;
+        }
+      }
+      assertThat(storedResultCount).isBetween(1, 4);
+      assertThat(store.find(99)).isNotNull();
+    }
+  }
+}
@@ -4,8 +4,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.Mockito.mock;
 
+import java.util.Arrays;
+import java.util.List;
 import net.dathoang.cqrs.commandbus.command.Command;
 import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextBatchMiddlewareFunction;
 import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
 import net.dathoang.cqrs.commandbus.query.Query;
 import org.junit.jupiter.api.DisplayName;
@@ -81,6 +84,52 @@ class LoggingMiddlewareTest {
     }
   }
 
+  @Nested
+  @DisplayName("handleBatch()")
+  static class HandleBatchTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"message", "command", "query"})
+    @DisplayName("should return the same results as the next middleware")
+    void shouldReturnSameResultsAsNextMiddleware(String messageType) throws Exception {
+      // Arrange
+      List<Message<Object>> messages = Arrays.asList(
+          createDummyMessage(messageType), createDummyMessage(messageType));
+      List<Object> dummyResults = Arrays.asList(new Object(), new Object());
+      LoggingMiddleware middleware = new LoggingMiddleware();
+      NextBatchMiddlewareFunction<Message<Object>, Object> nextFunc =
+          (handlingMessages) -> dummyResults;
+
+      // Act
+      List<Object> realResults = middleware.handleBatch(messages, nextFunc);
+
+      // Assert
+      assertThat(realResults)
+          .describedAs("should return the same results as the results of next middleware")
+          .isEqualTo(dummyResults);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"message", "command", "query"})
+    @DisplayName("should throw the same exception as the next middleware")
+    void shouldThrowSameExceptionAsNextMiddleware(String messageType) {
+      // Arrange
+      List<Message<Object>> messages = Arrays.asList(createDummyMessage(messageType));
+      LoggingMiddleware middleware = new LoggingMiddleware();
+      Exception exceptionRaisedByNextMiddleware = new Exception("Exception raised in next middleware");
+      NextBatchMiddlewareFunction<Message<Object>, Object> nextFunc = (handlingMessages) -> {
+        throw exceptionRaisedByNextMiddleware;
+      };
+
+      // Act
+      Throwable realException = catchThrowable(() -> middleware.handleBatch(messages, nextFunc));
+
+      // Assert
+      assertThat(realException)
+          .describedAs("should throw the same exception as the exception raised by next middleware")
+          .isEqualTo(exceptionRaisedByNextMiddleware);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private static Message<Object> createDummyMessage(String messageType) {
     switch (messageType) {
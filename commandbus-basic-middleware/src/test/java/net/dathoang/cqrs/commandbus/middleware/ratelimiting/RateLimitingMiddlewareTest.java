@@ -0,0 +1,157 @@
+package net.dathoang.cqrs.commandbus.middleware.ratelimiting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class RateLimitingMiddlewareTest {
+  private final AtomicLong nanoClock = new AtomicLong(-TimeUnit.DAYS.toNanos(1));
+  private final NextMiddlewareFunction<Message<Object>, Object> next = message -> "result";
+
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should let a burst through then reject until tokens are refilled")
+    void shouldLetBurstThroughThenRejectUntilRefilled() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(
+          new RateLimit(2, 1, TimeUnit.SECONDS), Collections.emptyMap(), null, nanoClock::get);
+
+      // Act
+      middleware.handle(new DummyCommand("tenant"), next);
+      middleware.handle(new DummyCommand("tenant"), next);
+      Throwable exceptionAfterBurst = catchThrowable(() ->
+          middleware.handle(new DummyCommand("tenant"), next));
+      nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+      Object resultAfterRefill = middleware.handle(new DummyCommand("tenant"), next);
+
+      // Assert
+      assertThat(exceptionAfterBurst).isInstanceOf(RateLimitExceededException.class);
+      assertThat(resultAfterRefill).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should limit every message class on its own")
+    void shouldLimitEveryMessageClassOnItsOwn() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(
+          new RateLimit(1, 1, TimeUnit.SECONDS), Collections.emptyMap(), null, nanoClock::get);
+      middleware.handle(new DummyCommand("tenant"), next);
+
+      // Act
+      Object result = middleware.handle(new OtherDummyCommand(), next);
+
+      // Assert
+      assertThat(result).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should use the rate of the message class over the default one")
+    void shouldUseRateOfMessageClassOverDefaultOne() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(null,
+          Collections.singletonMap(DummyCommand.class, new RateLimit(1, 1, TimeUnit.SECONDS)),
+          null, nanoClock::get);
+      middleware.handle(new DummyCommand("tenant"), next);
+      middleware.handle(new OtherDummyCommand(), next);
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand("tenant"), next));
+      Object unlimitedResult = middleware.handle(new OtherDummyCommand(), next);
+
+      // Assert
+      assertThat(exception).isInstanceOf(RateLimitExceededException.class);
+      assertThat(unlimitedResult).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should limit every tenant on its own")
+    void shouldLimitEveryTenantOnItsOwn() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(
+          new RateLimit(1, 1, TimeUnit.SECONDS), Collections.emptyMap(),
+          message -> message instanceof DummyCommand ? ((DummyCommand) message).tenant : null,
+          nanoClock::get);
+      middleware.handle(new DummyCommand("first tenant"), next);
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand("first tenant"), next));
+      Object otherTenantResult = middleware.handle(new DummyCommand("second tenant"), next);
+
+      // Assert
+      assertThat(exception).isInstanceOf(RateLimitExceededException.class)
+          .hasMessageContaining("first tenant");
+      assertThat(otherTenantResult).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should keep limiting an exhausted tenant among many tenants")
+    void shouldKeepLimitingExhaustedTenantAmongManyTenants() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(
+          new RateLimit(1, 1, TimeUnit.SECONDS), Collections.emptyMap(),
+          message -> ((DummyCommand) message).tenant, nanoClock::get);
+      middleware.handle(new DummyCommand("exhausted tenant"), next);
+      nanoClock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+      // Act
+      for (int i = 0; i < 20_000; i++) {
+        middleware.handle(new DummyCommand("tenant " + i), next);
+      }
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand("exhausted tenant"), next));
+
+      // Assert
+      assertThat(exception).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    @DisplayName("should limit a tenant again once its idle bucket was dropped")
+    void shouldLimitTenantAgainOnceItsIdleBucketWasDropped() throws Exception {
+      // Arrange
+      RateLimitingMiddleware middleware = new RateLimitingMiddleware(
+          new RateLimit(1, 1, TimeUnit.SECONDS), Collections.emptyMap(),
+          message -> ((DummyCommand) message).tenant, nanoClock::get);
+      for (int i = 0; i < 10_000; i++) {
+        middleware.handle(new DummyCommand("tenant " + i), next);
+      }
+      nanoClock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      for (int i = 10_000; i < 20_000; i++) {
+        middleware.handle(new DummyCommand("tenant " + i), next);
+      }
+
+      // Act
+      Object firstResult = middleware.handle(new DummyCommand("tenant 0"), next);
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand("tenant 0"), next));
+
+      // Assert
+      assertThat(firstResult).isEqualTo("result");
+      assertThat(exception).isInstanceOf(RateLimitExceededException.class);
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object> {
+    private final String tenant;
+
+    DummyCommand(String tenant) {
+      this.tenant = tenant;
+    }
+  }
+
+  static class OtherDummyCommand implements Command<Object> {}
+  // endregion
+}
@@ -0,0 +1,181 @@
+package net.dathoang.cqrs.commandbus.middleware.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class RetryMiddlewareTest {
+  private static final RetryPolicy POLICY = new RetryPolicy(3, 10, 15, TimeUnit.MILLISECONDS);
+
+  private final List<Long> sleeps = new ArrayList<>();
+  private final AtomicInteger attemptCount = new AtomicInteger();
+
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should retry deadlocks with a jittered backoff until an attempt succeeds")
+    void shouldRetryDeadlocksUntilAttemptSucceeds() throws Exception {
+      // Arrange
+      RetryMiddleware middleware = createMiddleware(RetryBudget.unlimited());
+
+      // Act
+      Object result = middleware.handle(new DummyCommand(), failingNext(2));
+
+      // Assert
+      assertThat(result).isEqualTo("result");
+      assertThat(attemptCount.get()).isEqualTo(3);
+      assertThat(sleeps).hasSize(2);
+      assertThat(sleeps.get(0)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(10));
+      assertThat(sleeps.get(1)).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(15));
+      RetryMetrics metrics = middleware.getMetrics().get(DummyCommand.class);
+      assertThat(metrics.getAttempts()).isEqualTo(3);
+      assertThat(metrics.getRetries()).isEqualTo(2);
+      assertThat(metrics.getSucceededAfterRetries()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should throw the last exception once the attempts are exhausted")
+    void shouldThrowLastExceptionOnceAttemptsAreExhausted() {
+      // Arrange
+      RetryMiddleware middleware = createMiddleware(RetryBudget.unlimited());
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand(), failingNext(5)));
+
+      // Assert
+      assertThat(exception).hasMessage("Deadlock 3");
+      assertThat(attemptCount.get()).isEqualTo(3);
+      assertThat(middleware.getMetrics().get(DummyCommand.class).getExhaustedAttempts())
+          .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not retry the exceptions which aren't retryable")
+    void shouldNotRetryExceptionsWhichAreNotRetryable() {
+      // Arrange
+      RetryMiddleware middleware = createMiddleware(RetryBudget.unlimited());
+      Exception exception = new IllegalStateException("Not a deadlock");
+
+      // Act
+      Throwable thrown = catchThrowable(() -> middleware.handle(new DummyCommand(), message -> {
+        attemptCount.incrementAndGet();
+        throw exception;
+      }));
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(attemptCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should stop retrying once the budget is empty")
+    void shouldStopRetryingOnceBudgetIsEmpty() {
+      // Arrange
+      RetryMiddleware middleware = createMiddleware(new RetryBudget(0, 1));
+
+      // Act
+      Throwable exception = catchThrowable(() ->
+          middleware.handle(new DummyCommand(), failingNext(5)));
+
+      // Assert
+      assertThat(exception).hasMessage("Deadlock 2");
+      assertThat(middleware.getMetrics().get(DummyCommand.class).getExhaustedBudget())
+          .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should not retry when the deadline would pass before the next attempt")
+    void shouldNotRetryWhenDeadlineWouldPassBeforeNextAttempt() {
+      // Arrange
+      RetryMiddleware middleware = createMiddleware(RetryBudget.unlimited());
+
+      // Act
+      Throwable exception;
+      try (DispatchContext.Scope scope =
+          DispatchContext.current().withDeadline(System.nanoTime()).attach()) {
+        exception = catchThrowable(() -> middleware.handle(new DummyCommand(), failingNext(5)));
+      }
+
+      // Assert
+      assertThat(exception).hasMessage("Deadlock 1");
+      assertThat(sleeps).isEmpty();
+      assertThat(middleware.getMetrics().get(DummyCommand.class).getExhaustedDeadline())
+          .isEqualTo(1);
+    }
+
+    private RetryMiddleware createMiddleware(RetryBudget budget) {
+      return new RetryMiddleware(POLICY, RetryableExceptions::isDeadlock, budget, sleeps::add);
+    }
+
+    private NextMiddlewareFunction<Message<Object>, Object> failingNext(int failures) {
+      return message -> {
+        int attempt = attemptCount.incrementAndGet();
+        if (attempt <= failures) {
+          throw new SQLTransactionRollbackException("Deadlock " + attempt, "40001");
+        }
+        return "result";
+      };
+    }
+  }
+
+  @Nested
+  @DisplayName("RetryableExceptions.isDeadlock()")
+  class IsDeadlock {
+    @Test
+    @DisplayName("should detect deadlocks along the cause chain")
+    void shouldDetectDeadlocksAlongCauseChain() {
+      assertThat(RetryableExceptions.isDeadlock(
+          new RuntimeException(new SQLException("Deadlock", "40P01")))).isTrue();
+      assertThat(RetryableExceptions.isDeadlock(
+          new SQLException("Deadlock", "HY000", 1213))).isTrue();
+      assertThat(RetryableExceptions.isDeadlock(
+          new RuntimeException(new DummyDeadlockLoserException()))).isTrue();
+      assertThat(RetryableExceptions.isDeadlock(
+          new RuntimeException(new SQLException("Syntax error", "42000")))).isFalse();
+    }
+  }
+
+  @Nested
+  @DisplayName("RetryBudget")
+  class Budget {
+    @Test
+    @DisplayName("should earn retries as a ratio of the calls, up to its maximum")
+    void shouldEarnRetriesAsRatioOfCalls() {
+      // Arrange
+      RetryBudget budget = new RetryBudget(0.5, 2);
+      budget.tryWithdraw();
+      budget.tryWithdraw();
+
+      // Act
+      boolean withdrawnWithEmptyBudget = budget.tryWithdraw();
+      for (int i = 0; i < 10; i++) {
+        budget.deposit();
+      }
+
+      // Assert
+      assertThat(withdrawnWithEmptyBudget).isFalse();
+      assertThat(budget.getAvailableRetries()).isEqualTo(2);
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object> {}
+
+  static class DummyDeadlockLoserException extends RuntimeException {}
+  // endregion
+}
@@ -0,0 +1,87 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput of {@link RingBufferCommandBus} with {@link DefaultAsyncCommandBus} on
+ * a fixed thread pool, with several threads dispatching and waiting for trivial commands, so that
+ * the handoff between the dispatching and the handling threads dominates.
+ *
+ * <p>Run with {@code ./gradlew :commandbus-core:jmh -PjmhArgs="AsyncCommandBusBenchmark"}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AsyncCommandBusBenchmark {
+  private static final int CONSUMER_COUNT = 2;
+
+  private ExecutorService executor;
+  private DefaultAsyncCommandBus executorCommandBus;
+  private RingBufferCommandBus ringBufferCommandBus;
+  private final DummyCommand command = new DummyCommand();
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(CONSUMER_COUNT);
+    executorCommandBus = new DefaultAsyncCommandBus(new DummyCommandHandlerFactory(),
+        Collections.emptyList(), Collections.emptyList(), executor);
+    ringBufferCommandBus = new RingBufferCommandBus(new DummyCommandHandlerFactory(),
+        Collections.emptyList(), 1024, CONSUMER_COUNT);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    executor.shutdown();
+    ringBufferCommandBus.close();
+  }
+
+  @Benchmark
+  public Object executor() throws Exception {
+    return executorCommandBus.dispatch(command).get();
+  }
+
+  @Benchmark
+  public Object ringBuffer() throws Exception {
+    return ringBufferCommandBus.dispatch(command).get();
+  }
+
+  // region Dummy command & handler
+  public static class DummyCommand implements Command<Object> {}
+
+  public static class DummyCommandHandler implements CommandHandler<DummyCommand, Object> {
+    @Override
+    public Object handle(DummyCommand command) {
+      return command;
+    }
+  }
+
+  public static class DummyCommandHandlerFactory implements CommandHandlerFactory {
+    private final DummyCommandHandler handler = new DummyCommandHandler();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> CommandHandler<Command<R>, R> createCommandHandler(String commandName) {
+      return (CommandHandler) handler;
+    }
+  }
+  // endregion
+}
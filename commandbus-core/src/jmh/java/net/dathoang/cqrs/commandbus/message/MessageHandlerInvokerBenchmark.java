@@ -0,0 +1,156 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.CommandHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares calling handlers through the generic {@link MessageHandler} interface (the path taken
+ * by the buses before the invokers existed) with {@link MessageHandlerInvokers}, a raw
+ * {@link MethodHandle} and reflection. The "megamorphic" benchmarks cycle through several handler
+ * classes, like a bus serving several message types does.
+ *
+ * <p>Run with {@code ./gradlew :commandbus-core:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageHandlerInvokerBenchmark {
+  private static final int HANDLER_COUNT = 4;
+
+  private MessageHandler<Message<Object>, Object>[] handlers;
+  private MessageHandlerInvoker[] invokers;
+  private MethodHandle[] methodHandles;
+  private Method[] methods;
+  private Message<Object>[] messages;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    handlers = new MessageHandler[] {
+        new FirstHandler(), new SecondHandler(), new ThirdHandler(), new FourthHandler()};
+    messages = new Message[] {
+        new FirstCommand(), new SecondCommand(), new ThirdCommand(), new FourthCommand()};
+    invokers = new MessageHandlerInvoker[HANDLER_COUNT];
+    methodHandles = new MethodHandle[HANDLER_COUNT];
+    methods = new Method[HANDLER_COUNT];
+    for (int i = 0; i < HANDLER_COUNT; i++) {
+      Class<?> handlerClass = handlers[i].getClass();
+      invokers[i] = MessageHandlerInvokers.forHandlerClass(handlerClass);
+      methods[i] = handlerClass.getMethod("handle", messages[i].getClass());
+      methodHandles[i] = MethodHandles.publicLookup().unreflect(methods[i])
+          .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+    }
+  }
+
+  @Benchmark
+  public Object interfaceCall() throws Exception {
+    return handlers[0].handle(messages[0]);
+  }
+
+  @Benchmark
+  public Object invoker() throws Exception {
+    return invokers[0].invoke(handlers[0], messages[0]);
+  }
+
+  @Benchmark
+  public Object cachedInvokerLookup() throws Exception {
+    return MessageHandlerInvokers.invoke(handlers[0], messages[0]);
+  }
+
+  @Benchmark
+  public Object methodHandle() throws Throwable {
+    return (Object) methodHandles[0].invokeExact((Object) handlers[0], (Object) messages[0]);
+  }
+
+  @Benchmark
+  public Object reflection() throws Exception {
+    return methods[0].invoke(handlers[0], messages[0]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(HANDLER_COUNT)
+  public Object megamorphicInterfaceCall() throws Exception {
+    Object result = null;
+    for (int i = 0; i < HANDLER_COUNT; i++) {
+      result = handlers[i].handle(messages[i]);
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(HANDLER_COUNT)
+  public Object megamorphicInvoker() throws Exception {
+    Object result = null;
+    for (int i = 0; i < HANDLER_COUNT; i++) {
+      result = invokers[i].invoke(handlers[i], messages[i]);
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(HANDLER_COUNT)
+  public Object megamorphicMethodHandle() throws Throwable {
+    Object result = null;
+    for (int i = 0; i < HANDLER_COUNT; i++) {
+      result = (Object) methodHandles[i].invokeExact((Object) handlers[i], (Object) messages[i]);
+    }
+    return result;
+  }
+
+  // region Dummy commands & handlers
+  public static class FirstCommand implements Command<Object> {}
+
+  public static class SecondCommand implements Command<Object> {}
+
+  public static class ThirdCommand implements Command<Object> {}
+
+  public static class FourthCommand implements Command<Object> {}
+
+  public static class FirstHandler implements CommandHandler<FirstCommand, Object> {
+    @Override
+    public Object handle(FirstCommand command) {
+      return command;
+    }
+  }
+
+  public static class SecondHandler implements CommandHandler<SecondCommand, Object> {
+    @Override
+    public Object handle(SecondCommand command) {
+      return command;
+    }
+  }
+
+  public static class ThirdHandler implements CommandHandler<ThirdCommand, Object> {
+    @Override
+    public Object handle(ThirdCommand command) {
+      return command;
+    }
+  }
+
+  public static class FourthHandler implements CommandHandler<FourthCommand, Object> {
+    @Override
+    public Object handle(FourthCommand command) {
+      return command;
+    }
+  }
+  // endregion
+}
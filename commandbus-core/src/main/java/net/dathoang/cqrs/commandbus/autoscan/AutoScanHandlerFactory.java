@@ -1,11 +1,18 @@
 package net.dathoang.cqrs.commandbus.autoscan;
 
+import net.dathoang.cqrs.commandbus.command.ClassKeyedCommandHandlerFactory;
 import net.dathoang.cqrs.commandbus.command.Command;
 import net.dathoang.cqrs.commandbus.command.CommandHandler;
-import net.dathoang.cqrs.commandbus.command.CommandHandlerFactory;
+import net.dathoang.cqrs.commandbus.event.ClassKeyedEventHandlerFactory;
+import net.dathoang.cqrs.commandbus.event.Event;
+import net.dathoang.cqrs.commandbus.event.EventHandler;
+import net.dathoang.cqrs.commandbus.event.EventSubscription;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.message.MessageHandler;
+import net.dathoang.cqrs.commandbus.message.MessageHandlerInvokers;
+import net.dathoang.cqrs.commandbus.query.ClassKeyedQueryHandlerFactory;
 import net.dathoang.cqrs.commandbus.query.Query;
 import net.dathoang.cqrs.commandbus.query.QueryHandler;
-import net.dathoang.cqrs.commandbus.query.QueryHandlerFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reflections.Reflections;
@@ -15,11 +22,17 @@ import java.util.function.Function;
 
 import static java.util.Arrays.asList;
 
-public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandlerFactory {
+public class AutoScanHandlerFactory
+    implements ClassKeyedQueryHandlerFactory, ClassKeyedCommandHandlerFactory,
+    ClassKeyedEventHandlerFactory {
   private static final Log log = LogFactory.getLog(AutoScanHandlerFactory.class);
 
   private Map<String, Class<? extends QueryHandler>> handlerClassByQueryNameMap = new HashMap<>();
   private Map<String, Class<? extends CommandHandler>> handlerClassByCommandNameMap = new HashMap<>();
+  private Map<String, List<Class<? extends EventHandler>>> handlerClassesByEventNameMap =
+      new HashMap<>();
+  private Map<Class<?>, HandlerInstanceProvider> instanceProviderByHandlerClassMap =
+      new HashMap<>();
 
   private BeanFactory beanFactory;
 
@@ -28,10 +41,11 @@ public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandl
   }
 
   public void scanAndRegisterHandlers(String packageToScan) {
-    log.info("Scanning query & command handlers in the package: " + packageToScan);
+    log.info("Scanning query, command & event handlers in the package: " + packageToScan);
     Reflections reflections = new Reflections(packageToScan);
     Set<Class<? extends QueryHandler>> queryClasses = reflections.getSubTypesOf(QueryHandler.class);
     Set<Class<? extends CommandHandler>> commandClasses = reflections.getSubTypesOf(CommandHandler.class);
+    Set<Class<? extends EventHandler>> eventClasses = reflections.getSubTypesOf(EventHandler.class);
 
     queryClasses.forEach(queryClass -> {
       QueryMappings multiMappingAnnotation = queryClass.getAnnotation(QueryMappings.class);
@@ -43,12 +57,14 @@ public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandl
               queryClass.getSimpleName(), queryMapping.value().getName()));
 
           handlerClassByQueryNameMap.put(queryMapping.value().getName(), queryClass);
+          registerInstanceProvider(queryClass);
         });
       } else if (mappingAnnotation != null) {
         log.info(String.format("Registering handler %s to handle the query %s",
             queryClass.getSimpleName(), mappingAnnotation.value().getName()));
 
         handlerClassByQueryNameMap.put(mappingAnnotation.value().getName(), queryClass);
+        registerInstanceProvider(queryClass);
       }
     });
 
@@ -62,12 +78,29 @@ public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandl
               commandClass.getSimpleName(), commandMapping.value().getName()));
 
           handlerClassByCommandNameMap.put(commandMapping.value().getName(), commandClass);
+          registerInstanceProvider(commandClass);
         });
       } else if (mappingAnnotation != null) {
         log.info(String.format("Registering handler %s to handle the command %s",
             commandClass.getSimpleName(), mappingAnnotation.value().getName()));
 
         handlerClassByCommandNameMap.put(mappingAnnotation.value().getName(), commandClass);
+        registerInstanceProvider(commandClass);
+      }
+    });
+
+    // getAnnotationsByType() finds both a single mapping and the ones grouped by EventMappings
+    eventClasses.forEach(eventClass -> {
+      for (EventMapping eventMapping : eventClass.getAnnotationsByType(EventMapping.class)) {
+        log.info(String.format("Registering handler %s to handle the event %s",
+            eventClass.getSimpleName(), eventMapping.value().getName()));
+
+        List<Class<? extends EventHandler>> handlerClasses = handlerClassesByEventNameMap
+            .computeIfAbsent(eventMapping.value().getName(), eventName -> new ArrayList<>());
+        if (!handlerClasses.contains(eventClass)) {
+          handlerClasses.add(eventClass);
+        }
+        registerInstanceProvider(eventClass);
       }
     });
   }
@@ -80,7 +113,11 @@ public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandl
       return null;
     }
 
-    return beanFactory.createBean(handlerClass);
+    HandlerInstanceProvider instanceProvider = instanceProviderByHandlerClassMap.get(handlerClass);
+    if (instanceProvider.isPooled()) {
+      return query -> handleWithScopedInstance(instanceProvider, query);
+    }
+    return (QueryHandler<Query<R>, R>) instanceProvider.acquire();
   }
 
   @SuppressWarnings("unchecked")
@@ -91,6 +128,88 @@ public class AutoScanHandlerFactory implements QueryHandlerFactory, CommandHandl
       return null;
     }
 
-    return beanFactory.createBean(handlerClass);
+    HandlerInstanceProvider instanceProvider = instanceProviderByHandlerClassMap.get(handlerClass);
+    if (instanceProvider.isPooled()) {
+      return command -> handleWithScopedInstance(instanceProvider, command);
+    }
+    return (CommandHandler<Command<R>, R>) instanceProvider.acquire();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E extends Event> List<EventHandler<E>> createEventHandlers(String eventName) {
+    List<Class<? extends EventHandler>> handlerClasses =
+        handlerClassesByEventNameMap.getOrDefault(eventName, Collections.emptyList());
+    List<EventHandler<E>> handlers = new ArrayList<>(handlerClasses.size());
+    for (Class<? extends EventHandler> handlerClass : handlerClasses) {
+      HandlerInstanceProvider instanceProvider =
+          instanceProviderByHandlerClassMap.get(handlerClass);
+      if (instanceProvider.isPooled()) {
+        handlers.add(event -> handleWithScopedInstance(instanceProvider, event));
+      } else {
+        handlers.add((EventHandler<E>) instanceProvider.acquire());
+      }
+    }
+    return handlers;
+  }
+
+  @Override
+  public <R> QueryHandler<Query<R>, R> resolveQueryHandler(Class<?> queryClass) {
+    Class<? extends QueryHandler> handlerClass =
+        handlerClassByQueryNameMap.get(queryClass.getName());
+    if (handlerClass == null) {
+      return null;
+    }
+
+    HandlerInstanceProvider instanceProvider = instanceProviderByHandlerClassMap.get(handlerClass);
+    return query -> handleWithScopedInstance(instanceProvider, query);
+  }
+
+  @Override
+  public <R> CommandHandler<Command<R>, R> resolveCommandHandler(Class<?> commandClass) {
+    Class<? extends CommandHandler> handlerClass =
+        handlerClassByCommandNameMap.get(commandClass.getName());
+    if (handlerClass == null) {
+      return null;
+    }
+
+    HandlerInstanceProvider instanceProvider = instanceProviderByHandlerClassMap.get(handlerClass);
+    return command -> handleWithScopedInstance(instanceProvider, command);
+  }
+
+  @Override
+  public <E extends Event> List<EventSubscription<E>> resolveEventSubscriptions(
+      Class<?> eventClass) {
+    List<Class<? extends EventHandler>> handlerClasses =
+        handlerClassesByEventNameMap.get(eventClass.getName());
+    if (handlerClasses == null) {
+      return null;
+    }
+
+    List<EventSubscription<E>> subscriptions = new ArrayList<>(handlerClasses.size());
+    for (Class<? extends EventHandler> handlerClass : handlerClasses) {
+      HandlerInstanceProvider instanceProvider =
+          instanceProviderByHandlerClassMap.get(handlerClass);
+      subscriptions.add(new EventSubscription<>(handlerClass,
+          event -> handleWithScopedInstance(instanceProvider, event)));
+    }
+    return subscriptions;
+  }
+
+  private void registerInstanceProvider(Class<?> handlerClass) {
+    instanceProviderByHandlerClassMap.computeIfAbsent(handlerClass,
+        cls -> HandlerInstanceProvider.forHandlerClass(cls, beanFactory));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> R handleWithScopedInstance(HandlerInstanceProvider instanceProvider,
+      Message<R> message) throws Exception {
+    MessageHandler<Message<R>, R> handler =
+        (MessageHandler<Message<R>, R>) instanceProvider.acquire();
+    try {
+      return MessageHandlerInvokers.invoke(handler, message);
+    } finally {
+      instanceProvider.release(handler);
+    }
   }
 }
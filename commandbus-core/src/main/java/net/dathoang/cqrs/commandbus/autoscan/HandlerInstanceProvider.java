@@ -0,0 +1,157 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Provides the instances of a handler class according to its {@link HandlerScope}.
+ */
+abstract class HandlerInstanceProvider {
+  final Class<?> handlerClass;
+  final BeanFactory beanFactory;
+
+  private HandlerInstanceProvider(Class<?> handlerClass, BeanFactory beanFactory) {
+    this.handlerClass = handlerClass;
+    this.beanFactory = beanFactory;
+  }
+
+  static HandlerInstanceProvider forHandlerClass(Class<?> handlerClass, BeanFactory beanFactory) {
+    HandlerScope scope = handlerClass.getAnnotation(HandlerScope.class);
+    HandlerScopeType scopeType = scope != null ? scope.value() : HandlerScopeType.PROTOTYPE;
+    switch (scopeType) {
+      case SINGLETON:
+        return new SingletonProvider(handlerClass, beanFactory);
+      case THREAD:
+        return new ThreadProvider(handlerClass, beanFactory);
+      case POOLED:
+        return new PooledProvider(handlerClass, beanFactory, scope.poolSize());
+      case PROTOTYPE:
+      default:
+        return new PrototypeProvider(handlerClass, beanFactory);
+    }
+  }
+
+  /**
+   * Get a handler instance to handle one dispatch.
+   */
+  abstract Object acquire();
+
+  /**
+   * Give back an instance returned by {@link #acquire()} once its dispatch is done.
+   */
+  void release(Object handler) {
+    // Only pooled instances need to be given back
+  }
+
+  /**
+   * Whether instances must be given back through {@link #release(Object)} after each dispatch.
+   */
+  boolean isPooled() {
+    return false;
+  }
+
+  Object createInstance() {
+    return beanFactory.createBean(handlerClass);
+  }
+
+  private static final class PrototypeProvider extends HandlerInstanceProvider {
+    PrototypeProvider(Class<?> handlerClass, BeanFactory beanFactory) {
+      super(handlerClass, beanFactory);
+    }
+
+    @Override
+    Object acquire() {
+      return createInstance();
+    }
+  }
+
+  private static final class SingletonProvider extends HandlerInstanceProvider {
+    private volatile Object instance;
+
+    SingletonProvider(Class<?> handlerClass, BeanFactory beanFactory) {
+      super(handlerClass, beanFactory);
+    }
+
+    @Override
+    Object acquire() {
+      Object result = instance;
+      if (result == null) {
+        synchronized (this) {
+          result = instance;
+          if (result == null) {
+            result = createInstance();
+            instance = result;
+          }
+        }
+      }
+      return result;
+    }
+  }
+
+  private static final class ThreadProvider extends HandlerInstanceProvider {
+    private final ThreadLocal<Object> instances = ThreadLocal.withInitial(this::createInstance);
+
+    ThreadProvider(Class<?> handlerClass, BeanFactory beanFactory) {
+      super(handlerClass, beanFactory);
+    }
+
+    @Override
+    Object acquire() {
+      return instances.get();
+    }
+  }
+
+  private static final class PooledProvider extends HandlerInstanceProvider {
+    private final int poolSize;
+    private final BlockingQueue<Object> idleInstances;
+    private final AtomicInteger createdInstanceCount = new AtomicInteger();
+
+    PooledProvider(Class<?> handlerClass, BeanFactory beanFactory, int poolSize) {
+      super(handlerClass, beanFactory);
+      if (poolSize <= 0) {
+        throw new IllegalArgumentException(String.format(
+            "Pool size of %s must be positive, but was %d", handlerClass.getName(), poolSize));
+      }
+      this.poolSize = poolSize;
+      this.idleInstances = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    Object acquire() {
+      Object instance = idleInstances.poll();
+      if (instance != null) {
+        return instance;
+      }
+
+      if (createdInstanceCount.incrementAndGet() <= poolSize) {
+        try {
+          return createInstance();
+        } catch (RuntimeException ex) {
+          createdInstanceCount.decrementAndGet();
+          throw ex;
+        }
+      }
+      createdInstanceCount.decrementAndGet();
+
+      try {
+        return idleInstances.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new CommandBusException(String.format(
+            "Interrupted while waiting for a pooled instance of %s", handlerClass.getName()));
+      }
+    }
+
+    @Override
+    void release(Object handler) {
+      idleInstances.offer(handler);
+    }
+
+    @Override
+    boolean isPooled() {
+      return true;
+    }
+  }
+}
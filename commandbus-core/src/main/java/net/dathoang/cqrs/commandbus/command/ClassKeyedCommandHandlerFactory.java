@@ -0,0 +1,11 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import net.dathoang.cqrs.commandbus.message.ClassKeyedMessageHandlerFactory;
+
+/**
+ * A {@link CommandHandlerFactory} that can also resolve handlers by command class. See
+ * {@link ClassKeyedMessageHandlerFactory} for how the resolved handler is cached and reused.
+ */
+public interface ClassKeyedCommandHandlerFactory extends CommandHandlerFactory {
+  <R> CommandHandler<Command<R>, R> resolveCommandHandler(Class<?> commandClass);
+}
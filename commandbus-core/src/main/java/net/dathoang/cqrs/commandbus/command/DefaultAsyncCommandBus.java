@@ -0,0 +1,35 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import net.dathoang.cqrs.commandbus.command.DefaultCommandBus.MessageHandlerFactoryAdapter;
+import net.dathoang.cqrs.commandbus.message.AsyncMessageBus;
+import net.dathoang.cqrs.commandbus.message.DefaultAsyncMessageBus;
+import net.dathoang.cqrs.commandbus.message.DefaultMessageBus;
+import net.dathoang.cqrs.commandbus.middleware.AsyncMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+
+/**
+ * An {@link AsyncCommandBus} which handles commands on an {@link Executor}. The async middlewares
+ * run on the dispatching thread, the middlewares and the command handler run on the executor.
+ */
+public final class DefaultAsyncCommandBus implements AsyncCommandBus {
+  private final AsyncMessageBus defaultAsyncMessageBus;
+
+  public DefaultAsyncCommandBus(CommandHandlerFactory commandHandlerFactory,
+      List<Middleware> middlewareList, List<AsyncMiddleware> asyncMiddlewareList,
+      Executor executor) {
+    this.defaultAsyncMessageBus = new DefaultAsyncMessageBus(
+        new DefaultMessageBus(new MessageHandlerFactoryAdapter(commandHandlerFactory),
+            middlewareList),
+        asyncMiddlewareList,
+        executor
+    );
+  }
+
+  @Override
+  public <R> CompletableFuture<R> dispatch(Command<R> command) {
+    return defaultAsyncMessageBus.dispatch(command);
+  }
+}
@@ -21,7 +21,12 @@ public final class DefaultCommandBus implements CommandBus {
     return defaultMessageBus.dispatch(command);
   }
 
-  static class MessageHandlerFactoryAdapter implements MessageHandlerFactory {
+  @Override
+  public <R> List<R> dispatchAll(List<? extends Command<? extends R>> commands) throws Exception {
+    return defaultMessageBus.dispatchAll(commands);
+  }
+
+  static class MessageHandlerFactoryAdapter implements ClassKeyedMessageHandlerFactory {
 
     private final CommandHandlerFactory commandHandlerFactory;
 
@@ -37,22 +42,19 @@ public final class DefaultCommandBus implements CommandBus {
         throw new NoHandlerFoundException(messageName);
       }
 
-      return new MessageHandlerAdapter<>(handler);
-    }
-  }
-
-  static class MessageHandlerAdapter<M extends Message<R>, R> implements MessageHandler<M, R> {
-
-    private final CommandHandler<Command<R>, R> commandHandler;
-
-    MessageHandlerAdapter(CommandHandler<Command<R>, R> commandHandler) {
-      this.commandHandler = commandHandler;
+      return handler;
     }
 
-    @Override
     @SuppressWarnings("unchecked")
-    public R handle(M message) throws Exception {
-      return commandHandler.handle((Command<R>)message);
+    @Override
+    public <R> MessageHandler<Message<R>, R> resolveHandler(Class<?> messageClass) {
+      if (!(commandHandlerFactory instanceof ClassKeyedCommandHandlerFactory)) {
+        return null;
+      }
+
+      CommandHandler handler = ((ClassKeyedCommandHandlerFactory) commandHandlerFactory)
+          .resolveCommandHandler(messageClass);
+      return handler;
     }
   }
 }
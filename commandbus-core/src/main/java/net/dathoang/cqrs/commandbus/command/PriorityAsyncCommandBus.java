@@ -0,0 +1,178 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.message.AdmissionGate;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.DispatchPriority;
+
+/**
+ * An {@link AsyncCommandBus} whose worker threads take the pending commands by priority, and hand
+ * them to a delegate {@link CommandBus}. The priority of a command comes from the
+ * {@link DispatchContext} of the dispatching thread, or from the {@link DispatchPriority} of its
+ * class, and the context is attached to the worker handling the command.
+ *
+ * <p>To keep low priority commands from starving, the commands are ordered by a virtual start
+ * time: the time they were dispatched at, minus their priority multiplied by the aging period.
+ * A command therefore overtakes the commands dispatched less than one aging period earlier for
+ * each priority level it has above them, and is overtaken by none of the commands dispatched
+ * later than that. Commands with the same virtual start time are taken in dispatch order.
+ */
+public final class PriorityAsyncCommandBus implements AsyncCommandBus, AutoCloseable {
+  // A quarter of the range, so that the difference of two virtual start times can't overflow
+  private static final long MAX_PRIORITY_OFFSET_NANOS = Long.MAX_VALUE / 4;
+
+  private final CommandBus delegate;
+  private final long agingNanos;
+  private final PriorityBlockingQueue<PendingCommand> pendingCommands =
+      new PriorityBlockingQueue<>();
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final List<Thread> workers = new ArrayList<>();
+  private final AdmissionGate admissionGate = new AdmissionGate();
+
+  /**
+   * Create the bus and start its workers.
+   *
+   * @param delegate the bus handling the commands on the worker threads
+   * @param workerCount the number of worker threads
+   * @param agingPeriod how long a command waits to gain one priority level, positive. A period
+   *        longer than any wait, such as {@code Long.MAX_VALUE} days, orders the commands strictly
+   *        by priority
+   * @param unit the unit of the aging period
+   */
+  public PriorityAsyncCommandBus(CommandBus delegate, int workerCount, long agingPeriod,
+      TimeUnit unit) {
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("workerCount must be positive");
+    }
+    if (agingPeriod <= 0) {
+      // A zero period would give every command the same priority, and order them by dispatch only
+      throw new IllegalArgumentException("agingPeriod must be positive");
+    }
+    this.delegate = delegate;
+    this.agingNanos = unit.toNanos(agingPeriod);
+    for (int i = 0; i < workerCount; i++) {
+      Thread worker = new Thread(this::work, "commandbus-priority-worker-" + i);
+      worker.setDaemon(true);
+      workers.add(worker);
+      worker.start();
+    }
+  }
+
+  @Override
+  public <R> CompletableFuture<R> dispatch(Command<R> command) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    if (!admissionGate.tryEnter()) {
+      result.completeExceptionally(
+          new RejectedExecutionException("The priority command bus is closed"));
+      return result;
+    }
+
+    try {
+      DispatchContext context = DispatchContext.current();
+      long virtualStartNanos =
+          System.nanoTime() - priorityOffsetNanos(context.getPriority(command));
+      pendingCommands.add(new PendingCommand(command, result, context, virtualStartNanos,
+          nextSequence.getAndIncrement()));
+    } finally {
+      admissionGate.exit();
+    }
+    return result;
+  }
+
+  /**
+   * Stop the workers once they have handled the commands already dispatched. The commands
+   * dispatched afterwards are rejected.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    // Once closed, no dispatch is adding a command anymore
+    admissionGate.close();
+    for (int i = 0; i < workers.size(); i++) {
+      pendingCommands.add(PendingCommand.POISON_PILL);
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    // Reject the commands a worker interrupted before its poison pill left behind
+    PendingCommand pendingCommand;
+    while ((pendingCommand = pendingCommands.poll()) != null) {
+      if (pendingCommand != PendingCommand.POISON_PILL) {
+        pendingCommand.result.completeExceptionally(
+            new RejectedExecutionException("The priority command bus is closed"));
+      }
+    }
+  }
+
+  /**
+   * Get how much earlier than its dispatch a command of the priority virtually starts. The offset
+   * is capped, so that the virtual start times stay comparable despite long aging periods.
+   */
+  private long priorityOffsetNanos(int priority) {
+    if (Math.abs((long) priority) > MAX_PRIORITY_OFFSET_NANOS / agingNanos) {
+      return priority > 0 ? MAX_PRIORITY_OFFSET_NANOS : -MAX_PRIORITY_OFFSET_NANOS;
+    }
+    return priority * agingNanos;
+  }
+
+  private void work() {
+    while (true) {
+      PendingCommand pendingCommand;
+      try {
+        pendingCommand = pendingCommands.take();
+      } catch (InterruptedException ex) {
+        return;
+      }
+      if (pendingCommand == PendingCommand.POISON_PILL) {
+        return;
+      }
+      pendingCommand.handle(delegate);
+    }
+  }
+
+  private static final class PendingCommand implements Comparable<PendingCommand> {
+    // Sorted after every command so that the workers first handle the pending commands
+    private static final PendingCommand POISON_PILL =
+        new PendingCommand(null, null, null, 0, Long.MAX_VALUE);
+
+    private final Command<Object> command;
+    private final CompletableFuture<Object> result;
+    private final DispatchContext context;
+    private final long virtualStartNanos;
+    private final long sequence;
+
+    @SuppressWarnings("unchecked")
+    PendingCommand(Command<?> command, CompletableFuture<?> result, DispatchContext context,
+        long virtualStartNanos, long sequence) {
+      this.command = (Command<Object>) command;
+      this.result = (CompletableFuture<Object>) result;
+      this.context = context;
+      this.virtualStartNanos = virtualStartNanos;
+      this.sequence = sequence;
+    }
+
+    void handle(CommandBus delegate) {
+      try (DispatchContext.Scope scope = context.attach()) {
+        result.complete(delegate.dispatch(command));
+      } catch (Throwable ex) {
+        result.completeExceptionally(ex);
+      }
+    }
+
+    @Override
+    public int compareTo(PendingCommand other) {
+      if (this == POISON_PILL || other == POISON_PILL) {
+        return Boolean.compare(this == POISON_PILL, other == POISON_PILL);
+      }
+      // Compare the difference, as System.nanoTime() values may overflow
+      int byVirtualStart = Long.signum(virtualStartNanos - other.virtualStartNanos);
+      return byVirtualStart != 0 ? byVirtualStart : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import net.dathoang.cqrs.commandbus.command.DefaultCommandBus.MessageHandlerFactoryAdapter;
+import net.dathoang.cqrs.commandbus.message.AdmissionGate;
+import net.dathoang.cqrs.commandbus.message.DefaultMessageBus;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.MessageBus;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+
+/**
+ * An {@link AsyncCommandBus} which publishes the commands into a preallocated ring buffer, from
+ * which dedicated consumer threads take them and run them through the middleware pipeline and
+ * the command handler, with the {@link DispatchContext} of the dispatching thread attached.
+ *
+ * <p>Producers and consumers coordinate without locks: each slot of the buffer carries a sequence
+ * number telling whether it is free for the producer claiming that position or filled for the
+ * consumer claiming it, and the positions are claimed with a compare-and-set on two counters.
+ * Publishing a command therefore doesn't allocate a queue node nor take a lock, unlike handing it
+ * to a queue-based executor. When the buffer is full, producers wait for a free slot, so a slow
+ * handler applies back pressure to the dispatching threads.
+ *
+ * <p>Idle consumers spin, then yield, then park for short periods, which trades some CPU for
+ * latency. Size the consumer count below the number of available cores.
+ */
+public final class RingBufferCommandBus implements AsyncCommandBus, AutoCloseable {
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final MessageBus messageBus;
+  private final int mask;
+  private final Slot[] slots;
+  private final AtomicLongArray sequences;
+  private final AtomicLong producerPosition = new AtomicLong();
+  private final AtomicLong consumerPosition = new AtomicLong();
+  private final List<Thread> consumers = new ArrayList<>();
+  private final AdmissionGate admissionGate = new AdmissionGate();
+  // Set once no producer is publishing anymore, so that the consumers leave once idle
+  private volatile boolean isClosed;
+
+  /**
+   * Create the bus and start its consumers.
+   *
+   * @param commandHandlerFactory the factory creating the command handlers
+   * @param middlewareList the middlewares run by the consumers before the command handler
+   * @param bufferSize the number of slots of the ring buffer, a power of two
+   * @param consumerCount the number of consumer threads
+   */
+  public RingBufferCommandBus(CommandHandlerFactory commandHandlerFactory,
+      List<Middleware> middlewareList, int bufferSize, int consumerCount) {
+    if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+      throw new IllegalArgumentException("bufferSize must be a power of two");
+    }
+    if (consumerCount <= 0) {
+      throw new IllegalArgumentException("consumerCount must be positive");
+    }
+    this.messageBus = new DefaultMessageBus(
+        new MessageHandlerFactoryAdapter(commandHandlerFactory), middlewareList);
+    this.mask = bufferSize - 1;
+    this.slots = new Slot[bufferSize];
+    this.sequences = new AtomicLongArray(bufferSize);
+    for (int i = 0; i < bufferSize; i++) {
+      slots[i] = new Slot();
+      sequences.set(i, i);
+    }
+    for (int i = 0; i < consumerCount; i++) {
+      Thread consumer = new Thread(this::consume, "commandbus-ring-buffer-consumer-" + i);
+      consumer.setDaemon(true);
+      consumers.add(consumer);
+      consumer.start();
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <R> CompletableFuture<R> dispatch(Command<R> command) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    if (!admissionGate.tryEnter()) {
+      result.completeExceptionally(
+          new RejectedExecutionException("The ring buffer command bus is closed"));
+      return result;
+    }
+
+    try {
+      DispatchContext context = DispatchContext.current();
+      int idleCount = 0;
+      while (true) {
+        long position = producerPosition.get();
+        int index = (int) position & mask;
+        long difference = sequences.get(index) - position;
+        if (difference == 0) {
+          if (producerPosition.compareAndSet(position, position + 1)) {
+            Slot slot = slots[index];
+            slot.command = (Command<Object>) command;
+            slot.result = (CompletableFuture<Object>) result;
+            slot.context = context;
+            // Publishes the slot to the consumer claiming this position
+            sequences.lazySet(index, position + 1);
+            return result;
+          }
+        } else if (difference < 0) {
+          // The buffer is full, wait for the consumers to free the slot. They keep running until
+          // every admitted producer has published.
+          idle(idleCount++);
+        }
+      }
+    } finally {
+      admissionGate.exit();
+    }
+  }
+
+  /**
+   * Stop the consumers once they have handled the commands already published. The commands
+   * dispatched afterwards are rejected.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    admissionGate.close();
+    isClosed = true;
+    for (Thread consumer : consumers) {
+      consumer.join();
+    }
+  }
+
+  private void consume() {
+    Slot slot = new Slot();
+    int idleCount = 0;
+    while (true) {
+      // Read before polling: once closed, every command was published before the poll
+      boolean wasClosed = isClosed;
+      if (poll(slot)) {
+        idleCount = 0;
+        try (DispatchContext.Scope scope = slot.context.attach()) {
+          slot.result.complete(messageBus.dispatch(slot.command));
+        } catch (Throwable ex) {
+          slot.result.completeExceptionally(ex);
+        }
+      } else if (wasClosed) {
+        return;
+      } else {
+        idle(idleCount++);
+      }
+    }
+  }
+
+  /**
+   * Take the next published command into the given slot, and free its slot of the buffer.
+   *
+   * @return false when no command is published
+   */
+  private boolean poll(Slot target) {
+    while (true) {
+      long position = consumerPosition.get();
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - (position + 1);
+      if (difference < 0) {
+        return false;
+      }
+      if (difference == 0 && consumerPosition.compareAndSet(position, position + 1)) {
+        Slot slot = slots[index];
+        target.command = slot.command;
+        target.result = slot.result;
+        target.context = slot.context;
+        slot.command = null;
+        slot.result = null;
+        slot.context = null;
+        // Frees the slot for the producer claiming the position one lap later
+        sequences.lazySet(index, position + mask + 1);
+        return true;
+      }
+    }
+  }
+
+  private static void idle(int idleCount) {
+    if (idleCount < SPIN_TRIES) {
+      return;
+    }
+    if (idleCount < YIELD_TRIES) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+  }
+
+  private static final class Slot {
+    private Command<Object> command;
+    private CompletableFuture<Object> result;
+    private DispatchContext context;
+  }
+}
@@ -0,0 +1,63 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import net.dathoang.cqrs.commandbus.message.AnnotatedKeyExtractor;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.KeyedSerialExecutor;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+
+/**
+ * A {@link CommandBus} which dispatches the commands with a {@link RoutingKey} to a delegate bus
+ * through per-key mailboxes: commands with equal routing keys are handled one at a time, in
+ * dispatch order, and commands with different routing keys in parallel on the executor. The
+ * routing keys of all the command classes share the same key space, so commands of different
+ * classes targeting the same aggregate are serialized too.
+ *
+ * <p>The dispatching thread waits for the result, and its {@link DispatchContext} is attached to
+ * the thread handling the command. Commands without a routing key, and commands
+ * dispatched by a handler to its own routing key, are dispatched directly on the calling thread.
+ * A handler must not dispatch a command with another routing key though, as it would hold its own
+ * mailbox while waiting for the mailbox of that key, see {@link KeyedSerialExecutor}.
+ */
+public final class RoutedCommandBus implements CommandBus {
+  private static final AnnotatedKeyExtractor ROUTING_KEY_EXTRACTOR =
+      new AnnotatedKeyExtractor(RoutingKey.class);
+
+  private final CommandBus delegate;
+  private final KeyedSerialExecutor keyedSerialExecutor;
+
+  public RoutedCommandBus(CommandBus delegate, Executor executor) {
+    this.delegate = delegate;
+    this.keyedSerialExecutor = new KeyedSerialExecutor(executor);
+  }
+
+  @Override
+  public <R> R dispatch(Command<R> command) throws Exception {
+    Object routingKey = ROUTING_KEY_EXTRACTOR.extract(command);
+    if (routingKey == null || keyedSerialExecutor.isRunningTaskOf(routingKey)) {
+      return delegate.dispatch(command);
+    }
+
+    CompletableFuture<R> result = new CompletableFuture<>();
+    DispatchContext context = DispatchContext.current();
+    keyedSerialExecutor.execute(routingKey, () -> {
+      try (DispatchContext.Scope scope = context.attach()) {
+        result.complete(delegate.dispatch(command));
+      } catch (Exception | Error ex) {
+        result.completeExceptionally(ex);
+      }
+    });
+
+    try {
+      return result.get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw (Exception) cause;
+    }
+  }
+}
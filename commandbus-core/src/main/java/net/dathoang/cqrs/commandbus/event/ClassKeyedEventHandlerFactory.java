@@ -0,0 +1,14 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import java.util.List;
+import net.dathoang.cqrs.commandbus.message.ClassKeyedMessageHandlerFactory;
+
+/**
+ * An {@link EventHandlerFactory} that can also resolve the subscriptions of an event class, with
+ * their declared handler class. See {@link ClassKeyedMessageHandlerFactory} for how the resolved
+ * subscriptions are cached and reused, {@code null} falls back to
+ * {@link #createEventHandlers(String)} on every publish.
+ */
+public interface ClassKeyedEventHandlerFactory extends EventHandlerFactory {
+  <E extends Event> List<EventSubscription<E>> resolveEventSubscriptions(Class<?> eventClass);
+}
@@ -0,0 +1,217 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import net.dathoang.cqrs.commandbus.message.AnnotatedKeyExtractor;
+import net.dathoang.cqrs.commandbus.message.ClassKeyedMessageHandlerFactory;
+import net.dathoang.cqrs.commandbus.message.DefaultMessageBus;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.KeyedSerialExecutor;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.message.MessageBus;
+import net.dathoang.cqrs.commandbus.message.MessageHandler;
+import net.dathoang.cqrs.commandbus.message.MessageHandlerInvokers;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+
+/**
+ * An {@link EventBus} which runs each published event through the middleware pipeline once, then
+ * fans it out to all its handlers.
+ *
+ * <p>Without an executor, the handlers run one after the other on the publishing thread. With an
+ * executor, they run in parallel on it, and the publishing thread waits for all of them, with
+ * its {@link DispatchContext} attached to the handling threads. Each handler class then receives
+ * the events with equal {@link RoutingKey}s one at a time, in publication order, whatever their
+ * event class, while events with different routing keys, or without any, are handled in
+ * parallel. The handler class is the one declared by a {@link ClassKeyedEventHandlerFactory}, or
+ * else the class of the handler instance.
+ *
+ * <p>An event with a routing key published by a handler running on the executor is delivered to
+ * the handler's own class on the calling thread, but the publishing handler keeps its mailbox
+ * while it waits for the other handler classes, whose handlers must therefore not publish events
+ * back to it, see {@link KeyedSerialExecutor}.
+ *
+ * <p>The subscriptions resolved by a {@link ClassKeyedEventHandlerFactory} are cached per event
+ * class, like the command and query handlers.
+ */
+public final class DefaultEventBus implements EventBus {
+  private static final AnnotatedKeyExtractor ROUTING_KEY_EXTRACTOR =
+      new AnnotatedKeyExtractor(RoutingKey.class);
+
+  private final EventHandlerFactory eventHandlerFactory;
+  private final MessageBus defaultMessageBus;
+  private final Executor executor;
+  private final KeyedSerialExecutor keyedSerialExecutor;
+
+  /**
+   * Create a bus delivering the events to their handlers on the publishing thread.
+   */
+  public DefaultEventBus(EventHandlerFactory eventHandlerFactory,
+      List<Middleware> middlewareList) {
+    this(eventHandlerFactory, middlewareList, null);
+  }
+
+  /**
+   * Create a bus delivering the events to their handlers in parallel on the executor.
+   */
+  public DefaultEventBus(EventHandlerFactory eventHandlerFactory,
+      List<Middleware> middlewareList, Executor executor) {
+    this.eventHandlerFactory = eventHandlerFactory;
+    this.defaultMessageBus = new DefaultMessageBus(new FanOutHandlerFactory(), middlewareList);
+    this.executor = executor;
+    this.keyedSerialExecutor = executor != null ? new KeyedSerialExecutor(executor) : null;
+  }
+
+  @Override
+  public void publish(Event event) throws Exception {
+    defaultMessageBus.dispatch(event);
+  }
+
+  private void fanOut(List<EventSubscription<Event>> subscriptions, Event event)
+      throws Exception {
+    List<Throwable> failures = executor == null
+        ? deliverOnCallingThread(subscriptions, event)
+        : deliverOnExecutor(subscriptions, event);
+    if (failures.isEmpty()) {
+      return;
+    }
+
+    Throwable failure = failures.get(0);
+    for (int i = 1; i < failures.size(); i++) {
+      failure.addSuppressed(failures.get(i));
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    throw (Exception) failure;
+  }
+
+  private static List<Throwable> deliverOnCallingThread(
+      List<EventSubscription<Event>> subscriptions, Event event) {
+    List<Throwable> failures = new ArrayList<>();
+    for (EventSubscription<Event> subscription : subscriptions) {
+      try {
+        subscription.getHandler().handle(event);
+      } catch (Exception | Error ex) {
+        failures.add(ex);
+      }
+    }
+    return failures;
+  }
+
+  private List<Throwable> deliverOnExecutor(List<EventSubscription<Event>> subscriptions,
+      Event event) throws InterruptedException {
+    Object routingKey = ROUTING_KEY_EXTRACTOR.extract(event);
+    DispatchContext context = DispatchContext.current();
+    List<CompletableFuture<Void>> deliveries = new ArrayList<>(subscriptions.size());
+    for (EventSubscription<Event> subscription : subscriptions) {
+      EventHandler<Event> handler = subscription.getHandler();
+      CompletableFuture<Void> delivery = new CompletableFuture<>();
+      deliveries.add(delivery);
+      Runnable task = () -> {
+        try (DispatchContext.Scope scope = context.attach()) {
+          handler.handle(event);
+          delivery.complete(null);
+        } catch (Exception | Error ex) {
+          delivery.completeExceptionally(ex);
+        }
+      };
+
+      try {
+        if (routingKey == null) {
+          executor.execute(task);
+          continue;
+        }
+        DeliveryKey deliveryKey = new DeliveryKey(subscription.getHandlerClass(), routingKey);
+        if (keyedSerialExecutor.isRunningTaskOf(deliveryKey)) {
+          // Published by the handler itself, waiting for its own mailbox would never end
+          task.run();
+        } else {
+          keyedSerialExecutor.execute(deliveryKey, task);
+        }
+      } catch (RejectedExecutionException ex) {
+        delivery.completeExceptionally(ex);
+      }
+    }
+
+    List<Throwable> failures = new ArrayList<>();
+    for (CompletableFuture<Void> delivery : deliveries) {
+      try {
+        delivery.get();
+      } catch (ExecutionException ex) {
+        failures.add(ex.getCause());
+      }
+    }
+    return failures;
+  }
+
+  private final class FanOutHandlerFactory implements ClassKeyedMessageHandlerFactory {
+    @Override
+    public <R> MessageHandler<Message<R>, R> createHandler(String messageName) {
+      List<EventHandler<Event>> handlers = eventHandlerFactory.createEventHandlers(messageName);
+      List<EventSubscription<Event>> subscriptions = new ArrayList<>(handlers.size());
+      for (EventHandler<Event> handler : handlers) {
+        subscriptions.add(new EventSubscription<>(handler.getClass(),
+            event -> MessageHandlerInvokers.invoke(handler, event)));
+      }
+      return fanOutHandler(subscriptions);
+    }
+
+    @Override
+    public <R> MessageHandler<Message<R>, R> resolveHandler(Class<?> messageClass) {
+      if (!(eventHandlerFactory instanceof ClassKeyedEventHandlerFactory)) {
+        return null;
+      }
+
+      List<EventSubscription<Event>> subscriptions =
+          ((ClassKeyedEventHandlerFactory) eventHandlerFactory)
+              .resolveEventSubscriptions(messageClass);
+      return subscriptions != null ? fanOutHandler(subscriptions) : null;
+    }
+
+    private <R> MessageHandler<Message<R>, R> fanOutHandler(
+        List<EventSubscription<Event>> subscriptions) {
+      return message -> {
+        fanOut(subscriptions, (Event) message);
+        return null;
+      };
+    }
+  }
+
+  /**
+   * Orders the deliveries of the events with equal routing keys to the same handler class.
+   */
+  private static final class DeliveryKey {
+    private final Class<?> handlerClass;
+    private final Object routingKey;
+
+    DeliveryKey(Class<?> handlerClass, Object routingKey) {
+      this.handlerClass = handlerClass;
+      this.routingKey = routingKey;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof DeliveryKey)) {
+        return false;
+      }
+      DeliveryKey otherKey = (DeliveryKey) other;
+      return handlerClass == otherKey.handlerClass && routingKey.equals(otherKey.routingKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(handlerClass, routingKey);
+    }
+
+    @Override
+    public String toString() {
+      return handlerClass.getName() + "/" + routingKey;
+    }
+  }
+}
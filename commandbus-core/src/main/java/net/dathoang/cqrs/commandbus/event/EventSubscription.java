@@ -0,0 +1,24 @@
+package net.dathoang.cqrs.commandbus.event;
+
+/**
+ * A handler subscribed to an event, with the handler class it was declared with. The handler
+ * itself may be a wrapper, such as one acquiring a scoped instance of the declared class on each
+ * event, so {@link DefaultEventBus} orders the deliveries by the declared class.
+ */
+public final class EventSubscription<E extends Event> {
+  private final Class<?> handlerClass;
+  private final EventHandler<E> handler;
+
+  public EventSubscription(Class<?> handlerClass, EventHandler<E> handler) {
+    this.handlerClass = handlerClass;
+    this.handler = handler;
+  }
+
+  public Class<?> getHandlerClass() {
+    return handlerClass;
+  }
+
+  public EventHandler<E> getHandler() {
+    return handler;
+  }
+}
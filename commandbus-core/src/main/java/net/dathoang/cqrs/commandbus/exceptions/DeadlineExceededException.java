@@ -0,0 +1,9 @@
+package net.dathoang.cqrs.commandbus.exceptions;
+
+import net.dathoang.cqrs.commandbus.message.Message;
+
+public class DeadlineExceededException extends CommandBusException {
+  public DeadlineExceededException(Class<? extends Message> messageClass) {
+    super(String.format("The deadline of %s has been exceeded", messageClass.getName()));
+  }
+}
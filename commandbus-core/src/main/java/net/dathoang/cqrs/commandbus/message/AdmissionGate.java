@@ -0,0 +1,70 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets the components handing work to their own threads close without losing work: once
+ * {@link #close()} returns, every caller admitted before has left, and no caller is admitted
+ * anymore. The component can then stop its threads and reject what they left behind, knowing
+ * that nothing is enqueued afterwards.
+ *
+ * <pre>
+ * if (!gate.tryEnter()) {
+ *   reject(work);
+ * }
+ * try {
+ *   enqueue(work);
+ * } finally {
+ *   gate.exit();
+ * }
+ * </pre>
+ */
+public final class AdmissionGate {
+  private final AtomicInteger admittedCount = new AtomicInteger();
+  private volatile boolean isClosed;
+
+  /**
+   * Admit the caller unless the gate is closed. An admitted caller must call {@link #exit()}.
+   *
+   * @return false when the gate is closed
+   */
+  public boolean tryEnter() {
+    admittedCount.incrementAndGet();
+    if (isClosed) {
+      exit();
+      return false;
+    }
+    return true;
+  }
+
+  public void exit() {
+    if (admittedCount.decrementAndGet() == 0 && isClosed) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  public boolean isClosed() {
+    return isClosed;
+  }
+
+  /**
+   * Stop admitting callers, then wait for the admitted ones to leave. The admitted callers only
+   * enqueue their work, so the wait isn't interruptible, an interrupt is kept for the caller.
+   */
+  public synchronized void close() {
+    isClosed = true;
+    boolean isInterrupted = false;
+    while (admittedCount.get() != 0) {
+      try {
+        wait();
+      } catch (InterruptedException ex) {
+        isInterrupted = true;
+      }
+    }
+    if (isInterrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Reads the value of the field, or the no-argument method, of a message annotated with a given
+ * annotation. The annotated member is looked up once per message class.
+ */
+public final class AnnotatedKeyExtractor {
+  private static final KeyAccessor NO_KEY_ACCESSOR = message -> null;
+
+  private final Class<? extends Annotation> annotationClass;
+  private final ClassValue<KeyAccessor> keyAccessors = new ClassValue<KeyAccessor>() {
+    @Override
+    protected KeyAccessor computeValue(Class<?> messageClass) {
+      return createKeyAccessor(messageClass);
+    }
+  };
+
+  public AnnotatedKeyExtractor(Class<? extends Annotation> annotationClass) {
+    this.annotationClass = annotationClass;
+  }
+
+  /**
+   * Check whether the message class has a member annotated with the annotation.
+   */
+  public boolean hasKey(Class<?> messageClass) {
+    return keyAccessors.get(messageClass) != NO_KEY_ACCESSOR;
+  }
+
+  /**
+   * Get the value of the annotated member of the message.
+   *
+   * @return the value of the annotated member, or null when the message class doesn't have any
+   * @throws IllegalStateException when the annotated member can't be read
+   */
+  public Object extract(Object message) {
+    try {
+      return keyAccessors.get(message.getClass()).getKey(message);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException(String.format("Can't read the %s key of %s",
+          annotationClass.getSimpleName(), message.getClass().getName()), ex);
+    }
+  }
+
+  private KeyAccessor createKeyAccessor(Class<?> messageClass) {
+    List<Field> fields =
+        ReflectionUtils.getAllDeclaredFieldsAnnotatedWith(messageClass, annotationClass);
+    List<Method> methods =
+        ReflectionUtils.getAllDeclaredMethodsAnnotatedWith(messageClass, annotationClass);
+    if (fields.size() + methods.size() > 1) {
+      throw new IllegalArgumentException(String.format("%s has more than one member annotated "
+          + "with %s", messageClass.getName(), annotationClass.getName()));
+    }
+
+    if (!fields.isEmpty()) {
+      Field field = fields.get(0);
+      field.setAccessible(true);
+      return field::get;
+    }
+    if (!methods.isEmpty()) {
+      Method method = methods.get(0);
+      if (method.getParameterCount() != 0) {
+        throw new IllegalArgumentException(String.format("%s.%s annotated with %s must not take "
+            + "any argument", messageClass.getName(), method.getName(), annotationClass.getName()));
+      }
+      method.setAccessible(true);
+      return method::invoke;
+    }
+    return NO_KEY_ACCESSOR;
+  }
+
+  @FunctionalInterface
+  private interface KeyAccessor {
+    Object getKey(Object message) throws ReflectiveOperationException;
+  }
+}
@@ -0,0 +1,54 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import net.dathoang.cqrs.commandbus.middleware.AsyncMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.AsyncNextMiddlewareFunction;
+
+/**
+ * The {@link AsyncMiddleware} counterpart of {@link MiddlewarePipeline}.
+ */
+final class AsyncMiddlewarePipeline {
+  private final AsyncNextMiddlewareFunction<Message<Object>, Object> head;
+
+  private AsyncMiddlewarePipeline(AsyncNextMiddlewareFunction<Message<Object>, Object> head) {
+    this.head = head;
+  }
+
+  static AsyncMiddlewarePipeline compile(List<AsyncMiddleware> middlewareList,
+      AsyncNextMiddlewareFunction<Message<Object>, Object> terminal) {
+    AsyncNextMiddlewareFunction<Message<Object>, Object> next = terminal;
+    for (int i = middlewareList.size() - 1; i >= 0; i--) {
+      next = new AsyncMiddlewareInvoker(middlewareList.get(i), next);
+    }
+    return new AsyncMiddlewarePipeline(next);
+  }
+
+  @SuppressWarnings("unchecked")
+  <R> CompletableFuture<R> dispatch(Message<R> message) {
+    return (CompletableFuture<R>) (CompletableFuture<?>) head.call((Message<Object>) message);
+  }
+
+  private static final class AsyncMiddlewareInvoker
+      implements AsyncNextMiddlewareFunction<Message<Object>, Object> {
+    private final AsyncMiddleware middleware;
+    private final AsyncNextMiddlewareFunction<Message<Object>, Object> next;
+
+    AsyncMiddlewareInvoker(AsyncMiddleware middleware,
+        AsyncNextMiddlewareFunction<Message<Object>, Object> next) {
+      this.middleware = middleware;
+      this.next = next;
+    }
+
+    @Override
+    public CompletableFuture<Object> call(Message<Object> message) {
+      try {
+        return middleware.handle(message, next);
+      } catch (RuntimeException ex) {
+        CompletableFuture<Object> failure = new CompletableFuture<>();
+        failure.completeExceptionally(ex);
+        return failure;
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.message;
+
+/**
+ * A {@link MessageHandlerFactory} that can also resolve handlers by message class.
+ *
+ * <p>{@link DefaultMessageBus} resolves each message class once and caches the returned handler,
+ * so the handler must be safe to reuse for every later dispatch of that message class. When
+ * {@link #resolveHandler(Class)} returns {@code null}, the bus falls back to
+ * {@link #createHandler(String)} on every dispatch.
+ */
+public interface ClassKeyedMessageHandlerFactory extends MessageHandlerFactory {
+  <R> MessageHandler<Message<R>, R> resolveHandler(Class<?> messageClass);
+}
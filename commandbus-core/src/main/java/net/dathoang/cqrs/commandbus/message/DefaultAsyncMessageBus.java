@@ -0,0 +1,58 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import net.dathoang.cqrs.commandbus.middleware.AsyncMiddleware;
+
+/**
+ * Dispatches messages through a pipeline of {@link AsyncMiddleware} on the calling thread, then
+ * hands them to the wrapped {@link MessageBus} on the {@link Executor}. The synchronous middleware
+ * pipeline of the wrapped bus and the message handler therefore run on the executor's threads,
+ * with the {@link DispatchContext} of the dispatching thread attached.
+ */
+public final class DefaultAsyncMessageBus implements AsyncMessageBus {
+  private final MessageBus messageBus;
+  private final Executor executor;
+  private final AsyncMiddlewarePipeline middlewarePipeline;
+
+  public DefaultAsyncMessageBus(MessageBus messageBus, List<AsyncMiddleware> middlewareList,
+      Executor executor) {
+    this.messageBus = messageBus;
+    this.executor = executor;
+    this.middlewarePipeline = AsyncMiddlewarePipeline.compile(
+        new ArrayList<>(middlewareList), this::dispatchOnExecutor);
+  }
+
+  /**
+   * Dispatch the message without blocking the calling thread.
+   *
+   * @param message the message to dispatch
+   * @param <R> the type of the result produced after handling the message
+   * @return a future completed with the result, or completed exceptionally with the exception
+   *         raised by a middleware or the message handler
+   */
+  @Override
+  public <R> CompletableFuture<R> dispatch(Message<R> message) {
+    return middlewarePipeline.dispatch(message);
+  }
+
+  private CompletableFuture<Object> dispatchOnExecutor(Message<Object> message) {
+    CompletableFuture<Object> result = new CompletableFuture<>();
+    DispatchContext context = DispatchContext.current();
+    try {
+      executor.execute(() -> {
+        try (DispatchContext.Scope scope = context.attach()) {
+          result.complete(messageBus.dispatch(message));
+        } catch (Throwable ex) {
+          result.completeExceptionally(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      result.completeExceptionally(ex);
+    }
+    return result;
+  }
+}
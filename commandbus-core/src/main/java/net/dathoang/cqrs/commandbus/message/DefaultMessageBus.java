@@ -2,20 +2,18 @@ package net.dathoang.cqrs.commandbus.message;
 
 import net.dathoang.cqrs.commandbus.exceptions.NoHandlerFoundException;
 import net.dathoang.cqrs.commandbus.middleware.Middleware;
-import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public final class DefaultMessageBus implements MessageBus {
-  private static final int FIRST_MIDDLEWARE_INDEX = 0;
-
-  private MessageHandlerFactory messageHandlerFactory;
-  private final List<Middleware> middlewarePipeline;
+  private final MessageHandlerCache messageHandlerCache;
+  private final MiddlewarePipeline middlewarePipeline;
 
   public DefaultMessageBus(MessageHandlerFactory handlerFactory, List<Middleware> middlewareList) {
-    messageHandlerFactory = handlerFactory;
-    middlewarePipeline = new ArrayList<>(middlewareList);
+    messageHandlerCache = new MessageHandlerCache(handlerFactory);
+    middlewarePipeline = MiddlewarePipeline.compile(
+        new ArrayList<>(middlewareList), this::handleMessage);
   }
 
   /**
@@ -30,27 +28,25 @@ public final class DefaultMessageBus implements MessageBus {
    * @throws Exception possibly raised by OldMiddleware or MessageHandler
    */
   @Override
-  @SuppressWarnings("unchecked")
   public <R> R dispatch(Message<R> message) throws Exception {
-    return (R)getNext(FIRST_MIDDLEWARE_INDEX).call((Message<Object>)message);
+    return middlewarePipeline.dispatch(message);
+  }
+
+  /**
+   * Dispatch a batch of messages through the middleware pipeline once, see
+   * {@link net.dathoang.cqrs.commandbus.middleware.BatchMiddleware}.
+   *
+   * @param messages the messages to dispatch
+   * @param <R> the type of the results
+   * @return the results, in the same order as the messages
+   * @throws Exception the first exception raised while handling the batch
+   */
+  @Override
+  public <R> List<R> dispatchAll(List<? extends Message<? extends R>> messages) throws Exception {
+    return middlewarePipeline.dispatchAll(messages);
   }
 
-  private <R> NextMiddlewareFunction<Message<R>, R> getNext(int nextMiddlewareIndex) {
-    if (nextMiddlewareIndex < middlewarePipeline.size()) {
-      // Handle using next middleware
-      return (message) -> {
-        Middleware nextMiddleware = middlewarePipeline.get(nextMiddlewareIndex);
-        return nextMiddleware.handle(message, getNext(nextMiddlewareIndex + 1));
-      };
-    } else {
-      // Handle using message handler
-      return (message) -> {
-        MessageHandler<Message<R>, R> handler = messageHandlerFactory.createHandler(message.getClass().getName());
-        if (handler == null) {
-          throw new NoHandlerFoundException(message.getClass());
-        }
-        return handler.handle(message);
-      };
-    }
+  private Object handleMessage(Message<Object> message) throws Exception {
+    return messageHandlerCache.get(message.getClass()).handle(message);
   }
 }
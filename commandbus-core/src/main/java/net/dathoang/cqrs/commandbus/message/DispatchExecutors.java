@@ -0,0 +1,43 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executors for the async buses.
+ *
+ * <p>This library is shipped as a multi-release jar: on Java 21 or later, this class is replaced
+ * by a version that supports virtual threads.
+ */
+public final class DispatchExecutors {
+  private static final String THREAD_NAME_PREFIX = "commandbus-dispatch-";
+
+  private DispatchExecutors() {}
+
+  /**
+   * Whether the running JVM supports virtual threads.
+   */
+  public static boolean isVirtualThreadSupported() {
+    return false;
+  }
+
+  /**
+   * Create an executor which runs each dispatch on its own virtual thread, so handlers blocking on
+   * I/O don't hold a platform thread while they wait.
+   *
+   * <p>When the running JVM doesn't support virtual threads, see
+   * {@link #isVirtualThreadSupported()}, the dispatches run on the daemon platform threads of a
+   * cached pool instead, which starts a thread whenever all of them are busy.
+   *
+   * @return the new executor
+   */
+  public static ExecutorService newVirtualThreadPerDispatchExecutor() {
+    AtomicLong threadCount = new AtomicLong();
+    return Executors.newCachedThreadPool(task -> {
+      Thread thread = new Thread(task, THREAD_NAME_PREFIX + threadCount.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+}
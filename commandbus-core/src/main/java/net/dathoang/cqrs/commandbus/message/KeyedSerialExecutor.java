@@ -0,0 +1,123 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs tasks on a delegate executor so that the tasks submitted with equal keys run one at a
+ * time, in submission order, while tasks with different keys run in parallel.
+ *
+ * <p>Each key with pending tasks has a mailbox, drained by a single task of the delegate executor
+ * and removed once empty, so idle keys don't hold any memory. A busy key yields its thread back
+ * to the delegate executor every {@value #MAX_TASKS_PER_DRAIN} tasks, so that it can't starve the
+ * other keys.
+ *
+ * <p>A task must not wait for a task of another key: when the task it waits for waits in turn
+ * for a task of the first key, or when every thread of a bounded delegate executor is taken by
+ * such waiting tasks, neither ever ends. Waiting for a task of its own key never ends either,
+ * see {@link #isRunningTaskOf(Object)}.
+ */
+public final class KeyedSerialExecutor {
+  private static final Log log = LogFactory.getLog(KeyedSerialExecutor.class);
+
+  private static final int MAX_TASKS_PER_DRAIN = 64;
+
+  private final Executor delegate;
+  private final ConcurrentMap<Object, ArrayDeque<Runnable>> mailboxByKeyMap =
+      new ConcurrentHashMap<>();
+  private final ThreadLocal<Object> currentKey = new ThreadLocal<>();
+
+  public KeyedSerialExecutor(Executor delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Run the task after all the tasks previously submitted with an equal key.
+   *
+   * @throws RejectedExecutionException when the delegate executor rejects the task draining a new
+   *     mailbox
+   */
+  public void execute(Object key, Runnable task) {
+    boolean[] isNewMailbox = new boolean[1];
+    mailboxByKeyMap.compute(key, (k, mailbox) -> {
+      if (mailbox == null) {
+        mailbox = new ArrayDeque<>();
+        isNewMailbox[0] = true;
+      }
+      mailbox.add(task);
+      return mailbox;
+    });
+
+    if (isNewMailbox[0]) {
+      try {
+        delegate.execute(() -> drain(key, task));
+      } catch (RejectedExecutionException ex) {
+        mailboxByKeyMap.computeIfPresent(key, (k, mailbox) -> {
+          mailbox.remove(task);
+          return mailbox.isEmpty() ? null : mailbox;
+        });
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Check whether the current thread is running a task submitted with the key. Waiting from such
+   * a task for another task of the same key would never end.
+   */
+  public boolean isRunningTaskOf(Object key) {
+    Object runningKey = currentKey.get();
+    return runningKey != null && runningKey.equals(key);
+  }
+
+  private void drain(Object key, Runnable firstTask) {
+    Runnable task = firstTask;
+    while (task != null) {
+      for (int i = 0; i < MAX_TASKS_PER_DRAIN && task != null; i++) {
+        run(key, task);
+        task = pollNextTask(key);
+      }
+      if (task == null) {
+        return;
+      }
+
+      Runnable nextTask = task;
+      try {
+        delegate.execute(() -> drain(key, nextTask));
+        return;
+      } catch (RejectedExecutionException ex) {
+        // Keep draining on this thread rather than stranding the mailbox
+      }
+    }
+  }
+
+  private void run(Object key, Runnable task) {
+    currentKey.set(key);
+    try {
+      task.run();
+    } catch (RuntimeException | Error ex) {
+      log.error(String.format("A task of the key %s failed", key), ex);
+    } finally {
+      currentKey.remove();
+    }
+  }
+
+  /**
+   * Remove the task which just ran, which stays at the head of the mailbox while it runs, and
+   * return the next one. The mailbox is removed once empty.
+   */
+  private Runnable pollNextTask(Object key) {
+    Runnable[] nextTask = new Runnable[1];
+    mailboxByKeyMap.computeIfPresent(key, (k, mailbox) -> {
+      mailbox.poll();
+      nextTask[0] = mailbox.peek();
+      return mailbox.isEmpty() ? null : mailbox;
+    });
+    return nextTask[0];
+  }
+}
@@ -0,0 +1,56 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import net.dathoang.cqrs.commandbus.exceptions.NoHandlerFoundException;
+
+/**
+ * Resolves the {@link MessageHandler} of each message class once and caches it, so repeated
+ * dispatches of the same message class cost a single identity lookup on the class.
+ */
+final class MessageHandlerCache extends ClassValue<MessageHandler<Message<Object>, Object>> {
+  private final MessageHandlerFactory messageHandlerFactory;
+
+  MessageHandlerCache(MessageHandlerFactory messageHandlerFactory) {
+    this.messageHandlerFactory = messageHandlerFactory;
+  }
+
+  @Override
+  protected MessageHandler<Message<Object>, Object> computeValue(Class<?> messageClass) {
+    if (messageHandlerFactory instanceof ClassKeyedMessageHandlerFactory) {
+      MessageHandler<Message<Object>, Object> handler =
+          ((ClassKeyedMessageHandlerFactory) messageHandlerFactory).resolveHandler(messageClass);
+      if (handler != null) {
+        return handler;
+      }
+    }
+
+    return new FactoryLookupHandler(messageHandlerFactory, messageClass);
+  }
+
+  /**
+   * Fallback for factories that can only create handlers by message name: the lookup is done on
+   * every dispatch, as the factory may register the handler later on.
+   */
+  private static final class FactoryLookupHandler
+      implements MessageHandler<Message<Object>, Object> {
+    private final MessageHandlerFactory messageHandlerFactory;
+    private final Class<?> messageClass;
+    private final String messageName;
+
+    FactoryLookupHandler(MessageHandlerFactory messageHandlerFactory, Class<?> messageClass) {
+      this.messageHandlerFactory = messageHandlerFactory;
+      this.messageClass = messageClass;
+      this.messageName = messageClass.getName();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object handle(Message<Object> message) throws Exception {
+      MessageHandler<Message<Object>, Object> handler =
+          messageHandlerFactory.createHandler(messageName);
+      if (handler == null) {
+        throw new NoHandlerFoundException((Class<? extends Message>) messageClass);
+      }
+      return MessageHandlerInvokers.invoke(handler, message);
+    }
+  }
+}
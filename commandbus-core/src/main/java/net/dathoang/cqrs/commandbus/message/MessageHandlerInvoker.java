@@ -0,0 +1,11 @@
+package net.dathoang.cqrs.commandbus.message;
+
+/**
+ * Calls the {@code handle} method of a handler directly on its concrete class, skipping the
+ * generic {@link MessageHandler} interface and its bridge method. Invokers are obtained from
+ * {@link MessageHandlerInvokers} and can be kept in {@code static final} fields.
+ */
+@FunctionalInterface
+public interface MessageHandlerInvoker {
+  Object invoke(Object handler, Object message) throws Exception;
+}
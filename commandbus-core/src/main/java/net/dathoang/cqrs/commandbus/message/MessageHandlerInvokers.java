@@ -0,0 +1,169 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates and caches one {@link MessageHandlerInvoker} per handler class.
+ *
+ * <p>When the handler class and its {@code handle} method are public and visible from this
+ * library's class loader, the invoker is a class spun by {@link LambdaMetafactory} which calls the
+ * method with a plain virtual call. Otherwise it falls back to a {@link MethodHandle}.
+ *
+ * <p>The buses call the handler instances created by the handler factories through these
+ * invokers, so that the call into each handler class is made from its own invoker instead of the
+ * megamorphic {@link MessageHandler#handle(Message)} call site they would otherwise share.
+ */
+public final class MessageHandlerInvokers {
+  private static final Log log = LogFactory.getLog(MessageHandlerInvokers.class);
+
+  private static final String HANDLE_METHOD_NAME = "handle";
+  private static final MethodType INVOKER_METHOD_TYPE =
+      MethodType.methodType(Object.class, Object.class, Object.class);
+
+  private static final ClassValue<MessageHandlerInvoker> INVOKERS =
+      new ClassValue<MessageHandlerInvoker>() {
+        @Override
+        protected MessageHandlerInvoker computeValue(Class<?> handlerClass) {
+          return createInvoker(handlerClass);
+        }
+      };
+
+  private MessageHandlerInvokers() {}
+
+  /**
+   * Get the invoker of a handler class.
+   *
+   * @param handlerClass the concrete class of the handler
+   * @return the cached invoker of the handler class
+   * @throws IllegalArgumentException when the class isn't a {@link MessageHandler}
+   */
+  public static MessageHandlerInvoker forHandlerClass(Class<?> handlerClass) {
+    if (!MessageHandler.class.isAssignableFrom(handlerClass)) {
+      throw new IllegalArgumentException(String.format("%s doesn't implement %s",
+          handlerClass.getName(), MessageHandler.class.getName()));
+    }
+    return INVOKERS.get(handlerClass);
+  }
+
+  /**
+   * Let the handler handle the message through the invoker of the handler's class.
+   */
+  @SuppressWarnings("unchecked")
+  public static <R> R invoke(MessageHandler<?, R> handler, Message<R> message) throws Exception {
+    return (R) INVOKERS.get(handler.getClass()).invoke(handler, message);
+  }
+
+  private static MessageHandlerInvoker createInvoker(Class<?> handlerClass) {
+    Method handleMethod = findHandleMethod(handlerClass);
+    try {
+      if (isAccessibleFromLibrary(handlerClass, handleMethod)) {
+        return spinInvoker(handlerClass, handleMethod);
+      }
+      handleMethod.setAccessible(true);
+      return new MethodHandleInvoker(
+          MethodHandles.lookup().unreflect(handleMethod).asType(INVOKER_METHOD_TYPE));
+    } catch (Throwable ex) {
+      log.warn(String.format("Can't bind the handle method of %s, falling back to interface calls",
+          handlerClass.getName()), ex);
+      return MessageHandlerInvokers::invokeThroughInterface;
+    }
+  }
+
+  private static MessageHandlerInvoker spinInvoker(Class<?> handlerClass, Method handleMethod)
+      throws Throwable {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle handleMethodHandle = lookup.unreflect(handleMethod);
+    Class<?> returnType = handleMethod.getReturnType();
+    CallSite callSite = LambdaMetafactory.metafactory(
+        lookup,
+        "invoke",
+        MethodType.methodType(MessageHandlerInvoker.class),
+        INVOKER_METHOD_TYPE,
+        handleMethodHandle,
+        MethodType.methodType(returnType, handlerClass, handleMethod.getParameterTypes()[0]));
+    return (MessageHandlerInvoker) callSite.getTarget().invokeExact();
+  }
+
+  /**
+   * Find the non-bridge {@code handle} method with the most specific message parameter. When the
+   * handler implements the interface through a generic super class, this is the method taking
+   * the erased message type, which still works for every message.
+   */
+  private static Method findHandleMethod(Class<?> handlerClass) {
+    Method handleMethod = null;
+    for (Method method : handlerClass.getMethods()) {
+      if (!method.getName().equals(HANDLE_METHOD_NAME) || method.getParameterCount() != 1
+          || method.isBridge() || Modifier.isStatic(method.getModifiers())
+          || !Message.class.isAssignableFrom(method.getParameterTypes()[0])) {
+        continue;
+      }
+      if (handleMethod == null || handleMethod.getParameterTypes()[0]
+          .isAssignableFrom(method.getParameterTypes()[0])) {
+        handleMethod = method;
+      }
+    }
+
+    if (handleMethod == null) {
+      throw new IllegalArgumentException(String.format("%s doesn't declare a handle method",
+          handlerClass.getName()));
+    }
+    return handleMethod;
+  }
+
+  private static boolean isAccessibleFromLibrary(Class<?> handlerClass, Method handleMethod) {
+    if (handlerClass.isInterface() || !isPublic(handlerClass)
+        || !isPublic(handleMethod.getDeclaringClass())
+        || !isPublic(handleMethod.getParameterTypes()[0])) {
+      return false;
+    }
+    try {
+      ClassLoader libraryClassLoader = MessageHandlerInvokers.class.getClassLoader();
+      return Class.forName(handlerClass.getName(), false, libraryClassLoader) == handlerClass
+          && Class.forName(handleMethod.getParameterTypes()[0].getName(), false,
+          libraryClassLoader) == handleMethod.getParameterTypes()[0];
+    } catch (ClassNotFoundException ex) {
+      return false;
+    }
+  }
+
+  private static boolean isPublic(Class<?> cls) {
+    for (Class<?> current = cls; current != null; current = current.getEnclosingClass()) {
+      if (!Modifier.isPublic(current.getModifiers())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object invokeThroughInterface(Object handler, Object message) throws Exception {
+    return ((MessageHandler<Message<Object>, Object>) handler).handle((Message<Object>) message);
+  }
+
+  private static final class MethodHandleInvoker implements MessageHandlerInvoker {
+    private final MethodHandle handleMethodHandle;
+
+    MethodHandleInvoker(MethodHandle handleMethodHandle) {
+      this.handleMethodHandle = handleMethodHandle;
+    }
+
+    @Override
+    public Object invoke(Object handler, Object message) throws Exception {
+      try {
+        return (Object) handleMethodHandle.invokeExact(handler, message);
+      } catch (Exception | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+}
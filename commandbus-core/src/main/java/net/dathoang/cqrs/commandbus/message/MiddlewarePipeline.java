@@ -0,0 +1,114 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.dathoang.cqrs.commandbus.middleware.BatchMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextBatchMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * A middleware pipeline compiled once into a fixed chain of linked invokers. Every link holds a
+ * reference to its middleware and to the link after it, so dispatching a message through the
+ * pipeline doesn't allocate any {@link NextMiddlewareFunction}.
+ *
+ * <p>A second chain handles batches: {@link BatchMiddleware}s receive the whole batch, and from
+ * the first middleware which isn't batch-aware on, the messages go through the rest of the
+ * single message chain one by one.
+ */
+final class MiddlewarePipeline {
+  private final NextMiddlewareFunction<Message<Object>, Object> head;
+  private final NextBatchMiddlewareFunction<Message<Object>, Object> batchHead;
+
+  private MiddlewarePipeline(NextMiddlewareFunction<Message<Object>, Object> head,
+      NextBatchMiddlewareFunction<Message<Object>, Object> batchHead) {
+    this.head = head;
+    this.batchHead = batchHead;
+  }
+
+  /**
+   * Compile the middleware list into a linked chain of invokers ending with the terminal function.
+   *
+   * @param middlewareList the middlewares, in the order they should handle the message
+   * @param terminal the function called after the last middleware, usually the message handler
+   * @return the compiled pipeline
+   */
+  static MiddlewarePipeline compile(List<Middleware> middlewareList,
+      NextMiddlewareFunction<Message<Object>, Object> terminal) {
+    NextMiddlewareFunction<Message<Object>, Object> next = terminal;
+    NextBatchMiddlewareFunction<Message<Object>, Object> nextBatch = new OneByOneInvoker(terminal);
+    for (int i = middlewareList.size() - 1; i >= 0; i--) {
+      Middleware middleware = middlewareList.get(i);
+      next = new MiddlewareInvoker(middleware, next);
+      nextBatch = middleware instanceof BatchMiddleware
+          ? new BatchMiddlewareInvoker((BatchMiddleware) middleware, nextBatch)
+          : new OneByOneInvoker(next);
+    }
+    return new MiddlewarePipeline(next, nextBatch);
+  }
+
+  @SuppressWarnings("unchecked")
+  <R> R dispatch(Message<R> message) throws Exception {
+    return (R) head.call((Message<Object>) message);
+  }
+
+  @SuppressWarnings("unchecked")
+  <R> List<R> dispatchAll(List<? extends Message<? extends R>> messages) throws Exception {
+    List<Message<Object>> batch = new ArrayList<>(messages.size());
+    for (Message<? extends R> message : messages) {
+      batch.add((Message<Object>) (Message<?>) message);
+    }
+    return (List<R>) batchHead.call(batch);
+  }
+
+  private static final class MiddlewareInvoker
+      implements NextMiddlewareFunction<Message<Object>, Object> {
+    private final Middleware middleware;
+    private final NextMiddlewareFunction<Message<Object>, Object> next;
+
+    MiddlewareInvoker(Middleware middleware, NextMiddlewareFunction<Message<Object>, Object> next) {
+      this.middleware = middleware;
+      this.next = next;
+    }
+
+    @Override
+    public Object call(Message<Object> message) throws Exception {
+      return middleware.handle(message, next);
+    }
+  }
+
+  private static final class BatchMiddlewareInvoker
+      implements NextBatchMiddlewareFunction<Message<Object>, Object> {
+    private final BatchMiddleware middleware;
+    private final NextBatchMiddlewareFunction<Message<Object>, Object> next;
+
+    BatchMiddlewareInvoker(BatchMiddleware middleware,
+        NextBatchMiddlewareFunction<Message<Object>, Object> next) {
+      this.middleware = middleware;
+      this.next = next;
+    }
+
+    @Override
+    public List<Object> call(List<Message<Object>> messages) throws Exception {
+      return middleware.handleBatch(messages, next);
+    }
+  }
+
+  private static final class OneByOneInvoker
+      implements NextBatchMiddlewareFunction<Message<Object>, Object> {
+    private final NextMiddlewareFunction<Message<Object>, Object> next;
+
+    OneByOneInvoker(NextMiddlewareFunction<Message<Object>, Object> next) {
+      this.next = next;
+    }
+
+    @Override
+    public List<Object> call(List<Message<Object>> messages) throws Exception {
+      List<Object> results = new ArrayList<>(messages.size());
+      for (Message<Object> message : messages) {
+        results.add(next.call(message));
+      }
+      return results;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import net.dathoang.cqrs.commandbus.message.ClassKeyedMessageHandlerFactory;
+
+/**
+ * A {@link QueryHandlerFactory} that can also resolve handlers by query class. See
+ * {@link ClassKeyedMessageHandlerFactory} for how the resolved handler is cached and reused.
+ */
+public interface ClassKeyedQueryHandlerFactory extends QueryHandlerFactory {
+  <R> QueryHandler<Query<R>, R> resolveQueryHandler(Class<?> queryClass);
+}
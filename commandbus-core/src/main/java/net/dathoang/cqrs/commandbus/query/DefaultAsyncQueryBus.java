@@ -0,0 +1,36 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import net.dathoang.cqrs.commandbus.message.AsyncMessageBus;
+import net.dathoang.cqrs.commandbus.message.DefaultAsyncMessageBus;
+import net.dathoang.cqrs.commandbus.message.DefaultMessageBus;
+import net.dathoang.cqrs.commandbus.middleware.AsyncMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.query.DefaultQueryBus.QueryHandlerFactoryToMessageHandlerFactoryAdapter;
+
+/**
+ * An {@link AsyncQueryBus} which handles queries on an {@link Executor}. The async middlewares
+ * run on the dispatching thread, the middlewares and the query handler run on the executor.
+ */
+public final class DefaultAsyncQueryBus implements AsyncQueryBus {
+  private final AsyncMessageBus defaultAsyncMessageBus;
+
+  public DefaultAsyncQueryBus(QueryHandlerFactory queryHandlerFactory,
+      List<Middleware> middlewareList, List<AsyncMiddleware> asyncMiddlewareList,
+      Executor executor) {
+    this.defaultAsyncMessageBus = new DefaultAsyncMessageBus(
+        new DefaultMessageBus(
+            new QueryHandlerFactoryToMessageHandlerFactoryAdapter(queryHandlerFactory),
+            middlewareList),
+        asyncMiddlewareList,
+        executor
+    );
+  }
+
+  @Override
+  public <R> CompletableFuture<R> dispatch(Query<R> query) {
+    return defaultAsyncMessageBus.dispatch(query);
+  }
+}
@@ -22,8 +22,14 @@ public final class DefaultQueryBus implements QueryBus {
     return defaultMessageBus.dispatch(query);
   }
 
+  @Override
+  public <R> List<R> dispatchAll(List<? extends Query<? extends R>> queries) throws Exception {
+    return defaultMessageBus.dispatchAll(queries);
+  }
+
   // region adapter classes
-  static class QueryHandlerFactoryToMessageHandlerFactoryAdapter implements MessageHandlerFactory {
+  static class QueryHandlerFactoryToMessageHandlerFactoryAdapter
+      implements ClassKeyedMessageHandlerFactory {
 
     private final QueryHandlerFactory queryHandlerFactory;
 
@@ -40,27 +46,19 @@ public final class DefaultQueryBus implements QueryBus {
         throw new NoHandlerFoundException(messageName);
       }
 
-      return new QueryHandlerToMessageHandlerAdapter<>(queryHandler);
-    }
-  }
-
-  static class QueryHandlerToMessageHandlerAdapter<M extends Message<R>, R>
-      implements MessageHandler<M, R> {
-
-    private final QueryHandler<Query<R>, R> queryHandler;
-
-    QueryHandlerToMessageHandlerAdapter(QueryHandler<Query<R>, R> queryHandler) {
-      this.queryHandler = queryHandler;
+      return queryHandler;
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public R handle(M message) throws Exception {
-      return queryHandler.handle(castToQuery(message));
-    }
+    public <R> MessageHandler<Message<R>, R> resolveHandler(Class<?> messageClass) {
+      if (!(queryHandlerFactory instanceof ClassKeyedQueryHandlerFactory)) {
+        return null;
+      }
 
-    @SuppressWarnings("unchecked")
-    private Query<R> castToQuery(Message<R> message) {
-      return (Query<R>) message;
+      QueryHandler queryHandler = ((ClassKeyedQueryHandlerFactory) queryHandlerFactory)
+          .resolveQueryHandler(messageClass);
+      return queryHandler;
     }
   }
   // endregion
@@ -0,0 +1,31 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for the async buses, Java 21 version of the multi-release jar.
+ */
+public final class DispatchExecutors {
+  private static final String VIRTUAL_THREAD_NAME_PREFIX = "commandbus-dispatch-";
+
+  private DispatchExecutors() {}
+
+  /**
+   * Whether the running JVM supports virtual threads.
+   */
+  public static boolean isVirtualThreadSupported() {
+    return true;
+  }
+
+  /**
+   * Create an executor which runs each dispatch on its own virtual thread, so handlers blocking on
+   * I/O don't hold a platform thread while they wait.
+   *
+   * @return the new executor
+   */
+  public static ExecutorService newVirtualThreadPerDispatchExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name(VIRTUAL_THREAD_NAME_PREFIX, 0).factory());
+  }
+}
@@ -0,0 +1,315 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.CommandHandler;
+import net.dathoang.cqrs.commandbus.event.Event;
+import net.dathoang.cqrs.commandbus.event.EventHandler;
+import net.dathoang.cqrs.commandbus.event.EventSubscription;
+import net.dathoang.cqrs.commandbus.query.Query;
+import net.dathoang.cqrs.commandbus.query.QueryHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class AutoScanHandlerFactoryTest {
+  private List<Object> createdBeans;
+  private AutoScanHandlerFactory handlerFactory;
+
+  @BeforeEach
+  void setUp() {
+    // Arrange
+    createdBeans = new CopyOnWriteArrayList<>();
+    handlerFactory = new AutoScanHandlerFactory(new BeanFactory() {
+      @Override
+      public <R> R createBean(Class<R> beanClass) {
+        try {
+          R bean = beanClass.newInstance();
+          createdBeans.add(bean);
+          return bean;
+        } catch (ReflectiveOperationException ex) {
+          throw new IllegalStateException(ex);
+        }
+      }
+    });
+    handlerFactory.scanAndRegisterHandlers(AutoScanHandlerFactoryTest.class.getPackage().getName());
+  }
+
+  @Nested
+  @DisplayName("createQueryHandler() & createCommandHandler()")
+  class CreateHandler {
+    @Test
+    @DisplayName("should return null when there is no handler registered for the message")
+    void shouldReturnNullWhenNoHandlerRegistered() {
+      // Act & Assert
+      assertThat((Object) handlerFactory.createQueryHandler("unknown.Query")).isNull();
+      assertThat((Object) handlerFactory.createCommandHandler("unknown.Command")).isNull();
+    }
+
+    @Test
+    @DisplayName("should create a new handler instance every time for prototype handlers")
+    void shouldCreateNewInstanceForPrototypeHandlers() {
+      // Act
+      Object first = handlerFactory.createQueryHandler(PrototypeQuery.class.getName());
+      Object second = handlerFactory.createQueryHandler(PrototypeQuery.class.getName());
+
+      // Assert
+      assertThat(first).isInstanceOf(PrototypeQueryHandler.class);
+      assertThat(first).isNotSameAs(second);
+    }
+
+    @Test
+    @DisplayName("should return the same handler instance for singleton handlers")
+    void shouldReturnSameInstanceForSingletonHandlers() {
+      // Act
+      Object first = handlerFactory.createCommandHandler(SingletonCommand.class.getName());
+      Object second = handlerFactory.createCommandHandler(SingletonCommand.class.getName());
+
+      // Assert
+      assertThat(first).isInstanceOf(SingletonCommandHandler.class);
+      assertThat(first).isSameAs(second);
+    }
+
+    @Test
+    @DisplayName("should return one handler instance per thread for thread-scoped handlers")
+    void shouldReturnOneInstancePerThreadForThreadHandlers() throws Exception {
+      // Act
+      Object first = handlerFactory.createQueryHandler(ThreadQuery.class.getName());
+      Object second = handlerFactory.createQueryHandler(ThreadQuery.class.getName());
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      Object otherThreadInstance = executor
+          .submit(() -> handlerFactory.createQueryHandler(ThreadQuery.class.getName()))
+          .get();
+      executor.shutdown();
+
+      // Assert
+      assertThat(first).isSameAs(second);
+      assertThat(first).isNotSameAs(otherThreadInstance);
+    }
+  }
+
+  @Nested
+  @DisplayName("resolveQueryHandler() & resolveCommandHandler()")
+  class ResolveHandler {
+    @Test
+    @DisplayName("should return null when there is no handler registered for the message")
+    void shouldReturnNullWhenNoHandlerRegistered() {
+      // Act & Assert
+      assertThat((Object) handlerFactory.resolveQueryHandler(String.class)).isNull();
+      assertThat((Object) handlerFactory.resolveCommandHandler(String.class)).isNull();
+    }
+
+    @Test
+    @DisplayName("should create a handler instance per dispatch for prototype handlers")
+    void shouldCreateInstancePerDispatchForPrototypeHandlers() throws Exception {
+      // Arrange
+      QueryHandler<Query<Object>, Object> handler =
+          handlerFactory.resolveQueryHandler(PrototypeQuery.class);
+
+      // Act
+      Object firstResult = handler.handle(new PrototypeQuery());
+      Object secondResult = handler.handle(new PrototypeQuery());
+
+      // Assert
+      assertThat(createdBeans).hasSize(2);
+      assertThat(firstResult).isNotSameAs(secondResult);
+    }
+
+    @Test
+    @DisplayName("should create the handler instance once for singleton handlers")
+    void shouldCreateInstanceOnceForSingletonHandlers() throws Exception {
+      // Arrange
+      CommandHandler<Command<Object>, Object> handler =
+          handlerFactory.resolveCommandHandler(SingletonCommand.class);
+
+      // Act
+      Object firstResult = handler.handle(new SingletonCommand());
+      Object secondResult = handler.handle(new SingletonCommand());
+
+      // Assert
+      assertThat(createdBeans).hasSize(1);
+      assertThat(firstResult).isSameAs(secondResult);
+    }
+
+    @Test
+    @DisplayName("should never create more instances than the pool size for pooled handlers")
+    void shouldNotExceedPoolSizeForPooledHandlers() throws Exception {
+      // Arrange
+      CommandHandler<Command<Object>, Object> handler =
+          handlerFactory.resolveCommandHandler(PooledCommand.class);
+      int dispatchCount = 8;
+      CountDownLatch startLatch = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(dispatchCount);
+      List<Future<Object>> results = new CopyOnWriteArrayList<>();
+
+      // Act
+      for (int i = 0; i < dispatchCount; i++) {
+        results.add(executor.submit(() -> {
+          startLatch.await();
+          return handler.handle(new PooledCommand());
+        }));
+      }
+      startLatch.countDown();
+      for (Future<Object> result : results) {
+        result.get(5, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+
+      // Assert
+      assertThat(createdBeans.size()).isBetween(1, PooledCommandHandler.POOL_SIZE);
+      assertThat(PooledCommandHandler.maxConcurrentUse).isEqualTo(1);
+    }
+  }
+
+  @Nested
+  @DisplayName("createEventHandlers()")
+  class CreateEventHandlers {
+    @Test
+    @DisplayName("should return every handler mapped to the event")
+    void shouldReturnEveryHandlerMappedToEvent() {
+      // Act
+      List<EventHandler<Event>> handlers =
+          handlerFactory.createEventHandlers(ScannedEvent.class.getName());
+
+      // Assert
+      assertThat(handlers).hasSize(2);
+      assertThat(handlers).hasAtLeastOneElementOfType(FirstEventHandler.class);
+      assertThat(handlers).hasAtLeastOneElementOfType(MultiEventHandler.class);
+    }
+
+    @Test
+    @DisplayName("should register the handlers with several mappings for each event")
+    void shouldRegisterHandlersWithSeveralMappingsForEachEvent() {
+      // Act
+      List<EventHandler<Event>> handlers =
+          handlerFactory.createEventHandlers(OtherScannedEvent.class.getName());
+
+      // Assert
+      assertThat(handlers).hasSize(1);
+      assertThat(handlers.get(0)).isInstanceOf(MultiEventHandler.class);
+    }
+
+    @Test
+    @DisplayName("should return an empty list when no handler is mapped to the event")
+    void shouldReturnEmptyListWhenNoHandlerIsMapped() {
+      // Act & Assert
+      assertThat(handlerFactory.<Event>createEventHandlers("unknown.Event")).isEmpty();
+    }
+  }
+
+  @Nested
+  @DisplayName("resolveEventSubscriptions()")
+  class ResolveEventSubscriptions {
+    @Test
+    @DisplayName("should return the subscriptions with their declared handler class")
+    void shouldReturnSubscriptionsWithTheirDeclaredHandlerClass() throws Exception {
+      // Act
+      List<EventSubscription<Event>> subscriptions =
+          handlerFactory.resolveEventSubscriptions(ScannedEvent.class);
+      for (EventSubscription<Event> subscription : subscriptions) {
+        subscription.getHandler().handle(new ScannedEvent());
+      }
+
+      // Assert
+      assertThat(subscriptions).extracting(EventSubscription::getHandlerClass)
+          .containsExactlyInAnyOrder(FirstEventHandler.class, MultiEventHandler.class);
+      assertThat(createdBeans).hasAtLeastOneElementOfType(FirstEventHandler.class);
+      assertThat(createdBeans).hasAtLeastOneElementOfType(MultiEventHandler.class);
+    }
+
+    @Test
+    @DisplayName("should return null when no handler is mapped to the event")
+    void shouldReturnNullWhenNoHandlerIsMapped() {
+      // Act & Assert
+      assertThat(handlerFactory.<Event>resolveEventSubscriptions(PrototypeQuery.class)).isNull();
+    }
+  }
+
+  // region Dummy classes
+  static class PrototypeQuery implements Query<Object> {}
+
+  static class SingletonCommand implements Command<Object> {}
+
+  static class ThreadQuery implements Query<Object> {}
+
+  static class PooledCommand implements Command<Object> {}
+
+  static class ScannedEvent implements Event {}
+
+  static class OtherScannedEvent implements Event {}
+
+  @EventMapping(ScannedEvent.class)
+  public static class FirstEventHandler implements EventHandler<ScannedEvent> {
+    @Override
+    public Void handle(ScannedEvent event) {
+      return null;
+    }
+  }
+
+  @EventMapping(ScannedEvent.class)
+  @EventMapping(OtherScannedEvent.class)
+  public static class MultiEventHandler implements EventHandler<Event> {
+    @Override
+    public Void handle(Event event) {
+      return null;
+    }
+  }
+
+  @QueryMapping(PrototypeQuery.class)
+  public static class PrototypeQueryHandler implements QueryHandler<PrototypeQuery, Object> {
+    @Override
+    public Object handle(PrototypeQuery query) {
+      return this;
+    }
+  }
+
+  @CommandMapping(SingletonCommand.class)
+  @HandlerScope(HandlerScopeType.SINGLETON)
+  public static class SingletonCommandHandler implements CommandHandler<SingletonCommand, Object> {
+    @Override
+    public Object handle(SingletonCommand command) {
+      return this;
+    }
+  }
+
+  @QueryMapping(ThreadQuery.class)
+  @HandlerScope(HandlerScopeType.THREAD)
+  public static class ThreadQueryHandler implements QueryHandler<ThreadQuery, Object> {
+    @Override
+    public Object handle(ThreadQuery query) {
+      return this;
+    }
+  }
+
+  @CommandMapping(PooledCommand.class)
+  @HandlerScope(value = HandlerScopeType.POOLED, poolSize = PooledCommandHandler.POOL_SIZE)
+  public static class PooledCommandHandler implements CommandHandler<PooledCommand, Object> {
+    static final int POOL_SIZE = 2;
+    static volatile int maxConcurrentUse;
+
+    private int concurrentUse;
+
+    @Override
+    public Object handle(PooledCommand command) throws Exception {
+      synchronized (this) {
+        concurrentUse++;
+        maxConcurrentUse = Math.max(maxConcurrentUse, concurrentUse);
+      }
+      Thread.sleep(10);
+      synchronized (this) {
+        concurrentUse--;
+      }
+      return this;
+    }
+  }
+  // endregion
+}
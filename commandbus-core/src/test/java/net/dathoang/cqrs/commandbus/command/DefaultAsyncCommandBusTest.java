@@ -0,0 +1,70 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DefaultAsyncCommandBusTest {
+  @Nested
+  @DisplayName("dispatch()")
+  static class DispatchTest {
+    @Test
+    @DisplayName("should dispatch through middleware pipeline and to command handler on the "
+        + "executor and complete with the result")
+    void shouldDispatchThroughMiddlewarePipelineAndToCommandHandlerOnExecutor() throws Exception {
+      // Arrange
+      DummyCommand dummyCommand = mock(DummyCommand.class);
+      Object handlerResult = new Object();
+      AtomicReference<Thread> handlingThread = new AtomicReference<>();
+      DummyCommandHandler dummyCommandHandler = mock(DummyCommandHandler.class);
+      doAnswer(invocation -> {
+        handlingThread.set(Thread.currentThread());
+        return handlerResult;
+      }).when(dummyCommandHandler).handle(dummyCommand);
+      CommandHandlerFactory commandHandlerFactory = mock(CommandHandlerFactory.class);
+      doReturn(dummyCommandHandler)
+          .when(commandHandlerFactory).createCommandHandler(dummyCommand.getClass().getName());
+      List<Middleware> middlewareList = asList(spy(new DummyMiddleware()));
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      AsyncCommandBus commandBus = new DefaultAsyncCommandBus(
+          commandHandlerFactory, middlewareList, Collections.emptyList(), executor);
+
+      // Act
+      Object commandBusResult = commandBus.dispatch(dummyCommand).get();
+      executor.shutdown();
+
+      // Assert
+      verify(middlewareList.get(0), times(1))
+          .handle(eq(dummyCommand), any());
+      assertThat(handlingThread.get()).isNotSameAs(Thread.currentThread());
+      assertThat(commandBusResult)
+          .isEqualTo(handlerResult);
+    }
+  }
+
+  // region Dummy classes for test
+  class DummyCommand implements Command<Object> {}
+
+  abstract class DummyCommandHandler implements CommandHandler<DummyCommand, Object> {}
+
+  static class DummyMiddleware implements Middleware {
+    @Override
+    public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next) throws Exception {
+      return next.call(message);
+    }
+  }
+}
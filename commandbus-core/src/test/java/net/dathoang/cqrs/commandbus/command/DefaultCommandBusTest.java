@@ -54,6 +54,37 @@ class DefaultCommandBusTest {
           .describedAs("Result returned from command bus must be same as result returned"
               + "from command handler");
     }
+    @Test
+    @DisplayName("should resolve the command handler once per command class when the factory "
+        + "is class-keyed")
+    void shouldResolveCommandHandlerOncePerCommandClass() throws Exception {
+      // Arrange
+      DummyCommand dummyCommand = mock(DummyCommand.class);
+      Object handlerResult = new Object();
+      DummyCommandHandler dummyCommandHandler = mock(DummyCommandHandler.class);
+      doReturn(handlerResult)
+          .when(dummyCommandHandler).handle(dummyCommand);
+      ClassKeyedCommandHandlerFactory commandHandlerFactory =
+          mock(ClassKeyedCommandHandlerFactory.class);
+      doReturn(dummyCommandHandler)
+          .when(commandHandlerFactory).resolveCommandHandler(dummyCommand.getClass());
+      CommandBus commandBus =
+          new DefaultCommandBus(commandHandlerFactory, asList(new DummyMiddleware()));
+
+      // Act
+      commandBus.dispatch(dummyCommand);
+      Object commandBusResult = commandBus.dispatch(dummyCommand);
+
+      // Assert
+      verify(commandHandlerFactory, times(1))
+          .resolveCommandHandler(dummyCommand.getClass());
+      verify(commandHandlerFactory, times(0))
+          .createCommandHandler(any());
+      verify(dummyCommandHandler, times(2))
+          .handle(dummyCommand);
+      assertThat(commandBusResult)
+          .isEqualTo(handlerResult);
+    }
   }
 
   // region Dummy classes for test
@@ -0,0 +1,262 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.DispatchPriority;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class PriorityAsyncCommandBusTest {
+  private List<String> handledCommands;
+  private CountDownLatch blocked;
+  private CountDownLatch release;
+  private CommandBus recordingCommandBus;
+
+  @BeforeEach
+  void setUp() {
+    handledCommands = Collections.synchronizedList(new ArrayList<>());
+    blocked = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    recordingCommandBus = new CommandBus() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public <R> R dispatch(Command<R> command) throws Exception {
+        if (command instanceof BlockingCommand) {
+          blocked.countDown();
+          release.await();
+        }
+        NamedCommand namedCommand = (NamedCommand) command;
+        handledCommands.add(namedCommand.name);
+        return (R) namedCommand.name;
+      }
+    };
+  }
+
+  @Nested
+  @DisplayName("PriorityAsyncCommandBus()")
+  class Constructor {
+    @Test
+    @DisplayName("should throw IllegalArgumentException when the aging period isn't positive")
+    void shouldThrowWhenAgingPeriodIsNotPositive() {
+      // Act
+      Throwable thrown = catchThrowable(() ->
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, 0, TimeUnit.SECONDS));
+
+      // Assert
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Nested
+  @DisplayName("dispatch()")
+  class Dispatch {
+    @Test
+    @DisplayName("should handle the pending commands with the highest priority first")
+    void shouldHandlePendingCommandsWithHighestPriorityFirst() throws Exception {
+      // Arrange
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, 1, TimeUnit.HOURS);
+      commandBus.dispatch(new BlockingCommand());
+      blocked.await();
+
+      // Act
+      commandBus.dispatch(new BulkCommand("bulk"));
+      commandBus.dispatch(new NamedCommand("normal"));
+      CompletableFuture<Object> interactive =
+          commandBus.dispatch(new InteractiveCommand("interactive"));
+      release.countDown();
+      commandBus.close();
+
+      // Assert
+      assertThat(interactive.get()).isEqualTo("interactive");
+      assertThat(handledCommands)
+          .containsExactly("blocking", "interactive", "normal", "bulk");
+    }
+
+    @Test
+    @DisplayName("should use the priority of the dispatch context over the annotation")
+    void shouldUsePriorityOfDispatchContextOverAnnotation() throws Exception {
+      // Arrange
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, 1, TimeUnit.HOURS);
+      commandBus.dispatch(new BlockingCommand());
+      blocked.await();
+
+      // Act
+      commandBus.dispatch(new InteractiveCommand("interactive"));
+      try (DispatchContext.Scope scope =
+          DispatchContext.current().withPriority(DispatchPriority.HIGH + 1).attach()) {
+        commandBus.dispatch(new BulkCommand("urgent bulk"));
+      }
+      release.countDown();
+      commandBus.close();
+
+      // Assert
+      assertThat(handledCommands).containsExactly("blocking", "urgent bulk", "interactive");
+    }
+
+    @Test
+    @DisplayName("should let commands which waited long enough overtake higher priority ones")
+    void shouldLetCommandsWhichWaitedLongEnoughOvertakeHigherPriorityOnes() throws Exception {
+      // Arrange
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, 1, TimeUnit.NANOSECONDS);
+      commandBus.dispatch(new BlockingCommand());
+      blocked.await();
+
+      // Act
+      commandBus.dispatch(new BulkCommand("bulk"));
+      Thread.sleep(1);
+      commandBus.dispatch(new InteractiveCommand("interactive"));
+      release.countDown();
+      commandBus.close();
+
+      // Assert
+      assertThat(handledCommands).containsExactly("blocking", "bulk", "interactive");
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally with the exception raised by the delegate bus")
+    void shouldCompleteExceptionallyWithExceptionRaisedByDelegateBus() throws Exception {
+      // Arrange
+      Exception exception = new Exception("Raised by the handler");
+      PriorityAsyncCommandBus commandBus = new PriorityAsyncCommandBus(new CommandBus() {
+        @Override
+        public <R> R dispatch(Command<R> command) throws Exception {
+          throw exception;
+        }
+      }, 1, 1, TimeUnit.SECONDS);
+
+      // Act
+      Throwable thrown = catchThrowable(() ->
+          commandBus.dispatch(new NamedCommand("failing")).get());
+      commandBus.close();
+
+      // Assert
+      assertThat(thrown).isInstanceOf(ExecutionException.class).hasCause(exception);
+    }
+
+    @Test
+    @DisplayName("should reject the commands dispatched once closed")
+    void shouldRejectCommandsDispatchedOnceClosed() throws Exception {
+      // Arrange
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, 1, TimeUnit.SECONDS);
+      commandBus.close();
+
+      // Act
+      Throwable thrown = catchThrowable(() ->
+          commandBus.dispatch(new NamedCommand("late")).get());
+
+      // Assert
+      assertThat(thrown).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    @DisplayName("should accept aging periods too long to multiply by the priority")
+    void shouldAcceptAgingPeriodsTooLongToMultiplyByPriority() throws Exception {
+      // Arrange
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 1, Long.MAX_VALUE, TimeUnit.DAYS);
+      commandBus.dispatch(new BlockingCommand());
+      blocked.await();
+
+      // Act
+      CompletableFuture<Object> bulk = commandBus.dispatch(new BulkCommand("bulk"));
+      CompletableFuture<Object> interactive =
+          commandBus.dispatch(new InteractiveCommand("interactive"));
+      release.countDown();
+      CompletableFuture.allOf(bulk, interactive).get(10, TimeUnit.SECONDS);
+      commandBus.close();
+
+      // Assert
+      assertThat(handledCommands).containsExactly("blocking", "interactive", "bulk");
+    }
+  }
+
+  @Nested
+  @DisplayName("close()")
+  class Close {
+    @Test
+    @DisplayName("should complete every command dispatched while closing")
+    void shouldCompleteEveryCommandDispatchedWhileClosing() throws Exception {
+      // Arrange
+      int producerCount = 4;
+      PriorityAsyncCommandBus commandBus =
+          new PriorityAsyncCommandBus(recordingCommandBus, 2, 1, TimeUnit.SECONDS);
+      ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+      List<Future<List<CompletableFuture<Object>>>> dispatched = new ArrayList<>();
+      for (int producer = 0; producer < producerCount; producer++) {
+        dispatched.add(producers.submit(() -> {
+          List<CompletableFuture<Object>> results = new ArrayList<>();
+          CompletableFuture<Object> result;
+          do {
+            result = commandBus.dispatch(new NamedCommand("command"));
+            results.add(result);
+          } while (!result.isCompletedExceptionally());
+          return results;
+        }));
+      }
+
+      // Act
+      Thread.sleep(20);
+      commandBus.close();
+
+      // Assert
+      for (Future<List<CompletableFuture<Object>>> producerResults : dispatched) {
+        for (CompletableFuture<Object> result : producerResults.get(10, TimeUnit.SECONDS)) {
+          Throwable thrown = catchThrowable(() -> result.get(10, TimeUnit.SECONDS));
+          if (thrown != null) {
+            assertThat(thrown).hasCauseInstanceOf(RejectedExecutionException.class);
+          }
+        }
+      }
+      producers.shutdown();
+    }
+  }
+
+  // region Dummy classes
+  static class NamedCommand implements Command<Object> {
+    private final String name;
+
+    NamedCommand(String name) {
+      this.name = name;
+    }
+  }
+
+  static class BlockingCommand extends NamedCommand {
+    BlockingCommand() {
+      super("blocking");
+    }
+  }
+
+  @DispatchPriority(DispatchPriority.HIGH)
+  static class InteractiveCommand extends NamedCommand {
+    InteractiveCommand(String name) {
+      super(name);
+    }
+  }
+
+  @DispatchPriority(DispatchPriority.LOW)
+  static class BulkCommand extends NamedCommand {
+    BulkCommand(String name) {
+      super(name);
+    }
+  }
+  // endregion
+}
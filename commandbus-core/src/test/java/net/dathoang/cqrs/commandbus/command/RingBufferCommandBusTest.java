@@ -0,0 +1,240 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class RingBufferCommandBusTest {
+  @Nested
+  @DisplayName("RingBufferCommandBus()")
+  class Constructor {
+    @Test
+    @DisplayName("should throw IllegalArgumentException when the buffer size isn't a power of two")
+    void shouldThrowWhenBufferSizeIsNotPowerOfTwo() {
+      // Act
+      Throwable thrown = catchThrowable(() -> new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), Collections.emptyList(), 1000, 1));
+
+      // Assert
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Nested
+  @DisplayName("dispatch()")
+  class Dispatch {
+    @Test
+    @DisplayName("should run the middleware pipeline and the handler on a consumer thread")
+    void shouldRunMiddlewarePipelineAndHandlerOnConsumerThread() throws Exception {
+      // Arrange
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      AtomicReference<Thread> handlingThread = new AtomicReference<>();
+      Middleware recordingMiddleware = new Middleware() {
+        @Override
+        public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+            throws Exception {
+          calls.add("middleware");
+          handlingThread.set(Thread.currentThread());
+          return next.call(message);
+        }
+      };
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), asList(recordingMiddleware), 8, 1);
+
+      // Act
+      Object result = commandBus.dispatch(new EchoCommand(42)).get();
+      commandBus.close();
+
+      // Assert
+      assertThat(result).isEqualTo(42);
+      assertThat(calls).containsExactly("middleware");
+      assertThat(handlingThread.get().getName()).startsWith("commandbus-ring-buffer-consumer");
+    }
+
+    @Test
+    @DisplayName("should attach the dispatch context of the dispatching thread on the consumer")
+    void shouldAttachDispatchContextOnConsumer() throws Exception {
+      // Arrange
+      DispatchContext context = DispatchContext.current().withTimeout(1, TimeUnit.MINUTES);
+      AtomicReference<DispatchContext> handlingContext = new AtomicReference<>();
+      Middleware recordingMiddleware = new Middleware() {
+        @Override
+        public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+            throws Exception {
+          handlingContext.set(DispatchContext.current());
+          return next.call(message);
+        }
+      };
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), asList(recordingMiddleware), 8, 1);
+
+      // Act
+      CompletableFuture<Object> result;
+      try (DispatchContext.Scope scope = context.attach()) {
+        result = commandBus.dispatch(new EchoCommand(1));
+      }
+      result.get();
+      commandBus.close();
+
+      // Assert
+      assertThat(handlingContext.get()).isSameAs(context);
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally with the exception raised by the handler")
+    void shouldCompleteExceptionallyWithExceptionRaisedByHandler() throws Exception {
+      // Arrange
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), Collections.emptyList(), 8, 1);
+
+      // Act
+      Throwable thrown = catchThrowable(() -> commandBus.dispatch(new EchoCommand(null)).get());
+      commandBus.close();
+
+      // Assert
+      assertThat(thrown).isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("should handle every command when producers wrap around a small buffer")
+    void shouldHandleEveryCommandWhenProducersWrapAroundSmallBuffer() throws Exception {
+      // Arrange
+      int producerCount = 4;
+      int commandsPerProducer = 10_000;
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), Collections.emptyList(), 16, 2);
+      ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+
+      // Act
+      List<Future<List<CompletableFuture<Object>>>> dispatched = new ArrayList<>();
+      for (int producer = 0; producer < producerCount; producer++) {
+        int firstValue = producer * commandsPerProducer;
+        dispatched.add(producers.submit(() -> {
+          List<CompletableFuture<Object>> results = new ArrayList<>();
+          for (int i = 0; i < commandsPerProducer; i++) {
+            results.add(commandBus.dispatch(new EchoCommand(firstValue + i)));
+          }
+          return results;
+        }));
+      }
+      List<Object> results = new ArrayList<>();
+      for (Future<List<CompletableFuture<Object>>> producerResults : dispatched) {
+        for (CompletableFuture<Object> result : producerResults.get()) {
+          results.add(result.get(10, TimeUnit.SECONDS));
+        }
+      }
+      producers.shutdown();
+      commandBus.close();
+
+      // Assert
+      assertThat(results).hasSize(producerCount * commandsPerProducer);
+      for (int i = 0; i < results.size(); i++) {
+        assertThat(results.get(i)).isEqualTo(i);
+      }
+    }
+
+    @Test
+    @DisplayName("should reject the commands dispatched once closed")
+    void shouldRejectCommandsDispatchedOnceClosed() throws Exception {
+      // Arrange
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), Collections.emptyList(), 8, 1);
+      commandBus.close();
+
+      // Act
+      Throwable thrown = catchThrowable(() -> commandBus.dispatch(new EchoCommand(1)).get());
+
+      // Assert
+      assertThat(thrown).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+  }
+
+  @Nested
+  @DisplayName("close()")
+  class Close {
+    @Test
+    @DisplayName("should complete every command dispatched while closing")
+    void shouldCompleteEveryCommandDispatchedWhileClosing() throws Exception {
+      // Arrange
+      int producerCount = 4;
+      RingBufferCommandBus commandBus = new RingBufferCommandBus(
+          new EchoCommandHandlerFactory(), Collections.emptyList(), 16, 2);
+      ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+      List<Future<List<CompletableFuture<Object>>>> dispatched = new ArrayList<>();
+      for (int producer = 0; producer < producerCount; producer++) {
+        dispatched.add(producers.submit(() -> {
+          List<CompletableFuture<Object>> results = new ArrayList<>();
+          CompletableFuture<Object> result;
+          do {
+            result = commandBus.dispatch(new EchoCommand(results.size()));
+            results.add(result);
+          } while (!result.isCompletedExceptionally());
+          return results;
+        }));
+      }
+
+      // Act
+      Thread.sleep(20);
+      commandBus.close();
+
+      // Assert
+      for (Future<List<CompletableFuture<Object>>> producerResults : dispatched) {
+        for (CompletableFuture<Object> result : producerResults.get(10, TimeUnit.SECONDS)) {
+          Throwable thrown = catchThrowable(() -> result.get(10, TimeUnit.SECONDS));
+          if (thrown != null) {
+            assertThat(thrown).hasCauseInstanceOf(RejectedExecutionException.class);
+          }
+        }
+      }
+      producers.shutdown();
+    }
+  }
+
+  // region Dummy classes
+  static class EchoCommand implements Command<Object> {
+    private final Integer value;
+
+    EchoCommand(Integer value) {
+      this.value = value;
+    }
+  }
+
+  static class EchoCommandHandler implements CommandHandler<EchoCommand, Object> {
+    @Override
+    public Object handle(EchoCommand command) {
+      if (command.value == null) {
+        throw new IllegalArgumentException("The command has no value");
+      }
+      return command.value;
+    }
+  }
+
+  static class EchoCommandHandlerFactory implements CommandHandlerFactory {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> CommandHandler<Command<R>, R> createCommandHandler(String commandName) {
+      return (CommandHandler) new EchoCommandHandler();
+    }
+  }
+  // endregion
+}
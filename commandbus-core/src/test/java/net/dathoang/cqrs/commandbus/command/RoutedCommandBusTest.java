@@ -0,0 +1,142 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class RoutedCommandBusTest {
+  private ExecutorService executorService;
+
+  @BeforeEach
+  void setUp() {
+    executorService = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Nested
+  @DisplayName("dispatch()")
+  class Dispatch {
+    @Test
+    @DisplayName("should dispatch commands with a routing key on the executor and return the "
+        + "result")
+    void shouldDispatchCommandsWithRoutingKeyOnExecutor() throws Exception {
+      // Arrange
+      AtomicReference<Thread> handlingThread = new AtomicReference<>();
+      CommandBus routedCommandBus = new RoutedCommandBus(new RecordingCommandBus(handlingThread),
+          executorService);
+
+      // Act
+      Object result = routedCommandBus.dispatch(new RoutedCommand("aggregate"));
+
+      // Assert
+      assertThat(result).isEqualTo("handled");
+      assertThat(handlingThread.get()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("should dispatch commands without routing key on the calling thread")
+    void shouldDispatchCommandsWithoutRoutingKeyOnCallingThread() throws Exception {
+      // Arrange
+      AtomicReference<Thread> handlingThread = new AtomicReference<>();
+      CommandBus routedCommandBus = new RoutedCommandBus(new RecordingCommandBus(handlingThread),
+          executorService);
+
+      // Act
+      routedCommandBus.dispatch(new UnroutedCommand());
+
+      // Assert
+      assertThat(handlingThread.get()).isSameAs(Thread.currentThread());
+    }
+
+    @Test
+    @DisplayName("should throw the exception raised by the delegate bus as is")
+    void shouldThrowExceptionRaisedByDelegateBus() {
+      // Arrange
+      Exception exception = new Exception("Raised by the handler");
+      CommandBus routedCommandBus = new RoutedCommandBus(new CommandBus() {
+        @Override
+        public <R> R dispatch(Command<R> command) throws Exception {
+          throw exception;
+        }
+      }, executorService);
+
+      // Act
+      Throwable thrown = catchThrowable(() ->
+          routedCommandBus.dispatch(new RoutedCommand("aggregate")));
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+    }
+
+    @Test
+    @DisplayName("should dispatch a command to the routing key being handled without waiting")
+    void shouldDispatchReentrantCommandWithoutWaiting() throws Exception {
+      // Arrange
+      AtomicReference<CommandBus> routedCommandBus = new AtomicReference<>();
+      routedCommandBus.set(new RoutedCommandBus(new CommandBus() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <R> R dispatch(Command<R> command) throws Exception {
+          RoutedCommand routedCommand = (RoutedCommand) command;
+          if (routedCommand.isFirst) {
+            return (R) routedCommandBus.get().dispatch(new RoutedCommand("aggregate", false));
+          }
+          return (R) "nested";
+        }
+      }, executorService));
+
+      // Act
+      Object result = routedCommandBus.get().dispatch(new RoutedCommand("aggregate", true));
+
+      // Assert
+      assertThat(result).isEqualTo("nested");
+    }
+  }
+
+  // region Dummy classes
+  static class RoutedCommand implements Command<Object> {
+    @RoutingKey
+    private final String aggregateId;
+    private final boolean isFirst;
+
+    RoutedCommand(String aggregateId) {
+      this(aggregateId, false);
+    }
+
+    RoutedCommand(String aggregateId, boolean isFirst) {
+      this.aggregateId = aggregateId;
+      this.isFirst = isFirst;
+    }
+  }
+
+  static class UnroutedCommand implements Command<Object> {}
+
+  static class RecordingCommandBus implements CommandBus {
+    private final AtomicReference<Thread> handlingThread;
+
+    RecordingCommandBus(AtomicReference<Thread> handlingThread) {
+      this.handlingThread = handlingThread;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> R dispatch(Command<R> command) {
+      handlingThread.set(Thread.currentThread());
+      return (R) "handled";
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,358 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.message.DispatchContext;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DefaultEventBusTest {
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Nested
+  @DisplayName("publish() without an executor")
+  class PublishSynchronously {
+    @Test
+    @DisplayName("should run the middleware pipeline once and deliver to every handler in order")
+    void shouldRunMiddlewarePipelineOnceAndDeliverToEveryHandlerInOrder() throws Exception {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      Middleware recordingMiddleware = new Middleware() {
+        @Override
+        public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+            throws Exception {
+          calls.add("middleware");
+          return next.call(message);
+        }
+      };
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(
+          new RecordingEventHandler("first", calls), new RecordingEventHandler("second", calls)),
+          asList(recordingMiddleware));
+
+      // Act
+      eventBus.publish(new DummyEvent("id"));
+
+      // Assert
+      assertThat(calls).containsExactly("middleware", "first", "second");
+    }
+
+    @Test
+    @DisplayName("should do nothing when the event has no handler")
+    void shouldDoNothingWhenEventHasNoHandler() throws Exception {
+      // Arrange
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(),
+          Collections.emptyList());
+
+      // Act
+      Throwable thrown = catchThrowable(() -> eventBus.publish(new DummyEvent("id")));
+
+      // Assert
+      assertThat(thrown).isNull();
+    }
+
+    @Test
+    @DisplayName("should deliver to the other handlers and throw the first failure with the "
+        + "others suppressed")
+    void shouldDeliverToOtherHandlersAndThrowFirstFailure() {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      Exception firstException = new Exception("Raised by the first handler");
+      Exception secondException = new Exception("Raised by the second handler");
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(
+          new ThrowingEventHandler(firstException),
+          new RecordingEventHandler("recording", calls),
+          new ThrowingEventHandler(secondException)), Collections.emptyList());
+
+      // Act
+      Throwable thrown = catchThrowable(() -> eventBus.publish(new DummyEvent("id")));
+
+      // Assert
+      assertThat(calls).containsExactly("recording");
+      assertThat(thrown).isSameAs(firstException);
+      assertThat(thrown.getSuppressed()).containsExactly(secondException);
+    }
+  }
+
+  @Nested
+  @DisplayName("publish() with an executor")
+  class PublishInParallel {
+    @Test
+    @DisplayName("should deliver to the handlers in parallel and wait for all of them")
+    void shouldDeliverToHandlersInParallelAndWaitForAllOfThem() throws Exception {
+      // Arrange
+      // Every handler waits for the others, so they only complete when run in parallel. The
+      // handlers have different classes, as a handler class receives the events of a routing key
+      // one at a time.
+      CountDownLatch allHandling = new CountDownLatch(2);
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(
+          new AwaitingEventHandler("first", allHandling, calls) {},
+          new AwaitingEventHandler("second", allHandling, calls) {}),
+          Collections.emptyList(), executor);
+
+      // Act
+      eventBus.publish(new DummyEvent("id"));
+
+      // Assert
+      assertThat(calls).containsExactlyInAnyOrder("first", "second");
+    }
+
+    @Test
+    @DisplayName("should deliver the events with equal routing keys to a handler in order")
+    void shouldDeliverEventsWithEqualRoutingKeysToHandlerInOrder() throws Exception {
+      // Arrange
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      CountDownLatch firstHandling = new CountDownLatch(1);
+      CountDownLatch releaseFirst = new CountDownLatch(1);
+      EventHandler<Event> handler = new EventHandler<Event>() {
+        @Override
+        public Void handle(Event event) throws Exception {
+          DummyEvent dummyEvent = (DummyEvent) event;
+          if (dummyEvent.name.equals("first")) {
+            firstHandling.countDown();
+            releaseFirst.await();
+          }
+          calls.add(dummyEvent.name);
+          return null;
+        }
+      };
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(handler),
+          Collections.emptyList(), executor);
+      ExecutorService publishers = Executors.newFixedThreadPool(2);
+
+      // Act
+      publishers.submit(() -> {
+        eventBus.publish(new DummyEvent("aggregate", "first"));
+        return null;
+      });
+      firstHandling.await();
+      publishers.submit(() -> {
+        eventBus.publish(new DummyEvent("aggregate", "second"));
+        return null;
+      });
+      Thread.sleep(50);
+      releaseFirst.countDown();
+      publishers.shutdown();
+      publishers.awaitTermination(5, TimeUnit.SECONDS);
+
+      // Assert
+      assertThat(calls).containsExactly("first", "second");
+    }
+
+    @Test
+    @DisplayName("should order the deliveries by the declared handler class")
+    void shouldOrderDeliveriesByDeclaredHandlerClass() throws Exception {
+      // Arrange
+      // Both handlers have the same class, but different declared classes, so they only
+      // complete when the events of a routing key are delivered to them in parallel
+      CountDownLatch allHandling = new CountDownLatch(2);
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      EventBus eventBus = new DefaultEventBus(new SubscriptionEventHandlerFactory(
+          new EventSubscription<>(String.class,
+              new AwaitingEventHandler("first", allHandling, calls)),
+          new EventSubscription<>(Integer.class,
+              new AwaitingEventHandler("second", allHandling, calls))),
+          Collections.emptyList(), executor);
+
+      // Act
+      eventBus.publish(new DummyEvent("aggregate"));
+
+      // Assert
+      assertThat(calls).containsExactlyInAnyOrder("first", "second");
+    }
+
+    @Test
+    @DisplayName("should resolve the subscriptions of an event class once")
+    void shouldResolveSubscriptionsOfEventClassOnce() throws Exception {
+      // Arrange
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      SubscriptionEventHandlerFactory handlerFactory = new SubscriptionEventHandlerFactory(
+          new EventSubscription<>(RecordingEventHandler.class,
+              new RecordingEventHandler("recording", calls)));
+      EventBus eventBus = new DefaultEventBus(handlerFactory, Collections.emptyList(), executor);
+
+      // Act
+      eventBus.publish(new DummyEvent("aggregate"));
+      eventBus.publish(new DummyEvent("aggregate"));
+
+      // Assert
+      assertThat(calls).containsExactly("recording", "recording");
+      assertThat(handlerFactory.resolveCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("should attach the dispatch context of the publishing thread on the handlers")
+    void shouldAttachDispatchContextOnHandlers() throws Exception {
+      // Arrange
+      DispatchContext context = DispatchContext.current().withTimeout(1, TimeUnit.MINUTES);
+      AtomicReference<DispatchContext> handlingContext = new AtomicReference<>();
+      EventHandler<Event> handler = new EventHandler<Event>() {
+        @Override
+        public Void handle(Event event) {
+          handlingContext.set(DispatchContext.current());
+          return null;
+        }
+      };
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(handler),
+          Collections.emptyList(), executor);
+
+      // Act
+      try (DispatchContext.Scope scope = context.attach()) {
+        eventBus.publish(new DummyEvent("id"));
+      }
+
+      // Assert
+      assertThat(handlingContext.get()).isSameAs(context);
+    }
+
+    @Test
+    @DisplayName("should throw the failure of a handler once all the handlers are done")
+    void shouldThrowFailureOfHandlerOnceAllHandlersAreDone() {
+      // Arrange
+      List<String> calls = Collections.synchronizedList(new ArrayList<>());
+      Exception exception = new Exception("Raised by the handler");
+      EventBus eventBus = new DefaultEventBus(new ListEventHandlerFactory(
+          new ThrowingEventHandler(exception), new RecordingEventHandler("recording", calls)),
+          Collections.emptyList(), executor);
+
+      // Act
+      Throwable thrown = catchThrowable(() -> eventBus.publish(new DummyEvent(null)));
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(calls).containsExactly("recording");
+    }
+  }
+
+  // region Dummy classes
+  static class DummyEvent implements Event {
+    @RoutingKey
+    private final String aggregateId;
+    private final String name;
+
+    DummyEvent(String aggregateId) {
+      this(aggregateId, "event");
+    }
+
+    DummyEvent(String aggregateId, String name) {
+      this.aggregateId = aggregateId;
+      this.name = name;
+    }
+  }
+
+  static class ListEventHandlerFactory implements EventHandlerFactory {
+    private final List<EventHandler<?>> handlers;
+
+    ListEventHandlerFactory(EventHandler<?>... handlers) {
+      this.handlers = asList(handlers);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Event> List<EventHandler<E>> createEventHandlers(String eventName) {
+      return (List) handlers;
+    }
+  }
+
+  static class SubscriptionEventHandlerFactory implements ClassKeyedEventHandlerFactory {
+    private final List<EventSubscription<?>> subscriptions;
+    private final AtomicInteger resolveCount = new AtomicInteger();
+
+    SubscriptionEventHandlerFactory(EventSubscription<?>... subscriptions) {
+      this.subscriptions = asList(subscriptions);
+    }
+
+    @Override
+    public <E extends Event> List<EventHandler<E>> createEventHandlers(String eventName) {
+      throw new UnsupportedOperationException("The subscriptions must be resolved by class");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Event> List<EventSubscription<E>> resolveEventSubscriptions(
+        Class<?> eventClass) {
+      resolveCount.incrementAndGet();
+      return (List) subscriptions;
+    }
+  }
+
+  static class RecordingEventHandler implements EventHandler<Event> {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingEventHandler(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public Void handle(Event event) {
+      calls.add(name);
+      return null;
+    }
+  }
+
+  static class AwaitingEventHandler implements EventHandler<Event> {
+    private final String name;
+    private final CountDownLatch allHandling;
+    private final List<String> calls;
+
+    AwaitingEventHandler(String name, CountDownLatch allHandling, List<String> calls) {
+      this.name = name;
+      this.allHandling = allHandling;
+      this.calls = calls;
+    }
+
+    @Override
+    public Void handle(Event event) throws Exception {
+      allHandling.countDown();
+      if (!allHandling.await(5, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("The handlers weren't run in parallel");
+      }
+      calls.add(name);
+      return null;
+    }
+  }
+
+  static class ThrowingEventHandler implements EventHandler<Event> {
+    private final Exception exception;
+
+    ThrowingEventHandler(Exception exception) {
+      this.exception = exception;
+    }
+
+    @Override
+    public Void handle(Event event) throws Exception {
+      throw exception;
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,98 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class AnnotatedKeyExtractorTest {
+  private final AnnotatedKeyExtractor extractor = new AnnotatedKeyExtractor(DummyKey.class);
+
+  @Nested
+  @DisplayName("extract()")
+  class Extract {
+    @Test
+    @DisplayName("should return the value of the annotated field, including inherited ones")
+    void shouldReturnValueOfAnnotatedField() {
+      // Act
+      Object key = extractor.extract(new InheritedFieldMessage("key"));
+
+      // Assert
+      assertThat(key).isEqualTo("key");
+    }
+
+    @Test
+    @DisplayName("should return the value of the annotated method")
+    void shouldReturnValueOfAnnotatedMethod() {
+      // Act
+      Object key = extractor.extract(new MethodMessage());
+
+      // Assert
+      assertThat(key).isEqualTo(42);
+    }
+
+    @Test
+    @DisplayName("should return null when the message doesn't have an annotated member")
+    void shouldReturnNullWhenMessageHasNoAnnotatedMember() {
+      // Act
+      Object key = extractor.extract(new NoKeyMessage());
+
+      // Assert
+      assertThat(key).isNull();
+      assertThat(extractor.hasKey(NoKeyMessage.class)).isFalse();
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException when several members are annotated")
+    void shouldThrowWhenSeveralMembersAreAnnotated() {
+      // Act
+      Throwable exception = catchThrowable(() -> extractor.extract(new TwoKeysMessage()));
+
+      // Assert
+      assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  // region Dummy classes
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target({ElementType.FIELD, ElementType.METHOD})
+  @interface DummyKey {}
+
+  static class FieldMessage implements Message<Object> {
+    @DummyKey
+    private final String key;
+
+    FieldMessage(String key) {
+      this.key = key;
+    }
+  }
+
+  static class InheritedFieldMessage extends FieldMessage {
+    InheritedFieldMessage(String key) {
+      super(key);
+    }
+  }
+
+  static class MethodMessage implements Message<Object> {
+    @DummyKey
+    private int getKey() {
+      return 42;
+    }
+  }
+
+  static class NoKeyMessage implements Message<Object> {}
+
+  static class TwoKeysMessage implements Message<Object> {
+    @DummyKey
+    private String firstKey;
+    @DummyKey
+    private String secondKey;
+  }
+  // endregion
+}
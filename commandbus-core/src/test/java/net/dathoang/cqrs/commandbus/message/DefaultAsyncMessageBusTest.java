@@ -0,0 +1,189 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.middleware.AsyncMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.AsyncNextMiddlewareFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DefaultAsyncMessageBusTest {
+  @Nested
+  @DisplayName("dispatch()")
+  class Dispatch {
+    private MessageBus messageBusMock;
+    private List<Runnable> submittedTasks;
+    private Executor queueingExecutor;
+    private DummyMessage dummyMessage;
+
+    @BeforeEach
+    void setUp() {
+      // Arrange
+      messageBusMock = mock(MessageBus.class);
+      submittedTasks = new ArrayList<>();
+      queueingExecutor = submittedTasks::add;
+      dummyMessage = new DummyMessage();
+    }
+
+    @Test
+    @DisplayName("should dispatch to the message bus on the executor and complete with its result")
+    void shouldDispatchOnExecutorAndCompleteWithResult() throws Exception {
+      // Arrange
+      Object result = new Object();
+      doReturn(result).when(messageBusMock).dispatch(dummyMessage);
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(
+          messageBusMock, Collections.emptyList(), queueingExecutor);
+
+      // Act
+      CompletableFuture<Object> future = asyncMessageBus.dispatch(dummyMessage);
+
+      // Assert
+      assertThat(future).isNotDone();
+      verify(messageBusMock, never()).dispatch(dummyMessage);
+      submittedTasks.forEach(Runnable::run);
+      assertThat(future.get()).isSameAs(result);
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally with the exception raised by the message bus")
+    void shouldCompleteExceptionallyWithExceptionRaisedByMessageBus() throws Exception {
+      // Arrange
+      Exception exception = new Exception("Raised by the handler");
+      doThrow(exception).when(messageBusMock).dispatch(dummyMessage);
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(
+          messageBusMock, Collections.emptyList(), Runnable::run);
+
+      // Act
+      Throwable thrown = catchThrowable(() -> asyncMessageBus.dispatch(dummyMessage).get());
+
+      // Assert
+      assertThat(thrown).isInstanceOf(ExecutionException.class)
+          .hasCause(exception);
+    }
+
+    @Test
+    @DisplayName("should complete exceptionally when the executor rejects the message")
+    void shouldCompleteExceptionallyWhenExecutorRejects() {
+      // Arrange
+      RejectedExecutionException exception = new RejectedExecutionException("Saturated");
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(
+          messageBusMock, Collections.emptyList(), task -> {
+            throw exception;
+          });
+
+      // Act
+      Throwable thrown = catchThrowable(() -> asyncMessageBus.dispatch(dummyMessage).get());
+
+      // Assert
+      assertThat(thrown).hasCause(exception);
+    }
+
+    @Test
+    @DisplayName("should attach the dispatch context of the dispatching thread on the executor")
+    void shouldAttachDispatchContextOnExecutor() throws Exception {
+      // Arrange
+      DispatchContext context = DispatchContext.current().withTimeout(1, TimeUnit.MINUTES);
+      AtomicReference<DispatchContext> handlingContext = new AtomicReference<>();
+      MessageBus recordingMessageBus = new MessageBus() {
+        @Override
+        public <R> R dispatch(Message<R> message) {
+          handlingContext.set(DispatchContext.current());
+          return null;
+        }
+      };
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(
+          recordingMessageBus, Collections.emptyList(), queueingExecutor);
+      try (DispatchContext.Scope scope = context.attach()) {
+        asyncMessageBus.dispatch(dummyMessage);
+      }
+
+      // Act
+      submittedTasks.forEach(Runnable::run);
+
+      // Assert
+      assertThat(handlingContext.get()).isSameAs(context);
+      assertThat(DispatchContext.current().hasDeadline()).isFalse();
+    }
+
+    @Test
+    @DisplayName("should run async middlewares in order on the dispatching thread")
+    void shouldRunAsyncMiddlewaresInOrderOnDispatchingThread() throws Exception {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      doReturn("result").when(messageBusMock).dispatch(dummyMessage);
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(messageBusMock, asList(
+          new RecordingAsyncMiddleware("first", calls),
+          new RecordingAsyncMiddleware("second", calls)), queueingExecutor);
+
+      // Act
+      CompletableFuture<Object> future = asyncMessageBus.dispatch(dummyMessage);
+
+      // Assert
+      assertThat(calls).containsExactly("first", "second");
+      submittedTasks.forEach(Runnable::run);
+      assertThat(future.get()).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should short-circuit when an async middleware returns its own future")
+    void shouldShortCircuitWhenAsyncMiddlewareReturnsItsOwnFuture() throws Exception {
+      // Arrange
+      AsyncMiddleware shortCircuitMiddleware = new AsyncMiddleware() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <R> CompletableFuture<R> handle(Message<R> message,
+            AsyncNextMiddlewareFunction<Message<R>, R> next) {
+          return CompletableFuture.completedFuture((R) "cached");
+        }
+      };
+      AsyncMessageBus asyncMessageBus = new DefaultAsyncMessageBus(
+          messageBusMock, asList(shortCircuitMiddleware), queueingExecutor);
+
+      // Act
+      Object result = asyncMessageBus.dispatch(dummyMessage).get();
+
+      // Assert
+      assertThat(result).isEqualTo("cached");
+      assertThat(submittedTasks).isEmpty();
+    }
+  }
+
+  // region Dummy classes
+  static class DummyMessage implements Message<Object> {}
+
+  static class RecordingAsyncMiddleware implements AsyncMiddleware {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingAsyncMiddleware(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public <R> CompletableFuture<R> handle(Message<R> message,
+        AsyncNextMiddlewareFunction<Message<R>, R> next) {
+      calls.add(name);
+      return next.call(message);
+    }
+  }
+  // endregion
+}
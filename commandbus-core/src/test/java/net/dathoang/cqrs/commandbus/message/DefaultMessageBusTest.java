@@ -151,6 +151,62 @@ class DefaultMessageBusTest {
     }
   }
 
+  @Nested
+  @DisplayName("dispatch() with a class-keyed handler factory")
+  class DispatchWithClassKeyedFactory {
+    private ClassKeyedMessageHandlerFactory handlerFactoryMock;
+    private DummyMessageHandler mockMessageHandler;
+    private DefaultMessageBus messageBus;
+
+    @BeforeEach
+    void setUp() throws Exception {
+      // Arrange
+      handlerFactoryMock = mock(ClassKeyedMessageHandlerFactory.class);
+      mockMessageHandler = mock(DummyMessageHandler.class);
+      messageBus = new DefaultMessageBus(handlerFactoryMock, asList(new DummyMiddleware()));
+    }
+
+    @Test
+    @DisplayName("should resolve the handler once per message class and reuse it")
+    void shouldResolveHandlerOncePerMessageClass() throws Exception {
+      // Arrange
+      Object handlerResult = new Object();
+      doReturn(mockMessageHandler)
+          .when(handlerFactoryMock).resolveHandler(DummyMessage.class);
+      doReturn(handlerResult)
+          .when(mockMessageHandler).handle(any());
+
+      // Act
+      messageBus.dispatch(new DummyMessage());
+      Object messageBusResult = messageBus.dispatch(new DummyMessage());
+
+      // Assert
+      verify(handlerFactoryMock, times(1)).resolveHandler(DummyMessage.class);
+      verify(handlerFactoryMock, times(0)).createHandler(any());
+      verify(mockMessageHandler, times(2)).handle(any());
+      assertThat(messageBusResult).isEqualTo(handlerResult);
+    }
+
+    @Test
+    @DisplayName("should fall back to the message name lookup when the class can't be resolved")
+    void shouldFallBackToMessageNameLookupWhenClassCantBeResolved() throws Exception {
+      // Arrange
+      DummyMessage dummyMessage = new DummyMessage();
+      doReturn(null)
+          .when(handlerFactoryMock).resolveHandler(DummyMessage.class);
+      doReturn(mockMessageHandler)
+          .when(handlerFactoryMock).createHandler(DummyMessage.class.getName());
+
+      // Act
+      messageBus.dispatch(dummyMessage);
+      messageBus.dispatch(dummyMessage);
+
+      // Assert
+      verify(handlerFactoryMock, times(2)).createHandler(DummyMessage.class.getName());
+      verify(mockMessageHandler, times(2)).handle(dummyMessage);
+    }
+  }
+
   // region Dummy classes
   static class DummyMessage implements Message<Object> {}
 
@@ -0,0 +1,77 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DispatchContextTest {
+  @Nested
+  @DisplayName("current()")
+  class Current {
+    @Test
+    @DisplayName("should return an empty context when none is attached")
+    void shouldReturnEmptyContextWhenNoneIsAttached() {
+      // Act
+      DispatchContext context = DispatchContext.current();
+
+      // Assert
+      assertThat(context.hasDeadline()).isFalse();
+      assertThat(context.isExpired()).isFalse();
+      assertThat(context.remainingNanos()).isEqualTo(Long.MAX_VALUE);
+      assertThat(catchThrowable(context::getDeadlineNanos))
+          .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("should return the attached context until its scope is closed")
+    void shouldReturnAttachedContextUntilScopeIsClosed() {
+      // Arrange
+      DispatchContext outerContext = DispatchContext.current().withTimeout(1, TimeUnit.MINUTES);
+      DispatchContext innerContext = outerContext.withTimeout(1, TimeUnit.SECONDS);
+
+      // Act & Assert
+      try (DispatchContext.Scope outerScope = outerContext.attach()) {
+        try (DispatchContext.Scope innerScope = innerContext.attach()) {
+          assertThat(DispatchContext.current()).isSameAs(innerContext);
+        }
+        assertThat(DispatchContext.current()).isSameAs(outerContext);
+      }
+      assertThat(DispatchContext.current().hasDeadline()).isFalse();
+    }
+  }
+
+  @Nested
+  @DisplayName("withDeadline()")
+  class WithDeadline {
+    @Test
+    @DisplayName("should keep the earliest deadline")
+    void shouldKeepEarliestDeadline() {
+      // Arrange
+      long now = System.nanoTime();
+      DispatchContext context = DispatchContext.current().withDeadline(now + 1000);
+
+      // Act
+      DispatchContext laterDeadlineContext = context.withDeadline(now + 2000);
+      DispatchContext earlierDeadlineContext = context.withDeadline(now + 500);
+
+      // Assert
+      assertThat(laterDeadlineContext.getDeadlineNanos()).isEqualTo(now + 1000);
+      assertThat(earlierDeadlineContext.getDeadlineNanos()).isEqualTo(now + 500);
+    }
+
+    @Test
+    @DisplayName("should be expired once the deadline has passed")
+    void shouldBeExpiredOnceDeadlineHasPassed() {
+      // Act
+      DispatchContext context = DispatchContext.current().withDeadline(System.nanoTime() - 1);
+
+      // Assert
+      assertThat(context.isExpired()).isTrue();
+      assertThat(context.remainingNanos()).isNegative();
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DispatchExecutorsTest {
+  @Nested
+  @DisplayName("newVirtualThreadPerDispatchExecutor()")
+  class NewVirtualThreadPerDispatchExecutor {
+    @Test
+    @DisplayName("should run the dispatches on dispatch threads whatever the virtual thread "
+        + "support")
+    void shouldRunDispatchesOnDispatchThreads() throws Exception {
+      // Arrange
+      ExecutorService executor = DispatchExecutors.newVirtualThreadPerDispatchExecutor();
+
+      // Act
+      String threadName = executor.submit(() -> Thread.currentThread().getName()).get();
+      executor.shutdown();
+
+      // Assert
+      assertThat(threadName).startsWith("commandbus-dispatch-");
+    }
+  }
+}
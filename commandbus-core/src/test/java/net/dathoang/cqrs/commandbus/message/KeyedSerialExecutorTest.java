@@ -0,0 +1,174 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class KeyedSerialExecutorTest {
+  private ExecutorService executorService;
+
+  @BeforeEach
+  void setUp() {
+    executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Nested
+  @DisplayName("execute()")
+  class Execute {
+    @Test
+    @DisplayName("should run the tasks of the same key one at a time in submission order")
+    void shouldRunTasksOfSameKeyOneAtATimeInOrder() throws Exception {
+      // Arrange
+      KeyedSerialExecutor executor = new KeyedSerialExecutor(executorService);
+      List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<>());
+      AtomicInteger runningTaskCount = new AtomicInteger();
+      AtomicBoolean overlapped = new AtomicBoolean();
+      CountDownLatch done = new CountDownLatch(200);
+
+      // Act
+      for (int i = 0; i < 200; i++) {
+        int taskNumber = i;
+        executor.execute("key", () -> {
+          if (runningTaskCount.incrementAndGet() > 1) {
+            overlapped.set(true);
+          }
+          executionOrder.add(taskNumber);
+          runningTaskCount.decrementAndGet();
+          done.countDown();
+        });
+      }
+      done.await(5, TimeUnit.SECONDS);
+
+      // Assert
+      assertThat(overlapped.get()).isFalse();
+      assertThat(executionOrder).hasSize(200).isSorted();
+    }
+
+    @Test
+    @DisplayName("should run the tasks of different keys in parallel")
+    void shouldRunTasksOfDifferentKeysInParallel() throws Exception {
+      // Arrange
+      KeyedSerialExecutor executor = new KeyedSerialExecutor(executorService);
+      CountDownLatch bothStarted = new CountDownLatch(2);
+      CountDownLatch done = new CountDownLatch(2);
+      Runnable task = () -> {
+        bothStarted.countDown();
+        try {
+          if (bothStarted.await(5, TimeUnit.SECONDS)) {
+            done.countDown();
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      };
+
+      // Act
+      executor.execute("first key", task);
+      executor.execute("second key", task);
+
+      // Assert
+      assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("should keep running the tasks of a key after one of them failed")
+    void shouldKeepRunningTasksAfterOneFailed() throws Exception {
+      // Arrange
+      KeyedSerialExecutor executor = new KeyedSerialExecutor(executorService);
+      CountDownLatch done = new CountDownLatch(1);
+
+      // Act
+      executor.execute("key", () -> {
+        throw new IllegalStateException("Raised by the task");
+      });
+      executor.execute("key", done::countDown);
+
+      // Assert
+      assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("should keep draining on the same thread when the delegate rejects the next drain")
+    void shouldKeepDrainingOnSameThreadWhenDelegateRejectsNextDrain() throws Exception {
+      // Arrange
+      int taskCount = 500_000;
+      CountDownLatch allSubmitted = new CountDownLatch(1);
+      CountDownLatch done = new CountDownLatch(1);
+      AtomicInteger runTaskCount = new AtomicInteger();
+      AtomicBoolean isStarted = new AtomicBoolean();
+      // Runs the first drain on a thread with a small stack, and rejects the next ones
+      KeyedSerialExecutor executor = new KeyedSerialExecutor(command -> {
+        if (isStarted.getAndSet(true)) {
+          throw new RejectedExecutionException("Only the first drain is accepted");
+        }
+        new Thread(null, command, "small-stack-drain", 128 * 1024).start();
+      });
+      executor.execute("key", () -> {
+        try {
+          allSubmitted.await();
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      // Act
+      for (int i = 0; i < taskCount; i++) {
+        executor.execute("key", () -> {
+          if (runTaskCount.incrementAndGet() == taskCount) {
+            done.countDown();
+          }
+        });
+      }
+      allSubmitted.countDown();
+
+      // Assert
+      assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
+  @Nested
+  @DisplayName("isRunningTaskOf()")
+  class IsRunningTaskOf {
+    @Test
+    @DisplayName("should return true only from a task of the key")
+    void shouldReturnTrueOnlyFromTaskOfKey() throws Exception {
+      // Arrange
+      KeyedSerialExecutor executor = new KeyedSerialExecutor(executorService);
+      AtomicBoolean isRunningTaskOfKey = new AtomicBoolean();
+      AtomicBoolean isRunningTaskOfOtherKey = new AtomicBoolean(true);
+      CountDownLatch done = new CountDownLatch(1);
+
+      // Act
+      executor.execute("key", () -> {
+        isRunningTaskOfKey.set(executor.isRunningTaskOf("key"));
+        isRunningTaskOfOtherKey.set(executor.isRunningTaskOf("other key"));
+        done.countDown();
+      });
+      done.await(5, TimeUnit.SECONDS);
+
+      // Assert
+      assertThat(isRunningTaskOfKey.get()).isTrue();
+      assertThat(isRunningTaskOfOtherKey.get()).isFalse();
+      assertThat(executor.isRunningTaskOf("key")).isFalse();
+    }
+  }
+}
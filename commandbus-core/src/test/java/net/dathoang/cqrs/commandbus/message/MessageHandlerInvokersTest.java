@@ -0,0 +1,140 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+// Public so that the public dummy handlers below can be bound through LambdaMetafactory
+public class MessageHandlerInvokersTest {
+  @Nested
+  @DisplayName("forHandlerClass()")
+  class ForHandlerClass {
+    @Test
+    @DisplayName("should return the same invoker for the same handler class")
+    void shouldReturnSameInvokerForSameHandlerClass() {
+      // Act
+      MessageHandlerInvoker first = MessageHandlerInvokers.forHandlerClass(PublicHandler.class);
+      MessageHandlerInvoker second = MessageHandlerInvokers.forHandlerClass(PublicHandler.class);
+
+      // Assert
+      assertThat(first).isSameAs(second);
+    }
+
+    @Test
+    @DisplayName("should bind public handlers with a spun class")
+    void shouldBindPublicHandlersWithSpunClass() throws Exception {
+      // Arrange
+      DummyMessage message = new DummyMessage();
+
+      // Act
+      MessageHandlerInvoker invoker = MessageHandlerInvokers.forHandlerClass(PublicHandler.class);
+      Object result = invoker.invoke(new PublicHandler(), message);
+
+      // Assert
+      assertThat(invoker.getClass().isSynthetic()).isTrue();
+      assertThat(result).isSameAs(message);
+    }
+
+    @Test
+    @DisplayName("should bind non-public handlers with a method handle")
+    void shouldBindNonPublicHandlersWithMethodHandle() throws Exception {
+      // Arrange
+      DummyMessage message = new DummyMessage();
+
+      // Act
+      MessageHandlerInvoker invoker =
+          MessageHandlerInvokers.forHandlerClass(PackagePrivateHandler.class);
+      Object result = invoker.invoke(new PackagePrivateHandler(), message);
+
+      // Assert
+      assertThat(invoker.getClass().isSynthetic()).isFalse();
+      assertThat(result).isSameAs(message);
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException when the class isn't a message handler")
+    void shouldThrowWhenClassIsNotMessageHandler() {
+      // Act
+      Throwable exception = catchThrowable(() -> MessageHandlerInvokers.forHandlerClass(
+          String.class));
+
+      // Assert
+      assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Nested
+  @DisplayName("invoke()")
+  class Invoke {
+    @Test
+    @DisplayName("should rethrow the exception raised by the handler as is")
+    void shouldRethrowExceptionRaisedByHandler() {
+      // Arrange
+      ThrowingHandler publicHandler = new ThrowingHandler();
+      PackagePrivateThrowingHandler packagePrivateHandler = new PackagePrivateThrowingHandler();
+
+      // Act
+      Throwable publicHandlerException = catchThrowable(() ->
+          MessageHandlerInvokers.invoke(publicHandler, new DummyMessage()));
+      Throwable packagePrivateHandlerException = catchThrowable(() ->
+          MessageHandlerInvokers.invoke(packagePrivateHandler, new DummyMessage()));
+
+      // Assert
+      assertThat(publicHandlerException).isSameAs(ThrowingHandler.EXCEPTION);
+      assertThat(packagePrivateHandlerException)
+          .isSameAs(PackagePrivateThrowingHandler.EXCEPTION);
+    }
+
+    @Test
+    @DisplayName("should invoke handlers implemented with a lambda")
+    void shouldInvokeHandlersImplementedWithLambda() throws Exception {
+      // Arrange
+      MessageHandler<DummyMessage, Object> handler = message -> "handled by a lambda";
+
+      // Act
+      Object result = MessageHandlerInvokers.invoke(handler, new DummyMessage());
+
+      // Assert
+      assertThat(result).isEqualTo("handled by a lambda");
+    }
+  }
+
+  // region Dummy classes
+  public static class DummyMessage implements Message<Object> {}
+
+  public static class PublicHandler implements MessageHandler<DummyMessage, Object> {
+    @Override
+    public Object handle(DummyMessage message) {
+      return message;
+    }
+  }
+
+  public static class ThrowingHandler implements MessageHandler<DummyMessage, Object> {
+    static final Exception EXCEPTION = new Exception("Raised by the public handler");
+
+    @Override
+    public Object handle(DummyMessage message) throws Exception {
+      throw EXCEPTION;
+    }
+  }
+
+  static class PackagePrivateHandler implements MessageHandler<DummyMessage, Object> {
+    @Override
+    public Object handle(DummyMessage message) {
+      return message;
+    }
+  }
+
+  static class PackagePrivateThrowingHandler implements MessageHandler<DummyMessage, Object> {
+    static final Exception EXCEPTION = new Exception("Raised by the package-private handler");
+
+    @Override
+    public Object handle(DummyMessage message) throws Exception {
+      throw EXCEPTION;
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,200 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.dathoang.cqrs.commandbus.middleware.BatchMiddleware;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextBatchMiddlewareFunction;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class MiddlewarePipelineTest {
+  @Nested
+  @DisplayName("dispatch()")
+  class Dispatch {
+    @Test
+    @DisplayName("should call middlewares in order and then the terminal function")
+    void shouldCallMiddlewaresInOrderThenTerminal() throws Exception {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          asList(new RecordingMiddleware("first", calls), new RecordingMiddleware("second", calls)),
+          message -> {
+            calls.add("terminal");
+            return "result";
+          });
+
+      // Act
+      Object result = pipeline.dispatch(new DummyMessage());
+
+      // Assert
+      assertThat(calls).containsExactly("first", "second", "terminal");
+      assertThat(result).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should call the terminal function directly when there is no middleware")
+    void shouldCallTerminalWhenThereIsNoMiddleware() throws Exception {
+      // Arrange
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          Collections.emptyList(), message -> "result");
+
+      // Act
+      Object result = pipeline.dispatch(new DummyMessage());
+
+      // Assert
+      assertThat(result).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("should reuse the same next function across dispatches")
+    void shouldReuseTheSameNextFunctionAcrossDispatches() throws Exception {
+      // Arrange
+      NextCapturingMiddleware middleware = new NextCapturingMiddleware();
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          asList(middleware, new NextCapturingMiddleware()), message -> null);
+
+      // Act
+      pipeline.dispatch(new DummyMessage());
+      pipeline.dispatch(new DummyMessage());
+
+      // Assert
+      assertThat(middleware.capturedNextFunctions).hasSize(2);
+      assertThat(middleware.capturedNextFunctions.get(0))
+          .isSameAs(middleware.capturedNextFunctions.get(1));
+    }
+  }
+
+  @Nested
+  @DisplayName("dispatchAll()")
+  class DispatchAll {
+    @Test
+    @DisplayName("should pass the whole batch to batch middlewares and return results in order")
+    void shouldPassWholeBatchToBatchMiddlewaresAndReturnResultsInOrder() throws Exception {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      DummyMessage firstMessage = new DummyMessage();
+      DummyMessage secondMessage = new DummyMessage();
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          asList(new RecordingBatchMiddleware("batch", calls)),
+          message -> message == firstMessage ? "first" : "second");
+
+      // Act
+      List<Object> results = pipeline.dispatchAll(asList(firstMessage, secondMessage));
+
+      // Assert
+      assertThat(calls).containsExactly("batch of 2");
+      assertThat(results).containsExactly("first", "second");
+    }
+
+    @Test
+    @DisplayName("should pass messages one by one from the first middleware which isn't "
+        + "batch-aware")
+    void shouldPassMessagesOneByOneFromFirstNonBatchMiddleware() throws Exception {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          asList(
+              new RecordingBatchMiddleware("first batch", calls),
+              new RecordingMiddleware("single", calls),
+              new RecordingBatchMiddleware("second batch", calls)),
+          message -> {
+            calls.add("terminal");
+            return null;
+          });
+
+      // Act
+      pipeline.dispatchAll(asList(new DummyMessage(), new DummyMessage()));
+
+      // Assert
+      assertThat(calls).containsExactly("first batch of 2",
+          "single", "second batch", "terminal",
+          "single", "second batch", "terminal");
+    }
+
+    @Test
+    @DisplayName("should stop at the first message which fails and throw its exception")
+    void shouldStopAtFirstFailingMessage() {
+      // Arrange
+      List<String> calls = new ArrayList<>();
+      Exception exception = new Exception("Raised by the handler");
+      MiddlewarePipeline pipeline = MiddlewarePipeline.compile(
+          Collections.emptyList(),
+          message -> {
+            calls.add("terminal");
+            throw exception;
+          });
+
+      // Act
+      Throwable thrown = catchThrowable(() ->
+          pipeline.dispatchAll(asList(new DummyMessage(), new DummyMessage())));
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(calls).containsExactly("terminal");
+    }
+  }
+
+  // region Dummy classes
+  static class DummyMessage implements Message<Object> {}
+
+  static class RecordingMiddleware implements Middleware {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingMiddleware(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+        throws Exception {
+      calls.add(name);
+      return next.call(message);
+    }
+  }
+
+  static class RecordingBatchMiddleware implements BatchMiddleware {
+    private final String name;
+    private final List<String> calls;
+
+    RecordingBatchMiddleware(String name, List<String> calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @Override
+    public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+        throws Exception {
+      calls.add(name);
+      return next.call(message);
+    }
+
+    @Override
+    public <R> List<R> handleBatch(List<Message<R>> messages,
+        NextBatchMiddlewareFunction<Message<R>, R> next) throws Exception {
+      calls.add(name + " of " + messages.size());
+      return next.call(messages);
+    }
+  }
+
+  static class NextCapturingMiddleware implements Middleware {
+    private final List<Object> capturedNextFunctions = new ArrayList<>();
+
+    @Override
+    public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+        throws Exception {
+      capturedNextFunctions.add(next);
+      return next.call(message);
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,170 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DefaultAsyncQueryBusTest {
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Nested
+  @DisplayName("dispatchAll()")
+  class DispatchAll {
+    @Test
+    @DisplayName("should handle the queries in parallel and gather their results")
+    void shouldHandleQueriesInParallelAndGatherResults() throws Exception {
+      // Arrange
+      // Every query waits for the others, so they only complete when handled in parallel
+      CountDownLatch allHandling = new CountDownLatch(3);
+      AsyncQueryBus queryBus = new DefaultAsyncQueryBus(new EchoQueryHandlerFactory(allHandling),
+          Collections.emptyList(), Collections.emptyList(), executor);
+      EchoQuery first = new EchoQuery("first");
+      EchoQuery second = new EchoQuery("second");
+      EchoQuery third = new EchoQuery("third");
+
+      // Act
+      QueryResults results = queryBus.dispatchAll(first, second, third).get(5, TimeUnit.SECONDS);
+
+      // Assert
+      assertThat(results.hasFailures()).isFalse();
+      assertThat(results.get(first)).isEqualTo("first");
+      assertThat(results.get(second)).isEqualTo("second");
+      assertThat(results.get(third)).isEqualTo("third");
+    }
+
+    @Test
+    @DisplayName("should run the middleware pipeline once per query")
+    void shouldRunMiddlewarePipelineOncePerQuery() throws Exception {
+      // Arrange
+      List<Object> handledMessages = Collections.synchronizedList(new ArrayList<>());
+      Middleware recordingMiddleware = new Middleware() {
+        @Override
+        public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+            throws Exception {
+          handledMessages.add(message);
+          return next.call(message);
+        }
+      };
+      AsyncQueryBus queryBus = new DefaultAsyncQueryBus(
+          new EchoQueryHandlerFactory(new CountDownLatch(0)), asList(recordingMiddleware),
+          Collections.emptyList(), executor);
+      EchoQuery first = new EchoQuery("first");
+      EchoQuery second = new EchoQuery("second");
+
+      // Act
+      queryBus.dispatchAll(first, second).get(5, TimeUnit.SECONDS);
+
+      // Assert
+      assertThat(handledMessages).containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    @DisplayName("should keep the results of the other queries when a query fails")
+    void shouldKeepResultsOfOtherQueriesWhenQueryFails() throws Exception {
+      // Arrange
+      AsyncQueryBus queryBus = new DefaultAsyncQueryBus(
+          new EchoQueryHandlerFactory(new CountDownLatch(0)), Collections.emptyList(),
+          Collections.emptyList(), executor);
+      EchoQuery succeeding = new EchoQuery("succeeding");
+      EchoQuery failing = new EchoQuery(null);
+
+      // Act
+      QueryResults results = queryBus.dispatchAll(succeeding, failing).get(5, TimeUnit.SECONDS);
+      Throwable thrown = catchThrowable(() -> results.get(failing));
+
+      // Assert
+      assertThat(results.get(succeeding)).isEqualTo("succeeding");
+      assertThat(results.isFailed(failing)).isTrue();
+      assertThat(results.getFailedQueries()).containsExactly(failing);
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+          .isSameAs(results.getFailure(failing));
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException for a query which wasn't dispatched")
+    void shouldThrowForQueryWhichWasNotDispatched() throws Exception {
+      // Arrange
+      AsyncQueryBus queryBus = new DefaultAsyncQueryBus(
+          new EchoQueryHandlerFactory(new CountDownLatch(0)), Collections.emptyList(),
+          Collections.emptyList(), executor);
+      QueryResults results = queryBus.dispatchAll(new EchoQuery("dispatched"))
+          .get(5, TimeUnit.SECONDS);
+
+      // Act
+      Throwable thrown = catchThrowable(() -> results.get(new EchoQuery("dispatched")));
+
+      // Assert
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  // region Dummy classes
+  static class EchoQuery implements Query<Object> {
+    private final String value;
+
+    EchoQuery(String value) {
+      this.value = value;
+    }
+  }
+
+  static class EchoQueryHandler implements QueryHandler<EchoQuery, Object> {
+    private final CountDownLatch allHandling;
+
+    EchoQueryHandler(CountDownLatch allHandling) {
+      this.allHandling = allHandling;
+    }
+
+    @Override
+    public Object handle(EchoQuery query) throws Exception {
+      allHandling.countDown();
+      if (!allHandling.await(5, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("The queries weren't handled in parallel");
+      }
+      if (query.value == null) {
+        throw new IllegalArgumentException("The query has no value");
+      }
+      return query.value;
+    }
+  }
+
+  static class EchoQueryHandlerFactory implements QueryHandlerFactory {
+    private final CountDownLatch allHandling;
+
+    EchoQueryHandlerFactory(CountDownLatch allHandling) {
+      this.allHandling = allHandling;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> QueryHandler<Query<R>, R> createQueryHandler(String queryName) {
+      return (QueryHandler) new EchoQueryHandler(allHandling);
+    }
+  }
+  // endregion
+}
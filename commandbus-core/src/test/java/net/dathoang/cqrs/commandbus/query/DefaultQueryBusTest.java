@@ -54,6 +54,37 @@ class DefaultQueryBusTest {
           .describedAs("Result returned from query bus must be same as result returned "
               + "from query handler");
     }
+    @Test
+    @DisplayName("should resolve the query handler once per query class when the factory "
+        + "is class-keyed")
+    void shouldResolveQueryHandlerOncePerQueryClass() throws Exception {
+      // Arrange
+      DummyQuery dummyQuery = mock(DummyQuery.class);
+      Object handlerResult = new Object();
+      DummyQueryHandler dummyQueryHandler = mock(DummyQueryHandler.class);
+      doReturn(handlerResult)
+          .when(dummyQueryHandler).handle(dummyQuery);
+      ClassKeyedQueryHandlerFactory queryHandlerFactory =
+          mock(ClassKeyedQueryHandlerFactory.class);
+      doReturn(dummyQueryHandler)
+          .when(queryHandlerFactory).resolveQueryHandler(dummyQuery.getClass());
+      QueryBus queryBus =
+          new DefaultQueryBus(queryHandlerFactory, asList(new DummyMiddleware()));
+
+      // Act
+      queryBus.dispatch(dummyQuery);
+      Object queryBusResult = queryBus.dispatch(dummyQuery);
+
+      // Assert
+      verify(queryHandlerFactory, times(1))
+          .resolveQueryHandler(dummyQuery.getClass());
+      verify(queryHandlerFactory, times(0))
+          .createQueryHandler(any());
+      verify(dummyQueryHandler, times(2))
+          .handle(dummyQuery);
+      assertThat(queryBusResult)
+          .isEqualTo(handlerResult);
+    }
   }
 
   // region Dummy classes for test
@@ -0,0 +1,45 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class DispatchExecutorsTest {
+  @Nested
+  @DisplayName("isVirtualThreadSupported()")
+  class IsVirtualThreadSupported {
+    @Test
+    @DisplayName("should return true")
+    void shouldReturnTrue() {
+      // Act
+      boolean isSupported = DispatchExecutors.isVirtualThreadSupported();
+
+      // Assert
+      assertThat(isSupported).isTrue();
+    }
+  }
+
+  @Nested
+  @DisplayName("newVirtualThreadPerDispatchExecutor()")
+  class NewVirtualThreadPerDispatchExecutor {
+    @Test
+    @DisplayName("should run each dispatch on its own virtual thread")
+    void shouldRunEachDispatchOnItsOwnVirtualThread() throws Exception {
+      // Arrange
+      ExecutorService executor = DispatchExecutors.newVirtualThreadPerDispatchExecutor();
+
+      // Act
+      Thread firstThread = executor.submit(Thread::currentThread).get();
+      Thread secondThread = executor.submit(Thread::currentThread).get();
+      executor.shutdown();
+
+      // Assert
+      assertThat(firstThread.isVirtual()).isTrue();
+      assertThat(firstThread.getName()).startsWith("commandbus-dispatch-");
+      assertThat(secondThread).isNotSameAs(firstThread);
+    }
+  }
+}
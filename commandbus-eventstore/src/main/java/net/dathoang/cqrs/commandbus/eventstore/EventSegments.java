@@ -0,0 +1,152 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The layout of the event store files.
+ *
+ * <p>The store is a directory of segment files of a fixed size, numbered from 0 and zero-padded
+ * so that the names sort in append order. The position of a record in the store is the number of
+ * its segment multiplied by the segment size, plus its offset in the segment. A segment is a run
+ * of records followed by zeros:
+ *
+ * <pre>
+ * int  body length, the stream id and the payload, 0 marks the end of the records
+ * int  CRC32 of the rest of the record
+ * long position of the previous record of the stream, -1 for the first one
+ * long version of the stream, from 1
+ * long hash of the stream id
+ * int  stream id length
+ * int  flags, {@link #END_OF_BATCH} on the last record of an append
+ * byte[stream id length] stream id, in UTF-8
+ * byte[body length - stream id length] payload
+ * </pre>
+ *
+ * <p>The events of an append are written to the same segment, so a segment other than the last
+ * one never ends with a partly written append.
+ */
+final class EventSegments {
+  static final int HEADER_SIZE = 40;
+  static final int LENGTH_OFFSET = 0;
+  static final int CRC_OFFSET = 4;
+  static final int PREVIOUS_POSITION_OFFSET = 8;
+  static final int VERSION_OFFSET = 16;
+  static final int STREAM_HASH_OFFSET = 24;
+  static final int STREAM_ID_LENGTH_OFFSET = 32;
+  static final int FLAGS_OFFSET = 36;
+
+  static final int END_OF_BATCH = 1;
+  static final long NO_POSITION = -1;
+
+  private static final String SEGMENT_PREFIX = "events-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private EventSegments() {}
+
+  static Path segmentPath(Path directory, int segmentNumber) {
+    return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentNumber,
+        SEGMENT_SUFFIX));
+  }
+
+  static int segmentNumberOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * List the segments of the store, in append order.
+   */
+  static List<Path> list(Path directory) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(segments::add);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * Hash a stream id to 64 bits, with FNV-1a followed by the MurmurHash3 finalizer so that the
+   * low bits, which pick the slot in the {@link StreamIndex}, are well mixed.
+   */
+  static long streamHash(byte[] streamId) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : streamId) {
+      hash ^= b & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  static String streamIdOf(ByteBuffer segment, int offset) {
+    byte[] streamId = new byte[segment.getInt(offset + STREAM_ID_LENGTH_OFFSET)];
+    ByteBuffer source = segment.duplicate();
+    source.position(offset + HEADER_SIZE);
+    source.get(streamId);
+    return new String(streamId, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Get a view of the payload of the record at the offset of the buffer.
+   */
+  static ByteBuffer payloadOf(ByteBuffer segment, int offset) {
+    ByteBuffer payload = segment.duplicate();
+    payload.limit(offset + HEADER_SIZE + segment.getInt(offset + LENGTH_OFFSET));
+    payload.position(offset + HEADER_SIZE + segment.getInt(offset + STREAM_ID_LENGTH_OFFSET));
+    return payload.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Compute the checksum of the record at the offset of the buffer.
+   */
+  static int checksum(ByteBuffer segment, int offset, int bodyLength) {
+    ByteBuffer checkedBytes = segment.duplicate();
+    checkedBytes.limit(offset + HEADER_SIZE + bodyLength);
+    checkedBytes.position(offset + PREVIOUS_POSITION_OFFSET);
+    CRC32 crc = new CRC32();
+    crc.update(checkedBytes);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Check whether a whole, uncorrupted record starts at the offset of the buffer.
+   *
+   * @return the size of the record, or -1 when there is no valid record at the offset
+   */
+  static int validRecordSize(ByteBuffer segment, int offset) {
+    if (segment.limit() - offset < HEADER_SIZE) {
+      return -1;
+    }
+    int bodyLength = segment.getInt(offset + LENGTH_OFFSET);
+    if (bodyLength <= 0 || bodyLength > segment.limit() - offset - HEADER_SIZE) {
+      return -1;
+    }
+    int streamIdLength = segment.getInt(offset + STREAM_ID_LENGTH_OFFSET);
+    if (streamIdLength <= 0 || streamIdLength >= bodyLength) {
+      return -1;
+    }
+    if (segment.getInt(offset + CRC_OFFSET) != checksum(segment, offset, bodyLength)) {
+      return -1;
+    }
+    return HEADER_SIZE + bodyLength;
+  }
+}
@@ -0,0 +1,23 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.dathoang.cqrs.commandbus.event.Event;
+
+/**
+ * Converts the stored events to bytes and back.
+ */
+public interface EventSerializer {
+  byte[] serialize(Event event) throws IOException;
+
+  /**
+   * Read an event back.
+   *
+   * @param payload the bytes written by {@link #serialize(Event)}, between the position and the
+   *        limit of the buffer. The buffer is a view of a memory-mapped segment, so it must not be
+   *        kept after returning.
+   * @return the event
+   * @throws IOException when the bytes can't be read back as an event
+   */
+  Event deserialize(ByteBuffer payload) throws IOException;
+}
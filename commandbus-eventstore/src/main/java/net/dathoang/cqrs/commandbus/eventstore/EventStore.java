@@ -0,0 +1,411 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.CRC_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.END_OF_BATCH;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.FLAGS_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.HEADER_SIZE;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.LENGTH_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.NO_POSITION;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.PREVIOUS_POSITION_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.STREAM_HASH_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.STREAM_ID_LENGTH_OFFSET;
+import static net.dathoang.cqrs.commandbus.eventstore.EventSegments.VERSION_OFFSET;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.dathoang.cqrs.commandbus.event.Event;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An embedded store of event streams, such as the events of event-sourced aggregates, kept in
+ * append-only memory-mapped segment files, see {@link EventSegments} for the layout.
+ *
+ * <p>Each record points back to the previous record of its stream, and a {@link StreamIndex}
+ * outside the heap maps every stream to its version and its last record. Reading a stream walks
+ * the back-pointers through the record headers, then reads the events in ascending position, so
+ * loading an aggregate reads the segments forward. The index isn't stored: it is rebuilt by
+ * reading the segments from start to end when the store is opened, which also erases the
+ * partly written append a crash may have left at the end of the last segment.
+ *
+ * <p>Appends check the version of the stream against the expected one, and throw
+ * {@link WrongExpectedVersionException} when another append got there first. The events of an
+ * append are stored together or not at all, and forced to the disk according to the
+ * {@link FsyncPolicy}.
+ *
+ * <p>Streams are told apart by a 64-bit hash of their id. Appending to, reading or getting the
+ * version of a stream whose hash collides with another stored stream throws an
+ * {@link IllegalStateException}, rather than mixing up the events of the two streams.
+ */
+public class EventStore implements Closeable {
+  private static final Log log = LogFactory.getLog(EventStore.class);
+
+  /**
+   * Expects nothing from the version of the stream.
+   */
+  public static final long ANY_VERSION = -1;
+  /**
+   * Expects the stream to have no event yet.
+   */
+  public static final long NO_STREAM = 0;
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+  private final Path directory;
+  private final EventSerializer serializer;
+  private final FsyncPolicy fsyncPolicy;
+  private final int segmentSize;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+  private final StreamIndex index = new StreamIndex(INITIAL_INDEX_CAPACITY);
+
+  private int position;
+  private long lastForceNanos = System.nanoTime();
+  private boolean hasUnforcedRecords;
+  private boolean isClosed;
+
+  public EventStore(Path directory, EventSerializer serializer, FsyncPolicy fsyncPolicy)
+      throws IOException {
+    this(directory, serializer, fsyncPolicy, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * Open the event store in a directory, created when missing, and index its segments.
+   *
+   * @param directory the directory of the segment files
+   * @param serializer the serializer of the events
+   * @param fsyncPolicy when the appended events are forced to the disk
+   * @param segmentSize the size of each segment file, which must not change between openings
+   * @throws EventStoreCorruptedException when a segment other than the last one holds an invalid
+   *         record
+   */
+  public EventStore(Path directory, EventSerializer serializer, FsyncPolicy fsyncPolicy,
+      int segmentSize) throws IOException {
+    if (segmentSize <= HEADER_SIZE) {
+      throw new IllegalArgumentException(String.format(
+          "segmentSize must be greater than the record header size %d", HEADER_SIZE));
+    }
+    this.directory = directory;
+    this.serializer = serializer;
+    this.fsyncPolicy = fsyncPolicy;
+    this.segmentSize = segmentSize;
+    recover();
+  }
+
+  /**
+   * Append events to a stream.
+   *
+   * @param streamId the id of the stream
+   * @param expectedVersion the version the stream must be at, {@link #NO_STREAM} for a new
+   *        stream, or {@link #ANY_VERSION}
+   * @param events the events to append, in order
+   * @return the version of the stream after the append
+   * @throws WrongExpectedVersionException when the stream isn't at the expected version, nothing
+   *         is appended then
+   * @throws IOException when an event can't be serialized or a new segment can't be created
+   * @throws IllegalArgumentException when the events don't fit in a segment together
+   * @throws IllegalStateException when the hash of the stream id collides with another stream
+   */
+  public long append(String streamId, long expectedVersion, List<? extends Event> events)
+      throws IOException {
+    byte[] streamIdBytes = toBytes(streamId);
+    List<byte[]> payloads = new ArrayList<>(events.size());
+    long batchSize = 0;
+    for (Event event : events) {
+      byte[] payload = serializer.serialize(event);
+      payloads.add(payload);
+      batchSize += HEADER_SIZE + streamIdBytes.length + payload.length;
+    }
+    if (batchSize > segmentSize) {
+      throw new IllegalArgumentException(String.format(
+          "The %d events take %d bytes, but an append must fit in a segment of %d bytes",
+          events.size(), batchSize, segmentSize));
+    }
+
+    synchronized (this) {
+      if (isClosed) {
+        throw new IllegalStateException("The event store is closed");
+      }
+      long streamHash = EventSegments.streamHash(streamIdBytes);
+      long version = versionOf(streamId, streamHash);
+      if (expectedVersion != ANY_VERSION && expectedVersion != version) {
+        throw new WrongExpectedVersionException(streamId, expectedVersion, version);
+      }
+      if (payloads.isEmpty()) {
+        return version;
+      }
+
+      if (batchSize > segmentSize - position) {
+        roll();
+      }
+      long previousPosition = index.getLastPosition(streamHash);
+      for (int i = 0; i < payloads.size(); i++) {
+        previousPosition = writeRecord(streamIdBytes, streamHash, previousPosition, ++version,
+            payloads.get(i), i == payloads.size() - 1);
+      }
+      index.put(streamHash, version, previousPosition);
+      hasUnforcedRecords = true;
+
+      long nowNanos = System.nanoTime();
+      if (fsyncPolicy.shouldForce(nowNanos - lastForceNanos)) {
+        force(nowNanos);
+      }
+      return version;
+    }
+  }
+
+  /**
+   * Append events to a stream, see {@link #append(String, long, List)}.
+   */
+  public long append(String streamId, long expectedVersion, Event... events)
+      throws IOException {
+    return append(streamId, expectedVersion, Arrays.asList(events));
+  }
+
+  /**
+   * Get the version of a stream, the number of its events.
+   *
+   * @return the version of the stream, {@link #NO_STREAM} when it has no event
+   * @throws IllegalStateException when the hash of the stream id collides with another stream
+   */
+  public synchronized long getVersion(String streamId) {
+    byte[] streamIdBytes = toBytes(streamId);
+    return versionOf(streamId, EventSegments.streamHash(streamIdBytes));
+  }
+
+  /**
+   * Read all the events of a stream, in version order.
+   */
+  public List<RecordedEvent> readStream(String streamId) throws IOException {
+    return readStream(streamId, 1);
+  }
+
+  /**
+   * Read the events of a stream from a version on, in version order, for instance to bring a
+   * snapshot of an aggregate up to date.
+   *
+   * @param streamId the id of the stream
+   * @param fromVersion the version of the first event to read
+   * @return the events, empty when the stream has no event from that version
+   * @throws IOException when an event can't be deserialized
+   * @throws IllegalStateException when the hash of the stream id collides with another stream
+   */
+  public List<RecordedEvent> readStream(String streamId, long fromVersion) throws IOException {
+    byte[] streamIdBytes = toBytes(streamId);
+    long streamHash = EventSegments.streamHash(streamIdBytes);
+    long firstVersion;
+    long[] positions;
+    ByteBuffer[] payloads;
+    synchronized (this) {
+      if (isClosed) {
+        throw new IllegalStateException("The event store is closed");
+      }
+      long version = versionOf(streamId, streamHash);
+      int count = (int) Math.max(0, version - Math.max(fromVersion, 1) + 1);
+      positions = new long[count];
+      payloads = new ByteBuffer[count];
+
+      // Walk back from the last record through the headers only, the events are read below in
+      // ascending position
+      long recordPosition = index.getLastPosition(streamHash);
+      for (int i = count - 1; i >= 0; i--) {
+        ByteBuffer segment = segmentOf(recordPosition);
+        int offset = offsetOf(recordPosition);
+        positions[i] = recordPosition;
+        payloads[i] = EventSegments.payloadOf(segment, offset);
+        recordPosition = segment.getLong(offset + PREVIOUS_POSITION_OFFSET);
+      }
+      firstVersion = version - count + 1;
+    }
+
+    // The records are never overwritten and their views keep the segments mapped, so the events
+    // are deserialized outside the lock
+    List<RecordedEvent> events = new ArrayList<>(positions.length);
+    for (int i = 0; i < positions.length; i++) {
+      events.add(new RecordedEvent(streamId, firstVersion + i, positions[i],
+          serializer.deserialize(payloads[i])));
+    }
+    return events;
+  }
+
+  /**
+   * Force the events appended so far to the disk, whatever the {@link FsyncPolicy}.
+   */
+  public synchronized void flush() {
+    if (!isClosed && hasUnforcedRecords) {
+      force(System.nanoTime());
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Force the events to the disk, then stop accepting appends and reads.
+   */
+  @Override
+  public synchronized void close() {
+    flush();
+    isClosed = true;
+    // The mappings are released once the buffers are garbage collected
+    segments.clear();
+  }
+
+  private long versionOf(String streamId, long streamHash) {
+    long version = index.getVersion(streamHash);
+    if (version != NO_STREAM) {
+      long lastPosition = index.getLastPosition(streamHash);
+      String indexedStreamId =
+          EventSegments.streamIdOf(segmentOf(lastPosition), offsetOf(lastPosition));
+      if (!indexedStreamId.equals(streamId)) {
+        throw new IllegalStateException(String.format(
+            "The streams %s and %s have the same hash", streamId, indexedStreamId));
+      }
+    }
+    return version;
+  }
+
+  private long writeRecord(byte[] streamId, long streamHash, long previousPosition, long version,
+      byte[] payload, boolean isEndOfBatch) {
+    MappedByteBuffer segment = segments.get(segments.size() - 1);
+    int bodyLength = streamId.length + payload.length;
+    segment.putLong(position + PREVIOUS_POSITION_OFFSET, previousPosition);
+    segment.putLong(position + VERSION_OFFSET, version);
+    segment.putLong(position + STREAM_HASH_OFFSET, streamHash);
+    segment.putInt(position + STREAM_ID_LENGTH_OFFSET, streamId.length);
+    segment.putInt(position + FLAGS_OFFSET, isEndOfBatch ? END_OF_BATCH : 0);
+    ByteBuffer bodyTarget = segment.duplicate();
+    bodyTarget.position(position + HEADER_SIZE);
+    bodyTarget.put(streamId);
+    bodyTarget.put(payload);
+    segment.putInt(position + CRC_OFFSET, EventSegments.checksum(segment, position, bodyLength));
+    // Written last, so that the record only becomes readable once whole
+    segment.putInt(position + LENGTH_OFFSET, bodyLength);
+
+    long recordPosition = (long) (segments.size() - 1) * segmentSize + position;
+    position += HEADER_SIZE + bodyLength;
+    return recordPosition;
+  }
+
+  private ByteBuffer segmentOf(long recordPosition) {
+    return segments.get((int) (recordPosition / segmentSize));
+  }
+
+  private int offsetOf(long recordPosition) {
+    return (int) (recordPosition % segmentSize);
+  }
+
+  private void roll() throws IOException {
+    if (hasUnforcedRecords) {
+      force(System.nanoTime());
+    }
+    segments.add(map(EventSegments.segmentPath(directory, segments.size())));
+    position = 0;
+  }
+
+  private void force(long nowNanos) {
+    segments.get(segments.size() - 1).force();
+    lastForceNanos = nowNanos;
+    hasUnforcedRecords = false;
+  }
+
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    List<Path> segmentPaths = EventSegments.list(directory);
+    if (segmentPaths.isEmpty()) {
+      segments.add(map(EventSegments.segmentPath(directory, 0)));
+      position = 0;
+      return;
+    }
+
+    for (int i = 0; i < segmentPaths.size(); i++) {
+      Path segmentPath = segmentPaths.get(i);
+      if (EventSegments.segmentNumberOf(segmentPath) != i) {
+        throw new IllegalStateException(String.format("The segment %d of %s is missing", i,
+            directory));
+      }
+      if (Files.size(segmentPath) != segmentSize) {
+        throw new IllegalArgumentException(String.format(
+            "%s takes %d bytes, but the segment size is %d", segmentPath,
+            Files.size(segmentPath), segmentSize));
+      }
+      segments.add(map(segmentPath));
+      position = indexSegment(i, segmentPath, i == segmentPaths.size() - 1);
+    }
+  }
+
+  /**
+   * Index the records of a segment, in append order.
+   *
+   * @return the offset following the last whole append of the segment
+   */
+  private int indexSegment(int segmentNumber, Path segmentPath, boolean isLastSegment) {
+    MappedByteBuffer segment = segments.get(segmentNumber);
+    int offset = 0;
+    int endOfBatches = 0;
+    // The records of the append being read, indexed once its last record is read
+    List<long[]> pendingEntries = new ArrayList<>();
+    int recordSize;
+    while ((recordSize = EventSegments.validRecordSize(segment, offset)) > 0) {
+      pendingEntries.add(new long[] {segment.getLong(offset + STREAM_HASH_OFFSET),
+          segment.getLong(offset + VERSION_OFFSET), (long) segmentNumber * segmentSize + offset});
+      offset += recordSize;
+      if ((segment.getInt(offset - recordSize + FLAGS_OFFSET) & END_OF_BATCH) != 0) {
+        pendingEntries.forEach(entry -> index.put(entry[0], entry[1], entry[2]));
+        pendingEntries.clear();
+        endOfBatches = offset;
+      }
+    }
+
+    if (!isLastSegment) {
+      if (segment.limit() - endOfBatches >= HEADER_SIZE
+          && segment.getInt(endOfBatches + LENGTH_OFFSET) != 0) {
+        throw new EventStoreCorruptedException(segmentPath, endOfBatches);
+      }
+      return endOfBatches;
+    }
+
+    // The length is written last, so a partly written record may have a zero length but
+    // leftover bytes, which later records wouldn't necessarily overwrite
+    int end = segment.capacity();
+    while (end > endOfBatches && segment.get(end - 1) == 0) {
+      end--;
+    }
+    if (end > endOfBatches) {
+      log.warn(String.format("Erasing the partly written append at the offset %d of %s",
+          endOfBatches, segmentPath));
+      for (int i = endOfBatches; i < end; i++) {
+        segment.put(i, (byte) 0);
+      }
+      segment.force();
+    }
+    return endOfBatches;
+  }
+
+  private MappedByteBuffer map(Path segmentPath) throws IOException {
+    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // Mapping past the end of the file grows it, the new bytes are zeros
+      return channel.map(MapMode.READ_WRITE, 0, segmentSize);
+    }
+  }
+
+  private static byte[] toBytes(String streamId) {
+    if (streamId == null || streamId.isEmpty()) {
+      throw new IllegalArgumentException("streamId must not be empty");
+    }
+    return streamId.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,15 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import java.nio.file.Path;
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown when an event store segment other than the last one holds an invalid record. Only the
+ * last segment may end with a partly written append, left by a crash.
+ */
+public class EventStoreCorruptedException extends CommandBusException {
+  public EventStoreCorruptedException(Path segment, int offset) {
+    super(String.format("The event record at the offset %d of %s is corrupted", offset,
+        segment));
+  }
+}
@@ -0,0 +1,48 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the event store forces its memory-mapped segments to the disk. Appended events are
+ * visible to the operating system right away, so they survive a crash of the process whatever
+ * the policy, the policy only decides how many of them a crash of the machine may lose.
+ */
+public final class FsyncPolicy {
+  private static final long NEVER = -1;
+
+  private final long intervalNanos;
+
+  private FsyncPolicy(long intervalNanos) {
+    this.intervalNanos = intervalNanos;
+  }
+
+  /**
+   * Leave the writes to the disk to the operating system, the event store only forces its
+   * segments when they are full, when it is flushed and when it is closed.
+   */
+  public static FsyncPolicy never() {
+    return new FsyncPolicy(NEVER);
+  }
+
+  /**
+   * Force the events of every append to the disk before the append returns.
+   */
+  public static FsyncPolicy everyAppend() {
+    return new FsyncPolicy(0);
+  }
+
+  /**
+   * Force the events to the disk on the first append once the interval has elapsed since the
+   * last force, so a crash of the machine loses at most the events of about one interval.
+   */
+  public static FsyncPolicy interval(long interval, TimeUnit unit) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    return new FsyncPolicy(unit.toNanos(interval));
+  }
+
+  boolean shouldForce(long nanosSinceLastForce) {
+    return intervalNanos != NEVER && nanosSinceLastForce >= intervalNanos;
+  }
+}
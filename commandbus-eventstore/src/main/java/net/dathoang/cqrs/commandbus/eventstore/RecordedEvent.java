@@ -0,0 +1,44 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import net.dathoang.cqrs.commandbus.event.Event;
+
+/**
+ * An event read from an {@link EventStore}, with its place in its stream and in the store.
+ */
+public final class RecordedEvent {
+  private final String streamId;
+  private final long version;
+  private final long position;
+  private final Event event;
+
+  RecordedEvent(String streamId, long version, long position, Event event) {
+    this.streamId = streamId;
+    this.version = version;
+    this.position = position;
+    this.event = event;
+  }
+
+  public String getStreamId() {
+    return streamId;
+  }
+
+  /**
+   * Get the version of the stream the event brought it to, the first event of a stream has the
+   * version 1.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Get the position of the event in the store, which increases with the appends across the
+   * streams.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  public Event getEvent() {
+    return event;
+  }
+}
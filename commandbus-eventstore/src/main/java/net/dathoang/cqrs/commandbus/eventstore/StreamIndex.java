@@ -0,0 +1,104 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Maps the hash of each stream id to the version of the stream and the position of its last
+ * record, in an open-addressing hash table with linear probing. The table lives in a direct
+ * buffer, outside the heap, so that millions of streams don't weigh on the garbage collector.
+ *
+ * <p>A slot is free while its version is 0, as the versions of the indexed streams start at 1.
+ * The table doubles once half full.
+ */
+final class StreamIndex {
+  private static final int ENTRY_SIZE = 24;
+  private static final int HASH_OFFSET = 0;
+  private static final int VERSION_OFFSET = 8;
+  private static final int POSITION_OFFSET = 16;
+
+  private ByteBuffer entries;
+  private int capacity;
+  private int size;
+
+  /**
+   * Create an empty index.
+   *
+   * @param initialCapacity the number of slots, rounded up to a power of 2
+   */
+  StreamIndex(int initialCapacity) {
+    this.capacity = Integer.highestOneBit(Math.max(2, initialCapacity) * 2 - 1);
+    this.entries = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE);
+  }
+
+  /**
+   * Get the version of the stream, 0 when it isn't indexed.
+   */
+  long getVersion(long streamHash) {
+    return entries.getLong(slotOf(streamHash) + VERSION_OFFSET);
+  }
+
+  /**
+   * Get the position of the last record of the stream, -1 when it isn't indexed.
+   */
+  long getLastPosition(long streamHash) {
+    int slot = slotOf(streamHash);
+    return entries.getLong(slot + VERSION_OFFSET) == 0
+        ? EventSegments.NO_POSITION
+        : entries.getLong(slot + POSITION_OFFSET);
+  }
+
+  void put(long streamHash, long version, long lastPosition) {
+    if (version <= 0) {
+      throw new IllegalArgumentException("version must be positive");
+    }
+    int slot = slotOf(streamHash);
+    if (entries.getLong(slot + VERSION_OFFSET) == 0) {
+      if ((size + 1) * 2 > capacity) {
+        grow();
+        slot = slotOf(streamHash);
+      }
+      size++;
+    }
+    entries.putLong(slot + HASH_OFFSET, streamHash);
+    entries.putLong(slot + VERSION_OFFSET, version);
+    entries.putLong(slot + POSITION_OFFSET, lastPosition);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * Find the offset of the slot holding the stream, or of the free slot it would take.
+   */
+  private int slotOf(long streamHash) {
+    int mask = capacity - 1;
+    int index = (int) streamHash & mask;
+    while (true) {
+      int slot = index * ENTRY_SIZE;
+      if (entries.getLong(slot + VERSION_OFFSET) == 0
+          || entries.getLong(slot + HASH_OFFSET) == streamHash) {
+        return slot;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private void grow() {
+    ByteBuffer oldEntries = entries;
+    int oldCapacity = capacity;
+    capacity = oldCapacity * 2;
+    entries = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE);
+    for (int i = 0; i < oldCapacity; i++) {
+      int oldSlot = i * ENTRY_SIZE;
+      long version = oldEntries.getLong(oldSlot + VERSION_OFFSET);
+      if (version != 0) {
+        long streamHash = oldEntries.getLong(oldSlot + HASH_OFFSET);
+        int slot = slotOf(streamHash);
+        entries.putLong(slot + HASH_OFFSET, streamHash);
+        entries.putLong(slot + VERSION_OFFSET, version);
+        entries.putLong(slot + POSITION_OFFSET, oldEntries.getLong(oldSlot + POSITION_OFFSET));
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown when events are appended to a stream whose version isn't the expected one, because
+ * other events were appended to it since it was read.
+ */
+public class WrongExpectedVersionException extends CommandBusException {
+  private final String streamId;
+  private final long expectedVersion;
+  private final long actualVersion;
+
+  public WrongExpectedVersionException(String streamId, long expectedVersion,
+      long actualVersion) {
+    super(String.format("The stream %s is at the version %d, but %d was expected", streamId,
+        actualVersion, expectedVersion));
+    this.streamId = streamId;
+    this.expectedVersion = expectedVersion;
+    this.actualVersion = actualVersion;
+  }
+
+  public String getStreamId() {
+    return streamId;
+  }
+
+  public long getExpectedVersion() {
+    return expectedVersion;
+  }
+
+  public long getActualVersion() {
+    return actualVersion;
+  }
+}
@@ -0,0 +1,228 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import net.dathoang.cqrs.commandbus.event.Event;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventStoreTest {
+  private static final int SEGMENT_SIZE = 2048;
+
+  private final EventSerializer serializer = new JavaEventSerializer();
+
+  private EventStore openStore(Path directory) throws Exception {
+    return new EventStore(directory, serializer, FsyncPolicy.never(), SEGMENT_SIZE);
+  }
+
+  private static List<String> namesOf(List<RecordedEvent> events) {
+    return events.stream()
+        .map(recordedEvent -> ((DummyEvent) recordedEvent.getEvent()).name)
+        .collect(Collectors.toList());
+  }
+
+  @Nested
+  @DisplayName("append()")
+  class Append {
+    @Test
+    @DisplayName("should append the events to their stream and return its version")
+    void shouldAppendEventsToTheirStreamAndReturnItsVersion(@TempDir Path directory)
+        throws Exception {
+      try (EventStore store = openStore(directory)) {
+        // Act
+        long firstVersion = store.append("order-1", EventStore.NO_STREAM,
+            new DummyEvent("created"), new DummyEvent("paid"));
+        store.append("order-2", EventStore.NO_STREAM, new DummyEvent("created"));
+        long secondVersion = store.append("order-1", 2, new DummyEvent("shipped"));
+
+        // Assert
+        assertThat(firstVersion).isEqualTo(2);
+        assertThat(secondVersion).isEqualTo(3);
+        assertThat(store.getVersion("order-2")).isEqualTo(1);
+        assertThat(store.getVersion("order-3")).isEqualTo(EventStore.NO_STREAM);
+      }
+    }
+
+    @Test
+    @DisplayName("should throw WrongExpectedVersionException and append nothing when the stream "
+        + "isn't at the expected version")
+    void shouldThrowWhenStreamIsNotAtExpectedVersion(@TempDir Path directory) throws Exception {
+      try (EventStore store = openStore(directory)) {
+        // Arrange
+        store.append("order-1", EventStore.NO_STREAM, new DummyEvent("created"));
+
+        // Act
+        Throwable thrown = catchThrowable(() ->
+            store.append("order-1", EventStore.NO_STREAM, new DummyEvent("created again")));
+
+        // Assert
+        assertThat(thrown).isInstanceOf(WrongExpectedVersionException.class);
+        assertThat(((WrongExpectedVersionException) thrown).getActualVersion()).isEqualTo(1);
+        assertThat(namesOf(store.readStream("order-1"))).containsExactly("created");
+      }
+    }
+
+    @Test
+    @DisplayName("should append whatever the version of the stream when any version is expected")
+    void shouldAppendWhateverVersionWhenAnyVersionIsExpected(@TempDir Path directory)
+        throws Exception {
+      try (EventStore store = openStore(directory)) {
+        // Act
+        store.append("order-1", EventStore.ANY_VERSION, new DummyEvent("created"));
+        long version = store.append("order-1", EventStore.ANY_VERSION, new DummyEvent("paid"));
+
+        // Assert
+        assertThat(version).isEqualTo(2);
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("readStream()")
+  class ReadStream {
+    @Test
+    @DisplayName("should read the events of the stream only, in version order")
+    void shouldReadEventsOfStreamOnlyInVersionOrder(@TempDir Path directory) throws Exception {
+      try (EventStore store = openStore(directory)) {
+        // Arrange
+        for (int i = 1; i <= 30; i++) {
+          store.append("order-" + i % 3, EventStore.ANY_VERSION, new DummyEvent("event " + i));
+        }
+
+        // Act
+        List<RecordedEvent> events = store.readStream("order-1");
+
+        // Assert
+        assertThat(EventSegments.list(directory).size()).isGreaterThan(1);
+        assertThat(events).extracting(RecordedEvent::getVersion)
+            .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(events).extracting(RecordedEvent::getPosition).isSorted();
+        assertThat(namesOf(events)).containsExactly("event 1", "event 4", "event 7",
+            "event 10", "event 13", "event 16", "event 19", "event 22", "event 25", "event 28");
+      }
+    }
+
+    @Test
+    @DisplayName("should read the events from the given version")
+    void shouldReadEventsFromGivenVersion(@TempDir Path directory) throws Exception {
+      try (EventStore store = openStore(directory)) {
+        // Arrange
+        store.append("order-1", EventStore.NO_STREAM, new DummyEvent("created"),
+            new DummyEvent("paid"), new DummyEvent("shipped"));
+
+        // Act
+        List<RecordedEvent> events = store.readStream("order-1", 2);
+
+        // Assert
+        assertThat(events).extracting(RecordedEvent::getVersion).containsExactly(2L, 3L);
+        assertThat(namesOf(events)).containsExactly("paid", "shipped");
+        assertThat(store.readStream("order-1", 4)).isEmpty();
+        assertThat(store.readStream("order-2")).isEmpty();
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("when reopened")
+  class WhenReopened {
+    @Test
+    @DisplayName("should rebuild the index of the streams from the segments")
+    void shouldRebuildIndexOfStreamsFromSegments(@TempDir Path directory) throws Exception {
+      // Arrange
+      try (EventStore store = openStore(directory)) {
+        for (int i = 1; i <= 30; i++) {
+          store.append("order-" + i % 3, EventStore.ANY_VERSION, new DummyEvent("event " + i));
+        }
+      }
+
+      // Act
+      try (EventStore store = openStore(directory)) {
+        long version = store.append("order-2", 10, new DummyEvent("event 31"));
+
+        // Assert
+        assertThat(version).isEqualTo(11);
+        assertThat(store.getVersion("order-0")).isEqualTo(10);
+        assertThat(namesOf(store.readStream("order-2", 10)))
+            .containsExactly("event 29", "event 31");
+      }
+    }
+
+    @Test
+    @DisplayName("should erase a partly written append")
+    void shouldErasePartlyWrittenAppend(@TempDir Path directory) throws Exception {
+      // Arrange
+      try (EventStore store = openStore(directory)) {
+        store.append("order-1", EventStore.NO_STREAM, new DummyEvent("created"));
+        store.append("order-1", 1, new DummyEvent("paid"), new DummyEvent("shipped"));
+      }
+      try (FileChannel channel = FileChannel.open(EventSegments.list(directory).get(0),
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        // Damage the last record, as if the process crashed while appending it
+        MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        int end = SEGMENT_SIZE;
+        while (segment.get(end - 1) == 0) {
+          end--;
+        }
+        segment.put(end - 1, (byte) ~segment.get(end - 1));
+        segment.force();
+      }
+
+      // Act
+      try (EventStore store = openStore(directory)) {
+        long version = store.append("order-1", 1, new DummyEvent("cancelled"));
+
+        // Assert
+        assertThat(version).isEqualTo(2);
+        assertThat(namesOf(store.readStream("order-1"))).containsExactly("created", "cancelled");
+      }
+    }
+
+    @Test
+    @DisplayName("should throw EventStoreCorruptedException when a segment which isn't the last "
+        + "one holds an invalid record")
+    void shouldThrowWhenSegmentWhichIsNotLastOneHoldsInvalidRecord(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      try (EventStore store = openStore(directory)) {
+        for (int i = 1; i <= 30; i++) {
+          store.append("order-1", EventStore.ANY_VERSION, new DummyEvent("event " + i));
+        }
+      }
+      try (FileChannel channel = FileChannel.open(EventSegments.list(directory).get(0),
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        // Damage the body of the first record
+        MappedByteBuffer segment = channel.map(MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        int bodyOffset = EventSegments.HEADER_SIZE;
+        segment.put(bodyOffset, (byte) ~segment.get(bodyOffset));
+        segment.force();
+      }
+
+      // Act
+      Throwable thrown = catchThrowable(() -> openStore(directory));
+
+      // Assert
+      assertThat(thrown).isInstanceOf(EventStoreCorruptedException.class);
+    }
+  }
+
+  // region Dummy classes
+  static class DummyEvent implements Event, Serializable {
+    private final String name;
+
+    DummyEvent(String name) {
+      this.name = name;
+    }
+  }
+  // endregion
+}
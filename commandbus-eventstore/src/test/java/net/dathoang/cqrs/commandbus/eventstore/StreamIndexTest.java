@@ -0,0 +1,52 @@
+package net.dathoang.cqrs.commandbus.eventstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+class StreamIndexTest {
+  @Nested
+  @DisplayName("put()")
+  class Put {
+    @Test
+    @DisplayName("should keep the entries of colliding hashes apart while growing")
+    void shouldKeepEntriesOfCollidingHashesApartWhileGrowing() {
+      // Arrange
+      // Multiples of 1024 fall in the same slot until the table has more than 1024 slots
+      StreamIndex index = new StreamIndex(4);
+
+      // Act
+      for (long i = 0; i < 1000; i++) {
+        index.put(i * 1024, i + 1, i * 100);
+      }
+      index.put(0, 7, 42);
+
+      // Assert
+      assertThat(index.size()).isEqualTo(1000);
+      assertThat(index.getVersion(0)).isEqualTo(7);
+      assertThat(index.getLastPosition(0)).isEqualTo(42);
+      for (long i = 1; i < 1000; i++) {
+        assertThat(index.getVersion(i * 1024)).isEqualTo(i + 1);
+        assertThat(index.getLastPosition(i * 1024)).isEqualTo(i * 100);
+      }
+    }
+
+    @Test
+    @DisplayName("should report the streams which aren't indexed as empty")
+    void shouldReportStreamsWhichAreNotIndexedAsEmpty() {
+      // Arrange
+      StreamIndex index = new StreamIndex(16);
+      index.put(1, 1, 0);
+
+      // Act
+      long version = index.getVersion(2);
+      long lastPosition = index.getLastPosition(2);
+
+      // Assert
+      assertThat(version).isEqualTo(0);
+      assertThat(lastPosition).isEqualTo(EventSegments.NO_POSITION);
+    }
+  }
+}
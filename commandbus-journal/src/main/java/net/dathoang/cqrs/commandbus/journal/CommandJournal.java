@@ -0,0 +1,233 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.CRC_OFFSET;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.HEADER_SIZE;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.LENGTH_OFFSET;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.SEQUENCE_OFFSET;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.TIMESTAMP_OFFSET;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.LongSupplier;
+import net.dathoang.cqrs.commandbus.command.Command;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * An append-only log of commands, stored in fixed-size segment files which are memory-mapped,
+ * so an append is a copy into memory rather than a system call. Each record gets the next
+ * sequence number and a checksum, see {@link JournalSegments} for the layout, and the segments are
+ * forced to the disk according to the {@link FsyncPolicy}.
+ *
+ * <p>When opened on an existing journal, the journal continues after the last valid record, and
+ * erases the partly written record a crash may have left behind it.
+ */
+public class CommandJournal implements Closeable {
+  private static final Log log = LogFactory.getLog(CommandJournal.class);
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private final Path directory;
+  private final CommandSerializer serializer;
+  private final FsyncPolicy fsyncPolicy;
+  private final int segmentSize;
+  private final LongSupplier clock;
+  private final LongSupplier nanoClock;
+
+  private MappedByteBuffer segment;
+  private int position;
+  private long nextSequence;
+  private long lastForceNanos;
+  private boolean hasUnforcedRecords;
+  private boolean isClosed;
+
+  public CommandJournal(Path directory, CommandSerializer serializer, FsyncPolicy fsyncPolicy)
+      throws IOException {
+    this(directory, serializer, fsyncPolicy, DEFAULT_SEGMENT_SIZE);
+  }
+
+  public CommandJournal(Path directory, CommandSerializer serializer, FsyncPolicy fsyncPolicy,
+      int segmentSize) throws IOException {
+    this(directory, serializer, fsyncPolicy, segmentSize, System::currentTimeMillis,
+        System::nanoTime);
+  }
+
+  CommandJournal(Path directory, CommandSerializer serializer, FsyncPolicy fsyncPolicy,
+      int segmentSize, LongSupplier clock, LongSupplier nanoClock) throws IOException {
+    if (segmentSize <= HEADER_SIZE) {
+      throw new IllegalArgumentException(String.format(
+          "segmentSize must be greater than the record header size %d", HEADER_SIZE));
+    }
+    this.directory = directory;
+    this.serializer = serializer;
+    this.fsyncPolicy = fsyncPolicy;
+    this.segmentSize = segmentSize;
+    this.clock = clock;
+    this.nanoClock = nanoClock;
+    this.lastForceNanos = nanoClock.getAsLong();
+    recover();
+  }
+
+  /**
+   * Append a command to the journal.
+   *
+   * @param command the command to append
+   * @return the sequence number of the record
+   * @throws IOException when the command can't be serialized or a new segment can't be created
+   * @throws IllegalArgumentException when the serialized command doesn't fit in a segment
+   */
+  public long append(Command<?> command) throws IOException {
+    byte[] payload = serialize(command);
+    synchronized (this) {
+      long sequence = write(payload);
+      long nowNanos = nanoClock.getAsLong();
+      if (fsyncPolicy.shouldForce(nowNanos - lastForceNanos)) {
+        force(nowNanos);
+      }
+      return sequence;
+    }
+  }
+
+  /**
+   * Serialize a command, and check that it fits in a segment.
+   */
+  byte[] serialize(Command<?> command) throws IOException {
+    byte[] payload = serializer.serialize(command);
+    if (payload.length == 0 || payload.length > segmentSize - HEADER_SIZE) {
+      throw new IllegalArgumentException(String.format(
+          "The serialized %s takes %d bytes, but records must take between 1 and %d bytes",
+          command.getClass().getName(), payload.length, segmentSize - HEADER_SIZE));
+    }
+    return payload;
+  }
+
+  /**
+   * Append a serialized command without forcing it to the disk, whatever the
+   * {@link FsyncPolicy}.
+   *
+   * @return the sequence number of the record
+   */
+  synchronized long write(byte[] payload) throws IOException {
+    if (isClosed) {
+      throw new IllegalStateException("The journal is closed");
+    }
+    if (HEADER_SIZE + payload.length > segment.capacity() - position) {
+      roll();
+    }
+
+    long sequence = nextSequence++;
+    writeRecord(sequence, payload);
+    hasUnforcedRecords = true;
+    return sequence;
+  }
+
+  /**
+   * Force the records appended so far to the disk, whatever the {@link FsyncPolicy}.
+   */
+  public synchronized void flush() {
+    if (!isClosed && hasUnforcedRecords) {
+      force(nanoClock.getAsLong());
+    }
+  }
+
+  /**
+   * Get the sequence number the next appended record will get.
+   */
+  public synchronized long getNextSequence() {
+    return nextSequence;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Force the records to the disk, then stop accepting new ones.
+   */
+  @Override
+  public synchronized void close() {
+    flush();
+    isClosed = true;
+    // The mapping is released once the buffer is garbage collected
+    segment = null;
+  }
+
+  private void writeRecord(long sequence, byte[] payload) {
+    segment.putLong(position + SEQUENCE_OFFSET, sequence);
+    segment.putLong(position + TIMESTAMP_OFFSET, clock.getAsLong());
+    ByteBuffer payloadTarget = segment.duplicate();
+    payloadTarget.position(position + HEADER_SIZE);
+    payloadTarget.put(payload);
+    segment.putInt(position + CRC_OFFSET,
+        JournalSegments.checksum(segment, position, payload.length));
+    // Written last, so that the record only becomes readable once whole
+    segment.putInt(position + LENGTH_OFFSET, payload.length);
+    position += HEADER_SIZE + payload.length;
+  }
+
+  private void roll() throws IOException {
+    if (hasUnforcedRecords) {
+      force(nanoClock.getAsLong());
+    }
+    segment = map(JournalSegments.segmentPath(directory, nextSequence), segmentSize);
+    position = 0;
+  }
+
+  private void force(long nowNanos) {
+    segment.force();
+    lastForceNanos = nowNanos;
+    hasUnforcedRecords = false;
+  }
+
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    List<Path> segments = JournalSegments.list(directory);
+    if (segments.isEmpty()) {
+      nextSequence = 1;
+      segment = map(JournalSegments.segmentPath(directory, nextSequence), segmentSize);
+      position = 0;
+      return;
+    }
+
+    Path lastSegment = segments.get(segments.size() - 1);
+    segment = map(lastSegment, (int) Files.size(lastSegment));
+    nextSequence = JournalSegments.firstSequenceOf(lastSegment);
+    position = 0;
+    int recordSize;
+    while ((recordSize = JournalSegments.validRecordSize(segment, position)) > 0) {
+      nextSequence = segment.getLong(position + SEQUENCE_OFFSET) + 1;
+      position += recordSize;
+    }
+
+    // The length is written last, so a partly written record may have a zero length but
+    // leftover bytes, which later records wouldn't necessarily overwrite
+    int end = segment.capacity();
+    while (end > position && segment.get(end - 1) == 0) {
+      end--;
+    }
+    if (end > position) {
+      log.warn(String.format("Erasing the partly written record at the offset %d of %s",
+          position, lastSegment));
+      for (int i = position; i < end; i++) {
+        segment.put(i, (byte) 0);
+      }
+      segment.force();
+    }
+  }
+
+  private static MappedByteBuffer map(Path segmentPath, int size) throws IOException {
+    try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      // Mapping past the end of the file grows it, the new bytes are zeros
+      return channel.map(MapMode.READ_WRITE, 0, size);
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.dathoang.cqrs.commandbus.command.Command;
+
+/**
+ * Converts the journaled commands to bytes and back.
+ */
+public interface CommandSerializer {
+  byte[] serialize(Command<?> command) throws IOException;
+
+  /**
+   * Read a command back.
+   *
+   * @param payload the bytes written by {@link #serialize(Command)}, between the position and the
+   *        limit of the buffer. The buffer may be a view of a memory-mapped journal segment, so it
+   *        must not be kept after returning.
+   * @return the command
+   * @throws IOException when the bytes can't be read back as a command
+   */
+  Command<?> deserialize(ByteBuffer payload) throws IOException;
+}
@@ -0,0 +1,54 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When the journal forces its memory-mapped segments to the disk. Appended records are visible
+ * to the operating system right away, so they survive a crash of the process whatever the
+ * policy, the policy only decides how many of them a crash of the machine may lose.
+ */
+public final class FsyncPolicy {
+  private static final long NEVER = -1;
+
+  private final long intervalNanos;
+
+  private FsyncPolicy(long intervalNanos) {
+    this.intervalNanos = intervalNanos;
+  }
+
+  /**
+   * Leave the writes to the disk to the operating system, the journal only forces its segments
+   * when they are full and when it is closed.
+   */
+  public static FsyncPolicy never() {
+    return new FsyncPolicy(NEVER);
+  }
+
+  /**
+   * Force every record to the disk before the append returns.
+   */
+  public static FsyncPolicy everyAppend() {
+    return new FsyncPolicy(0);
+  }
+
+  /**
+   * Force the records to the disk on the first append once the interval has elapsed since the
+   * last force, so a crash of the machine loses at most the records of about one interval. While
+   * the journal is idle, the last records wait for the next append or for the journal to close.
+   */
+  public static FsyncPolicy interval(long interval, TimeUnit unit) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive");
+    }
+    return new FsyncPolicy(unit.toNanos(interval));
+  }
+
+  /**
+   * Check whether the records appended since the last force must be forced now.
+   *
+   * @param nanosSinceLastForce the time elapsed since the last force
+   */
+  boolean shouldForce(long nanosSinceLastForce) {
+    return intervalNanos != NEVER && nanosSinceLastForce >= intervalNanos;
+  }
+}
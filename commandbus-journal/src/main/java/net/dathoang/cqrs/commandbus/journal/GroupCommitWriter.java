@@ -0,0 +1,227 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.message.AdmissionGate;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Appends commands to a {@link CommandJournal} in batches, forcing each batch to the disk once,
+ * so that durable appends from concurrent dispatchers share the cost of the forces instead of
+ * each paying for one.
+ *
+ * <p>The commands are serialized on the appending threads, then queued for a single writer
+ * thread. The writer takes the first queued record, waits up to the linger time for more until
+ * the batch is full, writes the batch and forces it, then completes the futures of its records.
+ * A future therefore completes once its record is on the disk, whatever the {@link FsyncPolicy}
+ * of the journal, which only applies to {@link CommandJournal#append(Command)}.
+ *
+ * <p>The queue isn't bounded: the appending threads usually wait for their record to be durable,
+ * so it holds at most one record per dispatching thread.
+ */
+public class GroupCommitWriter implements Closeable {
+  private static final Log log = LogFactory.getLog(GroupCommitWriter.class);
+
+  private static final PendingRecord POISON_PILL = new PendingRecord(null, null);
+
+  private final CommandJournal journal;
+  private final int maxBatchSize;
+  private final long lingerNanos;
+  private final BlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>();
+  private final AtomicLong batchCount = new AtomicLong();
+  private final AtomicLong recordCount = new AtomicLong();
+  private final Thread writer;
+  private final AdmissionGate admissionGate = new AdmissionGate();
+
+  /**
+   * Create the writer and start its thread.
+   *
+   * @param journal the journal to append to, which stays open when the writer is closed
+   * @param maxBatchSize the maximum number of records forced at once
+   * @param linger how long the writer waits for more records before writing a batch which isn't
+   *        full, 0 to only batch the records already queued
+   * @param unit the unit of the linger time
+   */
+  public GroupCommitWriter(CommandJournal journal, int maxBatchSize, long linger,
+      TimeUnit unit) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive");
+    }
+    this.journal = journal;
+    this.maxBatchSize = maxBatchSize;
+    this.lingerNanos = unit.toNanos(linger);
+    this.writer = new Thread(this::writeBatches, "commandbus-journal-group-commit");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Queue a command to be appended with the next batch.
+   *
+   * @param command the command to append
+   * @return a future completed with the sequence number of the record once it is on the disk, or
+   *         completed exceptionally when the command can't be serialized or written
+   */
+  public CompletableFuture<Long> append(Command<?> command) {
+    CompletableFuture<Long> result = new CompletableFuture<>();
+    if (!admissionGate.tryEnter()) {
+      result.completeExceptionally(new IllegalStateException("The group commit writer is closed"));
+      return result;
+    }
+
+    try {
+      pendingRecords.add(new PendingRecord(journal.serialize(command), result));
+    } catch (IOException | RuntimeException ex) {
+      result.completeExceptionally(ex);
+    } finally {
+      admissionGate.exit();
+    }
+    return result;
+  }
+
+  /**
+   * Append a command with the next batch, and wait until its record is on the disk.
+   *
+   * @param command the command to append
+   * @return the sequence number of the record
+   * @throws IOException when the command can't be serialized or written
+   * @throws InterruptedException when interrupted while waiting, the record may still be written
+   */
+  public long appendAndWait(Command<?> command) throws IOException, InterruptedException {
+    try {
+      return append(command).get();
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Get the number of batches written so far.
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * Get the number of records written so far.
+   */
+  public long getRecordCount() {
+    return recordCount.get();
+  }
+
+  /**
+   * Write the records already queued, then stop the writer thread. The commands appended
+   * afterwards are rejected. The journal isn't closed.
+   *
+   * <p>When interrupted, returns without waiting for the writer, which still writes the queued
+   * records before stopping.
+   */
+  @Override
+  public void close() {
+    // Once closed, no append is queuing a record anymore, so the writer stops after the last one
+    admissionGate.close();
+    pendingRecords.add(POISON_PILL);
+    try {
+      writer.join();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void writeBatches() {
+    List<PendingRecord> batch = new ArrayList<>(maxBatchSize);
+    boolean isClosing = false;
+    while (!isClosing) {
+      try {
+        PendingRecord first = pendingRecords.take();
+        if (first == POISON_PILL) {
+          return;
+        }
+        batch.add(first);
+
+        long lingerDeadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < maxBatchSize) {
+          long remainingNanos = lingerDeadline - System.nanoTime();
+          PendingRecord next = remainingNanos > 0
+              ? pendingRecords.poll(remainingNanos, TimeUnit.NANOSECONDS)
+              : pendingRecords.poll();
+          if (next == null) {
+            break;
+          }
+          if (next == POISON_PILL) {
+            isClosing = true;
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException ex) {
+        // Only close() stops the writer, write what was gathered and keep going
+        Thread.interrupted();
+      }
+
+      writeBatch(batch);
+      batch.clear();
+    }
+  }
+
+  private void writeBatch(List<PendingRecord> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    List<PendingRecord> writtenRecords = new ArrayList<>(batch.size());
+    for (PendingRecord pendingRecord : batch) {
+      try {
+        pendingRecord.sequence = journal.write(pendingRecord.payload);
+        writtenRecords.add(pendingRecord);
+      } catch (IOException | RuntimeException ex) {
+        pendingRecord.result.completeExceptionally(ex);
+      }
+    }
+
+    try {
+      journal.flush();
+    } catch (RuntimeException ex) {
+      log.error(String.format("Can't force a batch of %d records to the disk",
+          writtenRecords.size()), ex);
+      writtenRecords.forEach(writtenRecord -> writtenRecord.result.completeExceptionally(ex));
+      return;
+    }
+
+    batchCount.incrementAndGet();
+    recordCount.addAndGet(writtenRecords.size());
+    writtenRecords.forEach(writtenRecord ->
+        writtenRecord.result.complete(writtenRecord.sequence));
+  }
+
+  private static final class PendingRecord {
+    private final byte[] payload;
+    private final CompletableFuture<Long> result;
+    private long sequence;
+
+    PendingRecord(byte[] payload, CompletableFuture<Long> result) {
+      this.payload = payload;
+      this.result = result;
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import net.dathoang.cqrs.commandbus.command.Command;
+
+/**
+ * A {@link CommandSerializer} based on Java serialization, for commands implementing
+ * {@link java.io.Serializable}.
+ */
+public final class JavaCommandSerializer implements CommandSerializer {
+  @Override
+  public byte[] serialize(Command<?> command) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(command);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public Command<?> deserialize(ByteBuffer payload) throws IOException {
+    try (ObjectInputStream input = new ObjectInputStream(new ByteBufferInputStream(payload))) {
+      return (Command<?>) input.readObject();
+    } catch (ClassNotFoundException | ClassCastException ex) {
+      throw new IOException("The payload isn't a serialized command", ex);
+    }
+  }
+
+  /**
+   * Reads the buffer without copying it to an array first.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int readLength = Math.min(length, buffer.remaining());
+      buffer.get(target, offset, readLength);
+      return readLength;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.nio.file.Path;
+import net.dathoang.cqrs.commandbus.exceptions.CommandBusException;
+
+/**
+ * Thrown when a journal segment other than the last one holds an invalid record. Only the last
+ * segment may end with a partly written record, left by a crash.
+ */
+public class JournalCorruptedException extends CommandBusException {
+  public JournalCorruptedException(Path segment, int offset) {
+    super(String.format("The record at the offset %d of %s is corrupted", offset, segment));
+  }
+}
@@ -0,0 +1,79 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.HEADER_SIZE;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.LENGTH_OFFSET;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.SEQUENCE_OFFSET;
+import static net.dathoang.cqrs.commandbus.journal.JournalSegments.TIMESTAMP_OFFSET;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads the records of a {@link CommandJournal} in sequence order, straight from the
+ * memory-mapped segments. The reader may run while the journal is appended to, it then reads the
+ * records appended before it reached the end of the last segment.
+ */
+public class JournalReader {
+  private final Path directory;
+
+  public JournalReader(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Pass the records to the handler, one at a time, in sequence order.
+   *
+   * @param fromSequence the sequence of the first record to read
+   * @param handler the handler of the records
+   * @return the sequence following the last record read, to read the next records from
+   * @throws JournalCorruptedException when a segment other than the last one holds an invalid
+   *         record
+   * @throws Exception the exception raised by the handler, which stops the reading
+   */
+  public long read(long fromSequence, JournalRecordHandler handler) throws Exception {
+    List<Path> segments = JournalSegments.list(directory);
+    long nextSequence = fromSequence;
+    for (int i = 0; i < segments.size(); i++) {
+      // Skip the segments whose records all precede the first one to read
+      if (i + 1 < segments.size()
+          && JournalSegments.firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+        continue;
+      }
+
+      boolean isLastSegment = i == segments.size() - 1;
+      ByteBuffer segment = map(segments.get(i));
+      int position = 0;
+      int recordSize;
+      while ((recordSize = JournalSegments.validRecordSize(segment, position)) > 0) {
+        long sequence = segment.getLong(position + SEQUENCE_OFFSET);
+        if (sequence >= fromSequence) {
+          ByteBuffer payload = segment.duplicate();
+          payload.limit(position + recordSize);
+          payload.position(position + HEADER_SIZE);
+          handler.handle(new JournalRecord(sequence,
+              segment.getLong(position + TIMESTAMP_OFFSET), payload.slice().asReadOnlyBuffer()));
+          nextSequence = sequence + 1;
+        }
+        position += recordSize;
+      }
+
+      if (!isLastSegment && segment.limit() - position >= HEADER_SIZE
+          && segment.getInt(position + LENGTH_OFFSET) != 0) {
+        throw new JournalCorruptedException(segments.get(i), position);
+      }
+    }
+    return nextSequence;
+  }
+
+  private static MappedByteBuffer map(Path segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      return channel.map(MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+}
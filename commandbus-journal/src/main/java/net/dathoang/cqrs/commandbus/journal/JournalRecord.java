@@ -0,0 +1,40 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import net.dathoang.cqrs.commandbus.command.Command;
+
+/**
+ * A record read from a {@link CommandJournal}. Its payload is a view of the memory-mapped
+ * segment, so the record must not be kept after the {@link JournalRecordHandler} returns.
+ */
+public final class JournalRecord {
+  private final long sequence;
+  private final long timestampMillis;
+  private final ByteBuffer payload;
+
+  JournalRecord(long sequence, long timestampMillis, ByteBuffer payload) {
+    this.sequence = sequence;
+    this.timestampMillis = timestampMillis;
+    this.payload = payload;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
+  /**
+   * Get a read-only view of the serialized command.
+   */
+  public ByteBuffer getPayload() {
+    return payload.duplicate();
+  }
+
+  public Command<?> readCommand(CommandSerializer serializer) throws IOException {
+    return serializer.deserialize(getPayload());
+  }
+}
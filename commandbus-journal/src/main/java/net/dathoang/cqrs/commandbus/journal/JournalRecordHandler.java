@@ -0,0 +1,5 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+public interface JournalRecordHandler {
+  void handle(JournalRecord record) throws Exception;
+}
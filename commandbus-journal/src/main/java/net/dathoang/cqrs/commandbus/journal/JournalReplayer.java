@@ -0,0 +1,266 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.CommandBus;
+import net.dathoang.cqrs.commandbus.message.AnnotatedKeyExtractor;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Dispatches the commands of a {@link CommandJournal} again, to rebuild the state they produced
+ * after a crash or when a read model changes.
+ *
+ * <p>The journal is read in sequence order by the replaying thread, which deserializes each
+ * command straight from the memory-mapped segment, then hands it to one of the partitions by the
+ * hash of its {@link RoutingKey}. Each partition has its own worker thread dispatching its
+ * commands in sequence order, so the commands with equal routing keys are replayed in journal
+ * order while the partitions are replayed in parallel. The commands without a routing key are
+ * spread over the partitions, and may be replayed in any order.
+ *
+ * <p>The progress is saved to a checkpoint file every few records and when the replay ends,
+ * including when a dispatch fails, and the next replay resumes from it. The checkpoint is the
+ * sequence below which every command was dispatched, so it may trail the commands dispatched by
+ * the faster partitions: the replay is at-least-once, and after a crash or a failure some
+ * commands are dispatched again. Their handlers must therefore be idempotent.
+ *
+ * <p>The commands must be replayed through a bus which doesn't journal them, such as a
+ * {@code DefaultCommandBus} without a {@link JournalingMiddleware}, or they would be appended to
+ * the journal again.
+ */
+public class JournalReplayer {
+  private static final Log log = LogFactory.getLog(JournalReplayer.class);
+
+  private static final AnnotatedKeyExtractor ROUTING_KEY_EXTRACTOR =
+      new AnnotatedKeyExtractor(RoutingKey.class);
+  private static final int DEFAULT_CHECKPOINT_INTERVAL = 1024;
+  private static final int PARTITION_QUEUE_CAPACITY = 256;
+  private static final ReplayTask END_OF_REPLAY = new ReplayTask(0, null);
+
+  private final JournalReader journalReader;
+  private final CommandSerializer serializer;
+  private final CommandBus commandBus;
+  private final ReplayCheckpoint checkpoint;
+  private final int partitionCount;
+  private final int checkpointInterval;
+
+  /**
+   * Create a replayer of a journal.
+   *
+   * @param journalDirectory the directory of the journal
+   * @param serializer the serializer the commands were journaled with
+   * @param commandBus the bus dispatching the replayed commands, which mustn't journal them
+   * @param checkpointFile the file storing the progress of the replay
+   * @param partitionCount the number of partitions replayed in parallel
+   */
+  public JournalReplayer(Path journalDirectory, CommandSerializer serializer,
+      CommandBus commandBus, Path checkpointFile, int partitionCount) {
+    this(journalDirectory, serializer, commandBus, checkpointFile, partitionCount,
+        DEFAULT_CHECKPOINT_INTERVAL);
+  }
+
+  JournalReplayer(Path journalDirectory, CommandSerializer serializer, CommandBus commandBus,
+      Path checkpointFile, int partitionCount, int checkpointInterval) {
+    if (partitionCount <= 0) {
+      throw new IllegalArgumentException("partitionCount must be positive");
+    }
+    this.journalReader = new JournalReader(journalDirectory);
+    this.serializer = serializer;
+    this.commandBus = commandBus;
+    this.checkpoint = new ReplayCheckpoint(checkpointFile);
+    this.partitionCount = partitionCount;
+    this.checkpointInterval = checkpointInterval;
+  }
+
+  /**
+   * Replay the commands journaled after the checkpoint, and wait until they are dispatched.
+   *
+   * @return the sequence of the next record to replay, which is saved as the checkpoint
+   * @throws Exception the exception raised by the first failing dispatch, or while reading the
+   *         journal, once the partitions are stopped and the checkpoint saved
+   */
+  public long replay() throws Exception {
+    return new Replay(checkpoint.load()).run();
+  }
+
+  private final class Replay implements JournalRecordHandler {
+    private final Partition[] partitions = new Partition[partitionCount];
+    private final AtomicReference<Throwable> dispatchFailure = new AtomicReference<>();
+    private volatile boolean isStopping;
+    private long nextSequence;
+    private int recordsSinceCheckpoint;
+
+    Replay(long fromSequence) {
+      this.nextSequence = fromSequence;
+      for (int i = 0; i < partitionCount; i++) {
+        partitions[i] = new Partition(fromSequence - 1);
+      }
+    }
+
+    long run() throws Exception {
+      for (int i = 0; i < partitionCount; i++) {
+        Partition partition = partitions[i];
+        String workerName = "commandbus-journal-replay-" + i;
+        partition.worker = new Thread(() -> work(partition), workerName);
+        partition.worker.setDaemon(true);
+        partition.worker.start();
+      }
+
+      Throwable readFailure = null;
+      try {
+        journalReader.read(nextSequence, this);
+      } catch (StoppedReplayException ex) {
+        // A dispatch failed, it is thrown below
+      } catch (Exception | Error ex) {
+        readFailure = ex;
+        isStopping = true;
+      } finally {
+        stopPartitions();
+      }
+
+      long checkpointSequence = saveCheckpoint();
+      Throwable failure = dispatchFailure.get() != null ? dispatchFailure.get() : readFailure;
+      if (failure == null) {
+        log.info(String.format("Replayed the journal up to the sequence %d",
+            checkpointSequence - 1));
+        return checkpointSequence;
+      }
+      if (failure != readFailure && readFailure != null) {
+        failure.addSuppressed(readFailure);
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw (Exception) failure;
+    }
+
+    @Override
+    public void handle(JournalRecord record) throws Exception {
+      if (isStopping) {
+        throw new StoppedReplayException();
+      }
+
+      // Deserialized from the view of the mapped segment, the payload is never copied
+      Command<?> command = record.readCommand(serializer);
+      Object routingKey = ROUTING_KEY_EXTRACTOR.extract(command);
+      int partitionIndex = routingKey == null
+          ? (int) Math.floorMod(record.getSequence(), (long) partitionCount)
+          : Math.floorMod(routingKey.hashCode(), partitionCount);
+      Partition partition = partitions[partitionIndex];
+      partition.lastAssignedSequence = record.getSequence();
+      partition.tasks.put(new ReplayTask(record.getSequence(), command));
+
+      nextSequence = record.getSequence() + 1;
+      if (++recordsSinceCheckpoint >= checkpointInterval) {
+        saveCheckpoint();
+      }
+    }
+
+    private void work(Partition partition) {
+      while (true) {
+        ReplayTask task;
+        try {
+          task = partition.tasks.take();
+        } catch (InterruptedException ex) {
+          // Only the end of the replay stops the workers
+          continue;
+        }
+        if (task == END_OF_REPLAY) {
+          return;
+        }
+        if (isStopping) {
+          // Drained without dispatching, so that the replaying thread doesn't block
+          continue;
+        }
+
+        try {
+          commandBus.dispatch(task.command);
+          partition.lastDispatchedSequence = task.sequence;
+        } catch (Exception | Error ex) {
+          dispatchFailure.compareAndSet(null, ex);
+          isStopping = true;
+        }
+      }
+    }
+
+    private void stopPartitions() throws InterruptedException {
+      boolean isInterrupted = false;
+      for (Partition partition : partitions) {
+        while (true) {
+          try {
+            partition.tasks.put(END_OF_REPLAY);
+            break;
+          } catch (InterruptedException ex) {
+            isInterrupted = true;
+          }
+        }
+      }
+      for (Partition partition : partitions) {
+        while (true) {
+          try {
+            partition.worker.join();
+            break;
+          } catch (InterruptedException ex) {
+            isInterrupted = true;
+          }
+        }
+      }
+      if (isInterrupted) {
+        throw new InterruptedException();
+      }
+    }
+
+    /**
+     * Save the sequence below which every command was dispatched.
+     */
+    private long saveCheckpoint() throws Exception {
+      long checkpointSequence = nextSequence;
+      for (Partition partition : partitions) {
+        // A stale value only makes the checkpoint trail further
+        long lastDispatchedSequence = partition.lastDispatchedSequence;
+        if (partition.lastAssignedSequence > lastDispatchedSequence) {
+          checkpointSequence = Math.min(checkpointSequence, lastDispatchedSequence + 1);
+        }
+      }
+      checkpoint.save(checkpointSequence);
+      recordsSinceCheckpoint = 0;
+      return checkpointSequence;
+    }
+  }
+
+  private static final class Partition {
+    private final BlockingQueue<ReplayTask> tasks =
+        new ArrayBlockingQueue<>(PARTITION_QUEUE_CAPACITY);
+    private volatile long lastDispatchedSequence;
+    private long lastAssignedSequence;
+    private Thread worker;
+
+    Partition(long lastReplayedSequence) {
+      this.lastDispatchedSequence = lastReplayedSequence;
+      this.lastAssignedSequence = lastReplayedSequence;
+    }
+  }
+
+  private static final class ReplayTask {
+    private final long sequence;
+    private final Command<?> command;
+
+    ReplayTask(long sequence, Command<?> command) {
+      this.sequence = sequence;
+      this.command = command;
+    }
+  }
+
+  /**
+   * Stops the reading of the journal once a dispatch failed.
+   */
+  private static final class StoppedReplayException extends RuntimeException {
+    StoppedReplayException() {
+      super(null, null, false, false);
+    }
+  }
+}
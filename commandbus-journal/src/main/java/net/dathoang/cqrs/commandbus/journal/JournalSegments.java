@@ -0,0 +1,97 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The layout of the journal files, shared by the writer and the readers.
+ *
+ * <p>The journal is a directory of segment files named after the sequence of their first record,
+ * zero-padded so that the names sort in sequence order. A segment is a run of records followed by
+ * zeros up to its fixed size:
+ *
+ * <pre>
+ * int  payload length, 0 marks the end of the records
+ * int  CRC32 of the sequence, the timestamp and the payload
+ * long sequence
+ * long timestamp, in milliseconds since the epoch
+ * byte[payload length] payload
+ * </pre>
+ */
+final class JournalSegments {
+  static final int HEADER_SIZE = 24;
+  static final int LENGTH_OFFSET = 0;
+  static final int CRC_OFFSET = 4;
+  static final int SEQUENCE_OFFSET = 8;
+  static final int TIMESTAMP_OFFSET = 16;
+
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private JournalSegments() {}
+
+  static Path segmentPath(Path directory, long firstSequence) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence,
+        SEGMENT_SUFFIX));
+  }
+
+  static long firstSequenceOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+        name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * List the segments of the journal, in sequence order.
+   */
+  static List<Path> list(Path directory) throws IOException {
+    List<Path> segments = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return segments;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      stream.forEach(segments::add);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  /**
+   * Compute the checksum of the record at the position of the buffer.
+   */
+  static int checksum(ByteBuffer segment, int position, int payloadLength) {
+    ByteBuffer checkedBytes = segment.duplicate();
+    checkedBytes.limit(position + HEADER_SIZE + payloadLength);
+    checkedBytes.position(position + SEQUENCE_OFFSET);
+    CRC32 crc = new CRC32();
+    crc.update(checkedBytes);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Check whether a whole, uncorrupted record starts at the position of the buffer.
+   *
+   * @return the size of the record, or -1 when there is no valid record at the position
+   */
+  static int validRecordSize(ByteBuffer segment, int position) {
+    if (segment.limit() - position < HEADER_SIZE) {
+      return -1;
+    }
+    int payloadLength = segment.getInt(position + LENGTH_OFFSET);
+    if (payloadLength <= 0 || payloadLength > segment.limit() - position - HEADER_SIZE) {
+      return -1;
+    }
+    if (segment.getInt(position + CRC_OFFSET) != checksum(segment, position, payloadLength)) {
+      return -1;
+    }
+    return HEADER_SIZE + payloadLength;
+  }
+}
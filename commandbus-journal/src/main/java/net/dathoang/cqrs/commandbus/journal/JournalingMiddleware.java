@@ -0,0 +1,40 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.message.Message;
+import net.dathoang.cqrs.commandbus.middleware.Middleware;
+import net.dathoang.cqrs.commandbus.middleware.NextMiddlewareFunction;
+
+/**
+ * Appends every command handled successfully to a {@link CommandJournal}, which makes the journal
+ * an audit trail of the commands. Queries and failed commands aren't journaled.
+ *
+ * <p>The command is journaled once handled, so when the append fails, its exception is thrown
+ * although the command took effect. When appending through a {@link GroupCommitWriter}, the
+ * dispatch returns once the record of its command is on the disk.
+ */
+public class JournalingMiddleware implements Middleware {
+  private final CommandAppender appender;
+
+  public JournalingMiddleware(CommandJournal journal) {
+    this.appender = journal::append;
+  }
+
+  public JournalingMiddleware(GroupCommitWriter writer) {
+    this.appender = writer::appendAndWait;
+  }
+
+  @Override
+  public <R> R handle(Message<R> message, NextMiddlewareFunction<Message<R>, R> next)
+      throws Exception {
+    R result = next.call(message);
+    if (message instanceof Command) {
+      appender.append((Command<R>) message);
+    }
+    return result;
+  }
+
+  private interface CommandAppender {
+    long append(Command<?> command) throws Exception;
+  }
+}
@@ -0,0 +1,50 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The progress of a {@link JournalReplayer}, stored as the sequence of the next record to replay
+ * in a text file. The file is replaced atomically, so a crash leaves either the previous or the
+ * new checkpoint, never a partly written one.
+ */
+final class ReplayCheckpoint {
+  private final Path file;
+
+  ReplayCheckpoint(Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Get the sequence of the next record to replay, 1 when nothing was replayed yet.
+   */
+  long load() throws IOException {
+    if (!Files.exists(file)) {
+      return 1;
+    }
+    String content = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+    try {
+      return Long.parseLong(content);
+    } catch (NumberFormatException ex) {
+      throw new IOException(String.format("%s doesn't hold a sequence: %s", file, content), ex);
+    }
+  }
+
+  void save(long nextSequence) throws IOException {
+    Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      channel.write(ByteBuffer.wrap(
+          Long.toString(nextSequence).getBytes(StandardCharsets.US_ASCII)));
+      channel.force(true);
+    }
+    Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+}
@@ -0,0 +1,175 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import net.dathoang.cqrs.commandbus.command.Command;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CommandJournalTest {
+  private static final int SEGMENT_SIZE = 1024;
+
+  private final CommandSerializer serializer = new JavaCommandSerializer();
+  private final AtomicLong clock = new AtomicLong(1000);
+  private final AtomicLong nanoClock = new AtomicLong();
+
+  private CommandJournal openJournal(Path directory) throws Exception {
+    return new CommandJournal(directory, serializer, FsyncPolicy.never(), SEGMENT_SIZE,
+        clock::get, nanoClock::get);
+  }
+
+  private List<JournalRecord> readAll(Path directory, List<Object> commands) throws Exception {
+    List<JournalRecord> records = new ArrayList<>();
+    new JournalReader(directory).read(1, record -> {
+      records.add(record);
+      commands.add(record.readCommand(serializer));
+    });
+    return records;
+  }
+
+  @Nested
+  @DisplayName("append()")
+  class Append {
+    @Test
+    @DisplayName("should append the commands with increasing sequences and their timestamp")
+    void shouldAppendCommandsWithIncreasingSequencesAndTimestamp(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      List<Object> commands = new ArrayList<>();
+
+      // Act
+      try (CommandJournal journal = openJournal(directory)) {
+        journal.append(new DummyCommand("first"));
+        clock.set(2000);
+        journal.append(new DummyCommand("second"));
+      }
+      List<JournalRecord> records = readAll(directory, commands);
+
+      // Assert
+      assertThat(records).extracting(JournalRecord::getSequence).containsExactly(1L, 2L);
+      assertThat(records).extracting(JournalRecord::getTimestampMillis)
+          .containsExactly(1000L, 2000L);
+      assertThat(commands).containsExactly(new DummyCommand("first"), new DummyCommand("second"));
+    }
+
+    @Test
+    @DisplayName("should roll over to a new segment when the current one is full")
+    void shouldRollOverToNewSegmentWhenCurrentOneIsFull(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      List<Object> commands = new ArrayList<>();
+      List<Object> appendedCommands = new ArrayList<>();
+
+      // Act
+      try (CommandJournal journal = openJournal(directory)) {
+        for (int i = 0; i < 20; i++) {
+          DummyCommand command = new DummyCommand("command " + i);
+          appendedCommands.add(command);
+          journal.append(command);
+        }
+      }
+      readAll(directory, commands);
+
+      // Assert
+      assertThat(JournalSegments.list(directory).size()).isGreaterThan(1);
+      assertThat(commands).isEqualTo(appendedCommands);
+    }
+
+    @Test
+    @DisplayName("should continue the sequence after the journal is reopened")
+    void shouldContinueSequenceAfterJournalIsReopened(@TempDir Path directory) throws Exception {
+      // Arrange
+      try (CommandJournal journal = openJournal(directory)) {
+        journal.append(new DummyCommand("first"));
+        journal.append(new DummyCommand("second"));
+      }
+
+      // Act
+      long sequence;
+      try (CommandJournal journal = openJournal(directory)) {
+        sequence = journal.append(new DummyCommand("third"));
+      }
+
+      // Assert
+      assertThat(sequence).isEqualTo(3);
+      assertThat(readAll(directory, new ArrayList<>())).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("should erase a partly written record when reopened")
+    void shouldErasePartlyWrittenRecordWhenReopened(@TempDir Path directory) throws Exception {
+      // Arrange
+      int endOfFirstRecord;
+      try (CommandJournal journal = openJournal(directory)) {
+        journal.append(new DummyCommand("first"));
+        endOfFirstRecord = JournalSegments.HEADER_SIZE
+            + serializer.serialize(new DummyCommand("first")).length;
+      }
+      Path segment = JournalSegments.list(directory).get(0);
+      try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+        // A record whose length wasn't written yet, as if the process crashed while appending
+        channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}),
+            endOfFirstRecord + 4);
+      }
+
+      // Act
+      List<Object> commands = new ArrayList<>();
+      try (CommandJournal journal = openJournal(directory)) {
+        journal.append(new DummyCommand("x"));
+      }
+      readAll(directory, commands);
+
+      // Assert
+      assertThat(commands).containsExactly(new DummyCommand("first"), new DummyCommand("x"));
+    }
+
+    @Test
+    @DisplayName("should throw IllegalArgumentException when the command doesn't fit in a segment")
+    void shouldThrowWhenCommandDoesNotFitInSegment(@TempDir Path directory) throws Exception {
+      // Arrange
+      char[] largeValue = new char[SEGMENT_SIZE];
+      Arrays.fill(largeValue, 'x');
+
+      // Act
+      Throwable thrown;
+      try (CommandJournal journal = openJournal(directory)) {
+        thrown = catchThrowable(() -> journal.append(new DummyCommand(new String(largeValue))));
+      }
+
+      // Assert
+      assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object>, Serializable {
+    private final String value;
+
+    DummyCommand(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof DummyCommand && ((DummyCommand) other).value.equals(value);
+    }
+
+    @Override
+    public int hashCode() {
+      return value.hashCode();
+    }
+  }
+  // endregion
+}
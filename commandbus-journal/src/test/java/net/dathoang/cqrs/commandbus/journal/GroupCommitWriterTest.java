@@ -0,0 +1,207 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.command.Command;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GroupCommitWriterTest {
+  private static final int THREAD_COUNT = 8;
+  private static final int APPENDS_PER_THREAD = 25;
+
+  private final CommandSerializer serializer = new JavaCommandSerializer();
+  private ExecutorService appenders;
+
+  @BeforeEach
+  void setUp() {
+    appenders = Executors.newFixedThreadPool(THREAD_COUNT);
+  }
+
+  @AfterEach
+  void tearDown() {
+    appenders.shutdownNow();
+  }
+
+  private List<Long> appendConcurrently(GroupCommitWriter writer) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<List<Long>>> results = new ArrayList<>();
+    for (int thread = 0; thread < THREAD_COUNT; thread++) {
+      int threadIndex = thread;
+      results.add(appenders.submit(() -> {
+        start.await();
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+          sequences.add(writer.appendAndWait(new DummyCommand(threadIndex + "-" + i)));
+        }
+        return sequences;
+      }));
+    }
+    start.countDown();
+
+    List<Long> sequences = new ArrayList<>();
+    for (Future<List<Long>> result : results) {
+      sequences.addAll(result.get(10, TimeUnit.SECONDS));
+    }
+    return sequences;
+  }
+
+  @Nested
+  @DisplayName("appendAndWait()")
+  class AppendAndWait {
+    @Test
+    @DisplayName("should write every command with a distinct sequence")
+    void shouldWriteEveryCommandWithDistinctSequence(@TempDir Path directory) throws Exception {
+      // Arrange
+      List<Object> journaledCommands = new ArrayList<>();
+
+      // Act
+      List<Long> sequences;
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never());
+          GroupCommitWriter writer = new GroupCommitWriter(journal, 64, 1,
+              TimeUnit.MILLISECONDS)) {
+        sequences = appendConcurrently(writer);
+      }
+      new JournalReader(directory).read(1, record ->
+          journaledCommands.add(record.readCommand(serializer)));
+
+      // Assert
+      assertThat(sequences).hasSize(THREAD_COUNT * APPENDS_PER_THREAD).doesNotHaveDuplicates();
+      assertThat(journaledCommands).hasSize(THREAD_COUNT * APPENDS_PER_THREAD);
+    }
+
+    @Test
+    @DisplayName("should force the records of concurrent appends together")
+    void shouldForceRecordsOfConcurrentAppendsTogether(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      long batchCount;
+      long recordCount;
+
+      // Act
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never());
+          GroupCommitWriter writer = new GroupCommitWriter(journal, 64, 5,
+              TimeUnit.MILLISECONDS)) {
+        appendConcurrently(writer);
+        batchCount = writer.getBatchCount();
+        recordCount = writer.getRecordCount();
+      }
+
+      // Assert
+      assertThat(recordCount).isEqualTo(THREAD_COUNT * APPENDS_PER_THREAD);
+      assertThat(batchCount).isLessThan(recordCount);
+    }
+
+    @Test
+    @DisplayName("should not put more records than the maximum batch size in a batch")
+    void shouldNotPutMoreRecordsThanMaxBatchSizeInBatch(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      List<CompletableFuture<Long>> results = new ArrayList<>();
+      long batchCount;
+
+      // Act
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never());
+          GroupCommitWriter writer = new GroupCommitWriter(journal, 2, 1, TimeUnit.SECONDS)) {
+        for (int i = 0; i < 6; i++) {
+          results.add(writer.append(new DummyCommand("command " + i)));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+            .get(5, TimeUnit.SECONDS);
+        batchCount = writer.getBatchCount();
+      }
+
+      // Assert
+      // The batches are full, so none waits for the linger time
+      assertThat(batchCount).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("should reject the commands once closed")
+    void shouldRejectCommandsOnceClosed(@TempDir Path directory) throws Exception {
+      // Arrange
+      Throwable thrown;
+
+      // Act
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never())) {
+        GroupCommitWriter writer = new GroupCommitWriter(journal, 16, 0, TimeUnit.MILLISECONDS);
+        writer.close();
+        thrown = catchThrowable(() -> writer.append(new DummyCommand("late")).get());
+      }
+
+      // Assert
+      assertThat(thrown).isInstanceOf(ExecutionException.class)
+          .hasCauseInstanceOf(IllegalStateException.class);
+    }
+  }
+
+  @Nested
+  @DisplayName("close()")
+  class Close {
+    @Test
+    @DisplayName("should complete every append made while closing")
+    void shouldCompleteEveryAppendMadeWhileClosing(@TempDir Path directory) throws Exception {
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never())) {
+        // Arrange
+        GroupCommitWriter writer = new GroupCommitWriter(journal, 16, 0, TimeUnit.MILLISECONDS);
+        List<Future<List<CompletableFuture<Long>>>> appended = new ArrayList<>();
+        for (int thread = 0; thread < THREAD_COUNT; thread++) {
+          appended.add(appenders.submit(() -> {
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            CompletableFuture<Long> result;
+            do {
+              result = writer.append(new DummyCommand("command"));
+              results.add(result);
+            } while (!result.isCompletedExceptionally());
+            return results;
+          }));
+        }
+
+        // Act
+        Thread.sleep(20);
+        writer.close();
+
+        // Assert
+        for (Future<List<CompletableFuture<Long>>> threadResults : appended) {
+          for (CompletableFuture<Long> result : threadResults.get(10, TimeUnit.SECONDS)) {
+            Throwable thrown = catchThrowable(() -> result.get(10, TimeUnit.SECONDS));
+            if (thrown != null) {
+              assertThat(thrown).hasCauseInstanceOf(IllegalStateException.class);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object>, Serializable {
+    private final String value;
+
+    DummyCommand(String value) {
+      this.value = value;
+    }
+  }
+  // endregion
+}
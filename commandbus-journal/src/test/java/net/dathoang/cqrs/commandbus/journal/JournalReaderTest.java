@@ -0,0 +1,93 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import net.dathoang.cqrs.commandbus.command.Command;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalReaderTest {
+  private final CommandSerializer serializer = new JavaCommandSerializer();
+
+  private void appendCommands(Path directory, int count) throws Exception {
+    try (CommandJournal journal =
+        new CommandJournal(directory, serializer, FsyncPolicy.never(), 512)) {
+      for (int i = 1; i <= count; i++) {
+        journal.append(new NumberedCommand(i));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("read()")
+  class Read {
+    @Test
+    @DisplayName("should read the records from the given sequence and return the next one")
+    void shouldReadRecordsFromGivenSequenceAndReturnNextOne(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      appendCommands(directory, 30);
+      List<Long> sequences = new ArrayList<>();
+
+      // Act
+      long nextSequence = new JournalReader(directory).read(25, record ->
+          sequences.add(record.getSequence()));
+
+      // Assert
+      assertThat(JournalSegments.list(directory).size()).isGreaterThan(1);
+      assertThat(sequences).containsExactly(25L, 26L, 27L, 28L, 29L, 30L);
+      assertThat(nextSequence).isEqualTo(31);
+    }
+
+    @Test
+    @DisplayName("should return the given sequence when there is nothing to read")
+    void shouldReturnGivenSequenceWhenThereIsNothingToRead(@TempDir Path directory)
+        throws Exception {
+      // Act
+      long nextSequence = new JournalReader(directory.resolve("missing")).read(7, record -> {});
+
+      // Assert
+      assertThat(nextSequence).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("should throw JournalCorruptedException when a segment which isn't the last one "
+        + "is corrupted")
+    void shouldThrowWhenSegmentWhichIsNotLastOneIsCorrupted(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      appendCommands(directory, 30);
+      Path firstSegment = JournalSegments.list(directory).get(0);
+      try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE)) {
+        // Flip a byte of the payload of the first record
+        channel.write(ByteBuffer.wrap(new byte[] {42}), JournalSegments.HEADER_SIZE + 10);
+      }
+
+      // Act
+      Throwable thrown = catchThrowable(() -> new JournalReader(directory).read(1, record -> {}));
+
+      // Assert
+      assertThat(thrown).isInstanceOf(JournalCorruptedException.class);
+    }
+  }
+
+  // region Dummy classes
+  static class NumberedCommand implements Command<Object>, Serializable {
+    private final int number;
+
+    NumberedCommand(int number) {
+      this.number = number;
+    }
+  }
+  // endregion
+}
@@ -0,0 +1,138 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.command.CommandBus;
+import net.dathoang.cqrs.commandbus.message.RoutingKey;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalReplayerTest {
+  private final CommandSerializer serializer = new JavaCommandSerializer();
+
+  private void appendCommands(Path directory, int from, int to) throws Exception {
+    try (CommandJournal journal =
+        new CommandJournal(directory, serializer, FsyncPolicy.never(), 1024)) {
+      for (int i = from; i <= to; i++) {
+        journal.append(new NumberedCommand("aggregate " + i % 6, i));
+      }
+    }
+  }
+
+  @Nested
+  @DisplayName("replay()")
+  class Replay {
+    @Test
+    @DisplayName("should replay the commands with equal routing keys in journal order")
+    void shouldReplayCommandsWithEqualRoutingKeysInJournalOrder(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      appendCommands(directory.resolve("journal"), 1, 60);
+      RecordingCommandBus commandBus = new RecordingCommandBus();
+      JournalReplayer replayer = new JournalReplayer(directory.resolve("journal"), serializer,
+          commandBus, directory.resolve("checkpoint"), 4);
+
+      // Act
+      long nextSequence = replayer.replay();
+
+      // Assert
+      assertThat(nextSequence).isEqualTo(61);
+      assertThat(commandBus.numbersByAggregate).hasSize(6);
+      commandBus.numbersByAggregate.values().forEach(numbers ->
+          assertThat(numbers).hasSize(10).isSorted());
+    }
+
+    @Test
+    @DisplayName("should resume from the checkpoint of the previous replay")
+    void shouldResumeFromCheckpointOfPreviousReplay(@TempDir Path directory) throws Exception {
+      // Arrange
+      appendCommands(directory.resolve("journal"), 1, 10);
+      new JournalReplayer(directory.resolve("journal"), serializer, new RecordingCommandBus(),
+          directory.resolve("checkpoint"), 2).replay();
+      appendCommands(directory.resolve("journal"), 11, 15);
+      RecordingCommandBus commandBus = new RecordingCommandBus();
+
+      // Act
+      long nextSequence = new JournalReplayer(directory.resolve("journal"), serializer,
+          commandBus, directory.resolve("checkpoint"), 2).replay();
+
+      // Assert
+      assertThat(nextSequence).isEqualTo(16);
+      assertThat(commandBus.getNumbers()).containsExactlyInAnyOrder(11, 12, 13, 14, 15);
+    }
+
+    @Test
+    @DisplayName("should save the checkpoint before the failing command and throw its exception")
+    void shouldSaveCheckpointBeforeFailingCommandAndThrowItsException(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      appendCommands(directory.resolve("journal"), 1, 10);
+      Exception exception = new Exception("Raised by the handler");
+      RecordingCommandBus failingCommandBus = new RecordingCommandBus() {
+        @Override
+        public <R> R dispatch(Command<R> command) throws Exception {
+          if (((NumberedCommand) command).number == 5) {
+            throw exception;
+          }
+          return super.dispatch(command);
+        }
+      };
+      RecordingCommandBus commandBus = new RecordingCommandBus();
+
+      // Act
+      Throwable thrown = catchThrowable(() -> new JournalReplayer(directory.resolve("journal"),
+          serializer, failingCommandBus, directory.resolve("checkpoint"), 1, 3).replay());
+      new JournalReplayer(directory.resolve("journal"), serializer, commandBus,
+          directory.resolve("checkpoint"), 1).replay();
+
+      // Assert
+      assertThat(thrown).isSameAs(exception);
+      assertThat(failingCommandBus.getNumbers()).containsExactly(1, 2, 3, 4);
+      assertThat(commandBus.getNumbers()).containsExactly(5, 6, 7, 8, 9, 10);
+    }
+  }
+
+  // region Dummy classes
+  static class NumberedCommand implements Command<Object>, Serializable {
+    @RoutingKey
+    private final String aggregateId;
+    private final int number;
+
+    NumberedCommand(String aggregateId, int number) {
+      this.aggregateId = aggregateId;
+      this.number = number;
+    }
+  }
+
+  static class RecordingCommandBus implements CommandBus {
+    final Map<String, List<Integer>> numbersByAggregate = new ConcurrentHashMap<>();
+
+    @Override
+    public <R> R dispatch(Command<R> command) throws Exception {
+      NumberedCommand numberedCommand = (NumberedCommand) command;
+      numbersByAggregate.computeIfAbsent(numberedCommand.aggregateId,
+          aggregateId -> Collections.synchronizedList(new ArrayList<>()))
+          .add(numberedCommand.number);
+      return null;
+    }
+
+    List<Integer> getNumbers() {
+      List<Integer> numbers = new ArrayList<>();
+      numbersByAggregate.values().forEach(numbers::addAll);
+      Collections.sort(numbers);
+      return numbers;
+    }
+  }
+  // endregion
+}
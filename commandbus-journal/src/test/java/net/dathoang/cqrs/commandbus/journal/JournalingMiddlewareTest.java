@@ -0,0 +1,92 @@
+package net.dathoang.cqrs.commandbus.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.dathoang.cqrs.commandbus.command.Command;
+import net.dathoang.cqrs.commandbus.query.Query;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalingMiddlewareTest {
+  private final CommandSerializer serializer = new JavaCommandSerializer();
+
+  @Nested
+  @DisplayName("handle()")
+  class Handle {
+    @Test
+    @DisplayName("should journal the commands handled successfully only")
+    void shouldJournalCommandsHandledSuccessfullyOnly(@TempDir Path directory) throws Exception {
+      // Arrange
+      List<Object> journaledCommands = new ArrayList<>();
+      DummyCommand succeedingCommand = new DummyCommand("succeeding");
+      Exception exception = new Exception("Raised by the handler");
+
+      // Act
+      Object result;
+      Throwable thrown;
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.everyAppend())) {
+        JournalingMiddleware middleware = new JournalingMiddleware(journal);
+        result = middleware.handle(succeedingCommand, command -> "result");
+        middleware.handle(new DummyQuery(), query -> "query result");
+        thrown = catchThrowable(() -> middleware.handle(new DummyCommand("failing"), command -> {
+          throw exception;
+        }));
+      }
+      new JournalReader(directory).read(1, record ->
+          journaledCommands.add(record.readCommand(serializer)));
+
+      // Assert
+      assertThat(result).isEqualTo("result");
+      assertThat(thrown).isSameAs(exception);
+      assertThat(journaledCommands).hasSize(1);
+      assertThat(((DummyCommand) journaledCommands.get(0)).value).isEqualTo("succeeding");
+    }
+
+    @Test
+    @DisplayName("should return once the command is written when journaling through a group "
+        + "commit writer")
+    void shouldReturnOnceCommandIsWrittenThroughGroupCommitWriter(@TempDir Path directory)
+        throws Exception {
+      // Arrange
+      List<Object> journaledCommands = new ArrayList<>();
+
+      // Act
+      long recordCount;
+      try (CommandJournal journal = new CommandJournal(directory, serializer,
+          FsyncPolicy.never());
+          GroupCommitWriter writer = new GroupCommitWriter(journal, 16, 0, TimeUnit.MILLISECONDS)) {
+        JournalingMiddleware middleware = new JournalingMiddleware(writer);
+        middleware.handle(new DummyCommand("grouped"), command -> "result");
+        recordCount = writer.getRecordCount();
+      }
+      new JournalReader(directory).read(1, record ->
+          journaledCommands.add(record.readCommand(serializer)));
+
+      // Assert
+      assertThat(recordCount).isEqualTo(1);
+      assertThat(journaledCommands).hasSize(1);
+      assertThat(((DummyCommand) journaledCommands.get(0)).value).isEqualTo("grouped");
+    }
+  }
+
+  // region Dummy classes
+  static class DummyCommand implements Command<Object>, Serializable {
+    private final String value;
+
+    DummyCommand(String value) {
+      this.value = value;
+    }
+  }
+
+  static class DummyQuery implements Query<Object>, Serializable {}
+  // endregion
+}
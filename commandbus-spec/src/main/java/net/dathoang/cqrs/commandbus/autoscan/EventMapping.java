@@ -0,0 +1,17 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+import net.dathoang.cqrs.commandbus.event.Event;
+
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Subscribes the annotated {@link net.dathoang.cqrs.commandbus.event.EventHandler} to an event.
+ * Unlike commands and queries, an event may be mapped to any number of handlers.
+ */
+@Repeatable(EventMappings.class)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EventMapping {
+  Class<? extends Event> value();
+}
@@ -0,0 +1,9 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EventMappings {
+  EventMapping[] value();
+}
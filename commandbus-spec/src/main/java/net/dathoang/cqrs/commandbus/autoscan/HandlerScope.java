@@ -0,0 +1,23 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how the instances of an auto-scanned handler are created and reused. Handlers without
+ * this annotation are {@link HandlerScopeType#PROTOTYPE prototypes}: a new instance is created
+ * for every dispatch.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface HandlerScope {
+  HandlerScopeType value() default HandlerScopeType.PROTOTYPE;
+
+  /**
+   * The maximum number of instances kept by a {@link HandlerScopeType#POOLED} handler. Dispatches
+   * wait for a free instance once they are all in use.
+   */
+  int poolSize() default 16;
+}
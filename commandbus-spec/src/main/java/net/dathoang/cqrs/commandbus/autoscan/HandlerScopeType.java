@@ -0,0 +1,12 @@
+package net.dathoang.cqrs.commandbus.autoscan;
+
+public enum HandlerScopeType {
+  /** A new handler instance for every dispatch. */
+  PROTOTYPE,
+  /** A single handler instance shared by all dispatches, the handler must be thread-safe. */
+  SINGLETON,
+  /** One handler instance per dispatching thread. */
+  THREAD,
+  /** A bounded pool of handler instances, each used by one dispatch at a time. */
+  POOLED
+}
@@ -0,0 +1,11 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link CommandBus} counterpart which doesn't block the dispatching thread while the command is
+ * handled. Failures complete the returned future exceptionally.
+ */
+public interface AsyncCommandBus {
+  <R> CompletableFuture<R> dispatch(Command<R> command);
+}
@@ -1,5 +1,23 @@
 package net.dathoang.cqrs.commandbus.command;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface CommandBus {
   <R> R dispatch(Command<R> command) throws Exception;
+
+  /**
+   * Dispatch a batch of commands and return their results in the same order. The batch stops at
+   * the first command which fails and that exception is thrown.
+   *
+   * <p>The default implementation dispatches the commands one by one, implementations may pass the
+   * batch through their middleware pipeline once.
+   */
+  default <R> List<R> dispatchAll(List<? extends Command<? extends R>> commands) throws Exception {
+    List<R> results = new ArrayList<>(commands.size());
+    for (Command<? extends R> command : commands) {
+      results.add(dispatch(command));
+    }
+    return results;
+  }
 }
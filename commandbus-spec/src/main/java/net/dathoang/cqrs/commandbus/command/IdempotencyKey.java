@@ -0,0 +1,16 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the field, or the no-argument method, holding the idempotency id of a command. Two
+ * commands of the same class with equal idempotency ids are considered the same request, so the
+ * command deduplication middleware only lets the first one reach its handler.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdempotencyKey {
+}
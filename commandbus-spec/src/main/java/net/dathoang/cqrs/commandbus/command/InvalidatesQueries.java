@@ -0,0 +1,18 @@
+package net.dathoang.cqrs.commandbus.command;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import net.dathoang.cqrs.commandbus.query.Query;
+
+/**
+ * Declares the query classes whose cached results become stale once a command of the annotated
+ * class has been handled successfully. The query caching middleware evicts all the cached results
+ * of these query classes right after the command handler returns.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface InvalidatesQueries {
+  Class<? extends Query>[] value();
+}
@@ -0,0 +1,10 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import net.dathoang.cqrs.commandbus.message.Message;
+
+/**
+ * Something that happened in the domain, published to any number of {@link EventHandler}s.
+ * Events don't produce a result.
+ */
+public interface Event extends Message<Void> {
+}
@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.event;
+
+public interface EventBus {
+  /**
+   * Deliver the event to all its handlers, and return once they have all handled it. A failing
+   * handler doesn't keep the event from the other handlers.
+   *
+   * @param event the event to publish
+   * @throws Exception the exception raised by the first failing handler, with the exceptions of
+   *         the other failing handlers suppressed, or the exception raised by a middleware
+   */
+  void publish(Event event) throws Exception;
+}
@@ -0,0 +1,11 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import net.dathoang.cqrs.commandbus.message.MessageHandler;
+
+/**
+ * A subscriber of an {@link Event}. Handlers return {@code null}, as events don't produce a
+ * result.
+ */
+public interface EventHandler<E extends Event> extends MessageHandler<E, Void> {
+  Void handle(E event) throws Exception;
+}
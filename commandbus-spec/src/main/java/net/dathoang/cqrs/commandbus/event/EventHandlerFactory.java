@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.event;
+
+import java.util.List;
+
+public interface EventHandlerFactory {
+  /**
+   * Create the handlers subscribed to an event.
+   *
+   * @param eventName the class name of the event
+   * @return the handlers, empty when the event has no subscriber
+   */
+  <E extends Event> List<EventHandler<E>> createEventHandlers(String eventName);
+}
@@ -0,0 +1,7 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncMessageBus {
+  <R> CompletableFuture<R> dispatch(Message<R> message);
+}
@@ -0,0 +1,148 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The immutable context of the messages dispatched by the current thread, readable by the
+ * middlewares and the handlers. It carries an optional deadline, after which the result of the
+ * dispatch isn't wanted anymore, and an optional priority, which overrides the
+ * {@link DispatchPriority} of the messages.
+ *
+ * <p>A context is attached to the current thread for the duration of a scope:
+ * <pre>{@code
+ * try (DispatchContext.Scope scope =
+ *     DispatchContext.current().withTimeout(200, TimeUnit.MILLISECONDS).attach()) {
+ *   commandBus.dispatch(command);
+ * }
+ * }</pre>
+ *
+ * <p>The buses handling messages on other threads carry the context of the dispatching thread
+ * over to them.
+ */
+public final class DispatchContext {
+  private static final DispatchContext EMPTY = new DispatchContext(false, 0, false, 0);
+  private static final ThreadLocal<DispatchContext> CURRENT = new ThreadLocal<>();
+  private static final ClassValue<Integer> PRIORITY_BY_MESSAGE_CLASS = new ClassValue<Integer>() {
+    @Override
+    protected Integer computeValue(Class<?> messageClass) {
+      DispatchPriority annotation = messageClass.getAnnotation(DispatchPriority.class);
+      return annotation != null ? annotation.value() : DispatchPriority.NORMAL;
+    }
+  };
+
+  private final boolean hasDeadline;
+  private final long deadlineNanos;
+  private final boolean hasPriority;
+  private final int priority;
+
+  private DispatchContext(boolean hasDeadline, long deadlineNanos, boolean hasPriority,
+      int priority) {
+    this.hasDeadline = hasDeadline;
+    this.deadlineNanos = deadlineNanos;
+    this.hasPriority = hasPriority;
+    this.priority = priority;
+  }
+
+  /**
+   * Get the context attached to the current thread, or an empty context.
+   */
+  public static DispatchContext current() {
+    DispatchContext context = CURRENT.get();
+    return context != null ? context : EMPTY;
+  }
+
+  /**
+   * Derive a context whose deadline is the given timeout from now, unless this context already
+   * has an earlier deadline.
+   */
+  public DispatchContext withTimeout(long timeout, TimeUnit unit) {
+    return withDeadline(System.nanoTime() + unit.toNanos(timeout));
+  }
+
+  /**
+   * Derive a context whose deadline is the given {@link System#nanoTime()} value, unless this
+   * context already has an earlier deadline.
+   */
+  public DispatchContext withDeadline(long deadlineNanos) {
+    if (hasDeadline && this.deadlineNanos - deadlineNanos <= 0) {
+      return this;
+    }
+    return new DispatchContext(true, deadlineNanos, hasPriority, priority);
+  }
+
+  /**
+   * Derive a context with the given priority, overriding the {@link DispatchPriority} of the
+   * messages dispatched with it.
+   */
+  public DispatchContext withPriority(int priority) {
+    return new DispatchContext(hasDeadline, deadlineNanos, true, priority);
+  }
+
+  /**
+   * Attach this context to the current thread until the returned scope is closed.
+   */
+  public Scope attach() {
+    DispatchContext previousContext = CURRENT.get();
+    CURRENT.set(this);
+    return () -> {
+      if (previousContext != null) {
+        CURRENT.set(previousContext);
+      } else {
+        CURRENT.remove();
+      }
+    };
+  }
+
+  public boolean hasDeadline() {
+    return hasDeadline;
+  }
+
+  /**
+   * Get the deadline, as a {@link System#nanoTime()} value.
+   *
+   * @throws IllegalStateException when the context has no deadline
+   */
+  public long getDeadlineNanos() {
+    if (!hasDeadline) {
+      throw new IllegalStateException("The dispatch context has no deadline");
+    }
+    return deadlineNanos;
+  }
+
+  /**
+   * Get the time left before the deadline, negative once it has passed, or
+   * {@link Long#MAX_VALUE} when the context has no deadline.
+   */
+  public long remainingNanos() {
+    return hasDeadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+  }
+
+  public boolean isExpired() {
+    return hasDeadline && deadlineNanos - System.nanoTime() <= 0;
+  }
+
+  public boolean hasPriority() {
+    return hasPriority;
+  }
+
+  /**
+   * Get the priority of the message: the priority of this context when it has one, otherwise
+   * the {@link DispatchPriority} of the message class, otherwise
+   * {@link DispatchPriority#NORMAL}.
+   */
+  public int getPriority(Message<?> message) {
+    if (hasPriority) {
+      return priority;
+    }
+    return PRIORITY_BY_MESSAGE_CLASS.get(message.getClass());
+  }
+
+  /**
+   * Restores the context attached before, when closed.
+   */
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,21 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The default priority of the messages of the annotated class, the higher the more urgent.
+ * Priority-aware buses handle the more urgent messages first. A priority can also be given to a
+ * single dispatch through {@link DispatchContext#withPriority(int)}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DispatchPriority {
+  int LOW = -10;
+  int NORMAL = 0;
+  int HIGH = 10;
+
+  int value();
+}
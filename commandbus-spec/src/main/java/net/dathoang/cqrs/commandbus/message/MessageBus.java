@@ -1,7 +1,24 @@
 package net.dathoang.cqrs.commandbus.message;
 
+import java.util.ArrayList;
+import java.util.List;
 import net.dathoang.cqrs.commandbus.message.Message;
 
 public interface MessageBus {
   <R> R dispatch(Message<R> message) throws Exception;
+
+  /**
+   * Dispatch a batch of messages and return their results in the same order. The batch stops at
+   * the first message which fails and that exception is thrown.
+   *
+   * <p>The default implementation dispatches the messages one by one, implementations may pass the
+   * batch through their middleware pipeline once.
+   */
+  default <R> List<R> dispatchAll(List<? extends Message<? extends R>> messages) throws Exception {
+    List<R> results = new ArrayList<>(messages.size());
+    for (Message<? extends R> message : messages) {
+      results.add(dispatch(message));
+    }
+    return results;
+  }
 }
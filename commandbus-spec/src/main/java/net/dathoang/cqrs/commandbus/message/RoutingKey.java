@@ -0,0 +1,16 @@
+package net.dathoang.cqrs.commandbus.message;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the field, or the no-argument method, holding the routing key of a message, usually the
+ * id of the aggregate it targets. Routing buses handle messages with equal routing keys one at a
+ * time, in dispatch order, and messages with different routing keys in parallel.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface RoutingKey {
+}
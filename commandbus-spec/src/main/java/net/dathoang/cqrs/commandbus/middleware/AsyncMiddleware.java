@@ -0,0 +1,13 @@
+package net.dathoang.cqrs.commandbus.middleware;
+
+import java.util.concurrent.CompletableFuture;
+import net.dathoang.cqrs.commandbus.message.Message;
+
+/**
+ * A {@link Middleware} counterpart for the async buses. It runs on the dispatching thread and
+ * should compose on the future returned by {@code next} instead of blocking on it.
+ */
+public interface AsyncMiddleware {
+  <R> CompletableFuture<R> handle(Message<R> message,
+      AsyncNextMiddlewareFunction<Message<R>, R> next);
+}
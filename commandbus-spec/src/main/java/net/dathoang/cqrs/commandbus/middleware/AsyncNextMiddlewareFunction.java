@@ -0,0 +1,8 @@
+package net.dathoang.cqrs.commandbus.middleware;
+
+import java.util.concurrent.CompletableFuture;
+import net.dathoang.cqrs.commandbus.message.Message;
+
+public interface AsyncNextMiddlewareFunction<T extends Message<R>, R> {
+  CompletableFuture<R> call(T message);
+}
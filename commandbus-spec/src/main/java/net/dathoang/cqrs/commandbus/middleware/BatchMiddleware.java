@@ -0,0 +1,23 @@
+package net.dathoang.cqrs.commandbus.middleware;
+
+import java.util.List;
+import net.dathoang.cqrs.commandbus.message.Message;
+
+/**
+ * A {@link Middleware} which can also handle a whole batch of messages dispatched with
+ * {@code dispatchAll()} at once, e.g. to open one transaction or write one log record for the
+ * batch. Middlewares which don't implement this interface see the messages of a batch one by one.
+ */
+public interface BatchMiddleware extends Middleware {
+  /**
+   * Handle a batch of messages.
+   *
+   * @param messages the messages of the batch, in dispatch order
+   * @param next the rest of the pipeline, it returns the results in the same order as the messages
+   * @param <R> the type of the results
+   * @return the results, in the same order as the messages
+   * @throws Exception possibly raised by the rest of the pipeline
+   */
+  <R> List<R> handleBatch(List<Message<R>> messages,
+      NextBatchMiddlewareFunction<Message<R>, R> next) throws Exception;
+}
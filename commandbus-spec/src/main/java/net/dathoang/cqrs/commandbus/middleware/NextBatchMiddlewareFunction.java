@@ -0,0 +1,8 @@
+package net.dathoang.cqrs.commandbus.middleware;
+
+import java.util.List;
+import net.dathoang.cqrs.commandbus.message.Message;
+
+public interface NextBatchMiddlewareFunction<T extends Message<R>, R> {
+  List<R> call(List<T> messages) throws Exception;
+}
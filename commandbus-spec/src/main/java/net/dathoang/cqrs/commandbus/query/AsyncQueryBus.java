@@ -0,0 +1,37 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link QueryBus} counterpart which doesn't block the dispatching thread while the query is
+ * handled. Failures complete the returned future exceptionally.
+ */
+public interface AsyncQueryBus {
+  <R> CompletableFuture<R> dispatch(Query<R> query);
+
+  /**
+   * Dispatch independent queries at once, so they are handled in parallel, each one through its
+   * own middleware pipeline.
+   *
+   * @see #dispatchAll(List)
+   */
+  default CompletableFuture<QueryResults> dispatchAll(Query<?>... queries) {
+    return dispatchAll(Arrays.asList(queries));
+  }
+
+  /**
+   * Dispatch independent queries at once, so they are handled in parallel, each one through its
+   * own middleware pipeline. A failing query doesn't fail the others: the returned future
+   * completes once every query is handled, with the results of the queries which succeeded and
+   * the failures of the others.
+   *
+   * @param queries the queries to dispatch
+   * @return a future completed with the outcome of every query, never exceptionally
+   */
+  default CompletableFuture<QueryResults> dispatchAll(List<? extends Query<?>> queries) {
+    return QueryResults.gather(new ArrayList<>(queries), query -> dispatch(query));
+  }
+}
@@ -0,0 +1,33 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a query class in the results caching of the query caching middleware. Results are keyed
+ * on query equality, so the query class should implement {@code equals} and {@code hashCode}.
+ * Each query class has its own cache region, bounded by the limits below.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachedQuery {
+  /**
+   * The maximum number of results kept for this query class. The least recently used results are
+   * evicted first.
+   */
+  int maxEntries() default 1000;
+
+  /**
+   * How long a result stays cached after it was computed, in milliseconds. Zero or less means
+   * results never expire.
+   */
+  long ttlMillis() default 0;
+
+  /**
+   * The maximum total weight of the results kept for this query class, as measured by the weigher
+   * of the middleware. Zero or less means there is no weight limit.
+   */
+  long maxWeight() default 0;
+}
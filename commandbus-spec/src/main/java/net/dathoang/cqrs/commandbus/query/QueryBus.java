@@ -1,5 +1,23 @@
 package net.dathoang.cqrs.commandbus.query;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface QueryBus {
   <R> R dispatch(Query<R> query) throws Exception;
+
+  /**
+   * Dispatch a batch of queries and return their results in the same order. The batch stops at
+   * the first query which fails and that exception is thrown.
+   *
+   * <p>The default implementation dispatches the queries one by one, implementations may pass the
+   * batch through their middleware pipeline once.
+   */
+  default <R> List<R> dispatchAll(List<? extends Query<? extends R>> queries) throws Exception {
+    List<R> results = new ArrayList<>(queries.size());
+    for (Query<? extends R> query : queries) {
+      results.add(dispatch(query));
+    }
+    return results;
+  }
 }
@@ -0,0 +1,124 @@
+package net.dathoang.cqrs.commandbus.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * The outcome of the queries dispatched together with {@link AsyncQueryBus#dispatchAll(List)}:
+ * the result of each query which succeeded, and the failure of each query which failed. The
+ * queries are looked up by identity, so pass the same instances as the ones dispatched.
+ */
+public final class QueryResults {
+  private final List<Query<?>> queries;
+  private final Object[] results;
+  private final Throwable[] failures;
+
+  private QueryResults(List<Query<?>> queries, Object[] results, Throwable[] failures) {
+    this.queries = queries;
+    this.results = results;
+    this.failures = failures;
+  }
+
+  /**
+   * Dispatch all the queries at once, and gather their outcomes once they are all handled.
+   *
+   * @param queries the queries to dispatch
+   * @param dispatcher the function dispatching one query
+   * @return a future completed once every query succeeded or failed, never exceptionally
+   */
+  static CompletableFuture<QueryResults> gather(List<Query<?>> queries,
+      Function<Query<?>, CompletableFuture<?>> dispatcher) {
+    Object[] results = new Object[queries.size()];
+    Throwable[] failures = new Throwable[queries.size()];
+    CompletableFuture<?>[] outcomes = new CompletableFuture<?>[queries.size()];
+    for (int i = 0; i < queries.size(); i++) {
+      int index = i;
+      CompletableFuture<?> result;
+      try {
+        result = dispatcher.apply(queries.get(i));
+      } catch (RuntimeException ex) {
+        result = new CompletableFuture<>();
+        result.completeExceptionally(ex);
+      }
+      outcomes[i] = result.handle((value, failure) -> {
+        if (failure != null) {
+          failures[index] = failure instanceof CompletionException && failure.getCause() != null
+              ? failure.getCause() : failure;
+        } else {
+          results[index] = value;
+        }
+        return null;
+      });
+    }
+    return CompletableFuture.allOf(outcomes)
+        .thenApply(ignored -> new QueryResults(queries, results, failures));
+  }
+
+  /**
+   * Get the result of a query.
+   *
+   * @param query the query, as dispatched
+   * @param <R> the type of the result of the query
+   * @return the result of the query
+   * @throws Exception the exception raised while handling the query, when it failed
+   * @throws IllegalArgumentException when the query wasn't dispatched with the others
+   */
+  @SuppressWarnings("unchecked")
+  public <R> R get(Query<R> query) throws Exception {
+    int index = indexOf(query);
+    Throwable failure = failures[index];
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    if (failure != null) {
+      throw (Exception) failure;
+    }
+    return (R) results[index];
+  }
+
+  /**
+   * Get the exception raised while handling a query.
+   *
+   * @param query the query, as dispatched
+   * @return the exception, or null when the query succeeded
+   * @throws IllegalArgumentException when the query wasn't dispatched with the others
+   */
+  public Throwable getFailure(Query<?> query) {
+    return failures[indexOf(query)];
+  }
+
+  public boolean isFailed(Query<?> query) {
+    return getFailure(query) != null;
+  }
+
+  public boolean hasFailures() {
+    return !getFailedQueries().isEmpty();
+  }
+
+  /**
+   * Get the queries which failed, in dispatch order.
+   */
+  public List<Query<?>> getFailedQueries() {
+    List<Query<?>> failedQueries = new ArrayList<>();
+    for (int i = 0; i < queries.size(); i++) {
+      if (failures[i] != null) {
+        failedQueries.add(queries.get(i));
+      }
+    }
+    return Collections.unmodifiableList(failedQueries);
+  }
+
+  private int indexOf(Query<?> query) {
+    for (int i = 0; i < queries.size(); i++) {
+      if (queries.get(i) == query) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(String.format(
+        "The query %s wasn't dispatched with the others", query.getClass().getName()));
+  }
+}
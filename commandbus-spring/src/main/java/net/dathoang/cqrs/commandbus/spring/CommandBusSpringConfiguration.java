@@ -2,6 +2,8 @@ package net.dathoang.cqrs.commandbus.spring;
 
 import net.dathoang.cqrs.commandbus.command.CommandBus;
 import net.dathoang.cqrs.commandbus.command.DefaultCommandBus;
+import net.dathoang.cqrs.commandbus.event.DefaultEventBus;
+import net.dathoang.cqrs.commandbus.event.EventBus;
 import net.dathoang.cqrs.commandbus.query.DefaultQueryBus;
 import net.dathoang.cqrs.commandbus.query.QueryBus;
 import org.apache.commons.logging.Log;
@@ -40,6 +42,14 @@ public class CommandBusSpringConfiguration {
     );
   }
 
+  @Bean
+  public EventBus getEventBus() {
+    return new DefaultEventBus(
+        findHandlerFactoryConfig().getEventHandlerFactory(),
+        findMiddlewareConfig().getEventMiddlewarePipeline()
+    );
+  }
+
   private HandlerFactoryConfig findHandlerFactoryConfig() {
     HandlerFactoryConfig scannedHandlerFactoryConfig = scanHandlerFactoryConfig();
     if (scannedHandlerFactoryConfig != null) {
@@ -1,6 +1,7 @@
 package net.dathoang.cqrs.commandbus.spring;
 
 import net.dathoang.cqrs.commandbus.command.CommandHandlerFactory;
+import net.dathoang.cqrs.commandbus.event.EventHandlerFactory;
 import net.dathoang.cqrs.commandbus.query.QueryHandlerFactory;
 import org.springframework.context.ApplicationContext;
 
@@ -20,4 +21,9 @@ public class DefaultHandlerFactoryConfig implements HandlerFactoryConfig {
   public QueryHandlerFactory getQueryhandlerFactory() {
     return springAutoScanHandlerFactory;
   }
+
+  @Override
+  public EventHandlerFactory getEventHandlerFactory() {
+    return springAutoScanHandlerFactory;
+  }
 }
@@ -20,4 +20,11 @@ public class DefaultMiddlewareConfig implements MiddlewareConfig {
         new LoggingMiddleware()
     );
   }
+
+  @Override
+  public List<Middleware> getEventMiddlewarePipeline() {
+    return Collections.singletonList(
+        new LoggingMiddleware()
+    );
+  }
 }
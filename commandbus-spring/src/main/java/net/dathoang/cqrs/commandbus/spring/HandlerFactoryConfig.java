@@ -1,9 +1,28 @@
 package net.dathoang.cqrs.commandbus.spring;
 
 import net.dathoang.cqrs.commandbus.command.CommandHandlerFactory;
+import net.dathoang.cqrs.commandbus.event.Event;
+import net.dathoang.cqrs.commandbus.event.EventHandler;
+import net.dathoang.cqrs.commandbus.event.EventHandlerFactory;
 import net.dathoang.cqrs.commandbus.query.QueryHandlerFactory;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface HandlerFactoryConfig {
   CommandHandlerFactory getCommandHandlerFactory();
   QueryHandlerFactory getQueryhandlerFactory();
+
+  /**
+   * The factory of the event handlers. Defaults to one without any handler, so configurations
+   * written before events existed keep compiling.
+   */
+  default EventHandlerFactory getEventHandlerFactory() {
+    return new EventHandlerFactory() {
+      @Override
+      public <E extends Event> List<EventHandler<E>> createEventHandlers(String eventName) {
+        return Collections.emptyList();
+      }
+    };
+  }
 }
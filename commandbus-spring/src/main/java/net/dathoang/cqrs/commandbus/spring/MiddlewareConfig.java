@@ -2,9 +2,14 @@ package net.dathoang.cqrs.commandbus.spring;
 
 import net.dathoang.cqrs.commandbus.middleware.Middleware;
 
+import java.util.Collections;
 import java.util.List;
 
 public interface MiddlewareConfig {
   List<Middleware> getCommandMiddlewarePipeline();
   List<Middleware> getQueryMiddlewarePipeline();
+
+  default List<Middleware> getEventMiddlewarePipeline() {
+    return Collections.emptyList();
+  }
 }
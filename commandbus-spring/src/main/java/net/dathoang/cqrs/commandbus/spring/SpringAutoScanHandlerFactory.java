@@ -15,7 +15,6 @@ public class SpringAutoScanHandlerFactory extends AutoScanHandlerFactory {
     super(new BeanFactory() {
       @Override
       public <R> R createBean(Class<R> beanClass) {
-        context.getAutowireCapableBeanFactory().autowireBean(beanClass);
         return context.getAutowireCapableBeanFactory().createBean(beanClass);
       }
     });